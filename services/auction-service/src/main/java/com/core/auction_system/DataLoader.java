@@ -46,6 +46,7 @@ public class DataLoader implements CommandLineRunner {
             Product p1 = new Product();
             p1.setName("iPhone 14");
             p1.setDescription("Used iPhone 14 in good condition");
+            p1.setCategoryId(categoryRepository.findByName("Electronics").getId());
             p1.setCategory("Electronics");
             p1.setMinBid(200.0);
             p1.setMaxBid(2000.0);
@@ -56,6 +57,7 @@ public class DataLoader implements CommandLineRunner {
             Product p2 = new Product();
             p2.setName("Java Programming Book");
             p2.setDescription("Comprehensive guide to Java 21");
+            p2.setCategoryId(categoryRepository.findByName("Books").getId());
             p2.setCategory("Books");
             p2.setMinBid(10.0);
             p2.setMaxBid(200.0);
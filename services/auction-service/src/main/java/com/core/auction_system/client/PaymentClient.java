@@ -1,8 +1,33 @@
 package com.core.auction_system.client;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -12,16 +37,74 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * HTTP client for payment-service's wallet API.
+ * <p>
+ * Freezes sit on the bid path, so with {@code payment.hedge.enabled} a freeze that has not been
+ * answered within the observed p95 latency is sent a second time, with the same Idempotency-Key,
+ * to the next instance in {@code payment.service.hedge-urls} (or through the main URL again when
+ * none are listed, letting the load balancer pick). The first answer wins and the other request is
+ * cancelled; payment-service runs a key once, so both copies can never freeze twice.
+ */
 @Component
 public class PaymentClient {
 
     private final RestTemplate rest = new RestTemplate();
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final LatencyWindow freezeLatency = new LatencyWindow(1024);
+    private final AtomicInteger nextHedgeUrl = new AtomicInteger();
 
     @Value("${payment.service.url:http://payment-service:8081}")
     private String paymentServiceUrl;
+    // items per batch request
+    @Value("${payment.batch.max-items:500}")
+    private int batchMaxItems;
+
+    @Value("${payment.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+    @Value("${payment.service.hedge-urls:}")
+    private String[] hedgeUrls;
+    @Value("${payment.hedge.percentile:0.95}")
+    private double hedgePercentile;
+    // hedge delay until enough latencies were observed, and the floor afterwards
+    @Value("${payment.hedge.initial-delay-ms:100}")
+    private long hedgeInitialDelayMs;
+    @Value("${payment.hedge.min-delay-ms:10}")
+    private long hedgeMinDelayMs;
+    @Value("${payment.hedge.timeout-ms:10000}")
+    private long hedgeTimeoutMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private Counter freezeCalls;
+    private Counter freezeHedged;
+    private Counter freezeHedgeWins;
+    private final Map<String, Timer> callTimers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initMetrics() {
+        freezeCalls = meterRegistry.counter("payment.freeze.calls");
+        freezeHedged = meterRegistry.counter("payment.freeze.hedged");
+        freezeHedgeWins = meterRegistry.counter("payment.freeze.hedge.wins");
+        Gauge.builder("payment.freeze.hedge.delay", this, PaymentClient::hedgeDelayMs)
+                .baseUnit("milliseconds")
+                .description("Time a freeze waits before it is hedged")
+                .register(meterRegistry);
+    }
 
     public FreezeResponse freeze(Integer userId, Double amount, String email) {
+        long start = System.nanoTime();
+        FreezeResponse fr = hedgeEnabled ? hedgedFreeze(userId, amount, email) : plainFreeze(userId, amount, email);
+        recordCall("freeze", start, fr != null && fr.ok);
+        return fr;
+    }
+
+    private FreezeResponse plainFreeze(Integer userId, Double amount, String email) {
         String url = paymentServiceUrl + "/wallet/freeze";
         HttpHeaders headers = new HttpHeaders();
         Map<String, Object> body = Map.of("userId", userId.toString(), "amount", amount, "email", email);
@@ -30,26 +113,10 @@ public class PaymentClient {
             ResponseEntity<FreezeResponse> resp = rest.exchange(url, HttpMethod.POST, ent, FreezeResponse.class);
             return resp.getBody();
         } catch (HttpStatusCodeException ex) {
-            // Try to parse JSON body { ok:false, reason: "..." } to return a clean reason
             FreezeResponse fr = new FreezeResponse();
             fr.ok = false;
-            try {
-                String respBody = ex.getResponseBodyAsString();
-                if (respBody != null && !respBody.isBlank()) {
-                    JsonNode node = mapper.readTree(respBody);
-                    if (node.has("reason")) {
-                        fr.reason = node.get("reason").asText();
-                    } else if (node.has("message")) {
-                        fr.reason = node.get("message").asText();
-                    } else {
-                        fr.reason = respBody;
-                    }
-                } else {
-                    fr.reason = ex.getStatusCode().toString();
-                }
-            } catch (Exception parseEx) {
-                fr.reason = ex.getStatusCode().toString() + " - " + ex.getMessage();
-            }
+            fr.reason = reasonOf(ex);
+            fr.version = versionOf(ex.getResponseBodyAsString());
             return fr;
         } catch (Exception ex) {
             FreezeResponse fr = new FreezeResponse();
@@ -59,114 +126,252 @@ public class PaymentClient {
         }
     }
 
-    public GenericResponse deduct(Integer userId, Double amount, Integer auctionId, String reservationId,
-                                  String email) {
-        String url = paymentServiceUrl + "/wallet/deduct";
-        HttpHeaders headers = new HttpHeaders();
-        Map<String, Object> body =
-                Map.of("userId", userId.toString(), "amount", amount, "reservationId", reservationId, "email", email);
-        HttpEntity<Map<String, Object>> ent = new HttpEntity<>(body, headers);
-        GenericResponse gr = new GenericResponse();
+    private FreezeResponse hedgedFreeze(Integer userId, Double amount, String email) {
+        freezeCalls.increment();
+        String key = "freeze-" + UUID.randomUUID();
+        long start = System.nanoTime();
         try {
-            ResponseEntity<JsonNode> resp = rest.exchange(url, HttpMethod.POST, ent, JsonNode.class);
-            gr.ok = true;
-            gr.body = resp.getBody();
-            return gr;
-        } catch (HttpStatusCodeException ex) {
-            gr.ok = false;
+            byte[] body = mapper.writeValueAsBytes(
+                    Map.of("userId", userId.toString(), "amount", amount, "email", email));
+            CompletableFuture<HttpResponse<String>> primary = sendFreeze(paymentServiceUrl, body, key);
             try {
-                String respBody = ex.getResponseBodyAsString();
-                if (respBody != null && !respBody.isBlank()) {
-                    JsonNode node = mapper.readTree(respBody);
-                    if (node.has("reason")) {
-                        gr.reason = node.get("reason").asText();
-                    } else if (node.has("message")) {
-                        gr.reason = node.get("message").asText();
-                    } else {
-                        gr.reason = respBody;
+                HttpResponse<String> resp = primary.get(hedgeDelayMs(), TimeUnit.MILLISECONDS);
+                freezeLatency.record(elapsedMs(start));
+                return freezeResponse(resp);
+            } catch (TimeoutException slow) {
+                freezeHedged.increment();
+                CompletableFuture<HttpResponse<String>> hedge = sendFreeze(nextHedgeUrl(), body, key);
+                CompletableFuture<HttpResponse<String>> first = firstSuccessful(primary, hedge);
+                try {
+                    HttpResponse<String> resp = first.get(hedgeTimeoutMs, TimeUnit.MILLISECONDS);
+                    // when the hedge wins, the primary's latency is only known to be at least this
+                    freezeLatency.record(elapsedMs(start));
+                    if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == resp) {
+                        freezeHedgeWins.increment();
                     }
-                } else {
-                    gr.reason = ex.getStatusCode().toString();
+                    return freezeResponse(resp);
+                } finally {
+                    primary.cancel(true);
+                    hedge.cancel(true);
                 }
-            } catch (Exception parseEx) {
-                gr.reason = ex.getStatusCode().toString() + " - " + ex.getMessage();
             }
-            return gr;
+        } catch (ExecutionException ex) {
+            return freezeFailure(ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return freezeFailure("interrupted");
         } catch (Exception ex) {
-            gr.ok = false;
-            gr.reason = ex.getMessage();
-            return gr;
+            return freezeFailure(ex.getMessage());
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendFreeze(String baseUrl, byte[] body, String key) {
+        HttpRequest req = HttpRequest.newBuilder(URI.create(baseUrl + "/wallet/freeze"))
+                .timeout(Duration.ofMillis(hedgeTimeoutMs))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // completes with whichever answers first; fails only if both fail
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<T, Throwable> onDone = (value, ex) -> {
+            if (ex == null) {
+                first.complete(value);
+            } else if (failures.incrementAndGet() == 2) {
+                first.completeExceptionally(ex);
+            }
+        };
+        a.whenComplete(onDone);
+        b.whenComplete(onDone);
+        return first;
+    }
+
+    private String nextHedgeUrl() {
+        if (hedgeUrls == null || hedgeUrls.length == 0) {
+            return paymentServiceUrl;
         }
+        return hedgeUrls[Math.floorMod(nextHedgeUrl.getAndIncrement(), hedgeUrls.length)].trim();
+    }
+
+    long hedgeDelayMs() {
+        long p = freezeLatency.percentile(hedgePercentile);
+        return p < 0 ? hedgeInitialDelayMs : Math.max(hedgeMinDelayMs, p);
+    }
+
+    private FreezeResponse freezeResponse(HttpResponse<String> resp) throws IOException {
+        if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
+            return mapper.readValue(resp.body(), FreezeResponse.class);
+        }
+        FreezeResponse fr = freezeFailure(reasonOf(resp.body(), String.valueOf(resp.statusCode())));
+        fr.version = versionOf(resp.body());
+        return fr;
+    }
+
+    private static FreezeResponse freezeFailure(String reason) {
+        FreezeResponse fr = new FreezeResponse();
+        fr.ok = false;
+        fr.reason = reason;
+        return fr;
+    }
+
+    // latency of every payment-service call, by operation and whether it succeeded
+    private void recordCall(String operation, long startNanos, boolean ok) {
+        callTimers.computeIfAbsent(operation + (ok ? ":ok" : ":failed"), k -> Timer.builder("payment.client.requests")
+                        .description("Calls to payment-service")
+                        .tag("operation", operation)
+                        .tag("outcome", ok ? "ok" : "failed")
+                        .register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public GenericResponse deduct(Integer userId, Double amount, Integer auctionId, String reservationId,
+                                  String email) {
+        return deduct(userId, amount, auctionId, reservationId, email, null);
+    }
+
+    /**
+     * Deduct with an Idempotency-Key; payment-service answers a repeated key with the stored
+     * result of the first call instead of charging again.
+     */
+    public GenericResponse deduct(Integer userId, Double amount, Integer auctionId, String reservationId,
+                                  String email, String idempotencyKey) {
+        Map<String, Object> body =
+                Map.of("userId", userId.toString(), "amount", amount, "reservationId", reservationId, "email", email);
+        return post("/wallet/deduct", body, idempotencyKey);
     }
 
     public GenericResponse unfreeze(Integer userId, Double amount) {
-        String url = paymentServiceUrl + "/wallet/unfreeze";
-        HttpHeaders headers = new HttpHeaders();
+        return unfreeze(userId, amount, null);
+    }
+
+    public GenericResponse unfreeze(Integer userId, Double amount, String idempotencyKey) {
         Map<String, Object> body = Map.of("userId", userId.toString(), "amount", amount);
-        HttpEntity<Map<String, Object>> ent = new HttpEntity<>(body, headers);
-        GenericResponse gr = new GenericResponse();
-        try {
-            ResponseEntity<JsonNode> resp = rest.exchange(url, HttpMethod.POST, ent, JsonNode.class);
-            gr.ok = true;
-            gr.body = resp.getBody();
-            return gr;
-        } catch (HttpStatusCodeException ex) {
-            gr.ok = false;
-            try {
-                String respBody = ex.getResponseBodyAsString();
-                if (respBody != null && !respBody.isBlank()) {
-                    JsonNode node = mapper.readTree(respBody);
-                    if (node.has("reason")) {
-                        gr.reason = node.get("reason").asText();
-                    } else if (node.has("message")) {
-                        gr.reason = node.get("message").asText();
-                    } else {
-                        gr.reason = respBody;
-                    }
-                } else {
-                    gr.reason = ex.getStatusCode().toString();
-                }
-            } catch (Exception parseEx) {
-                gr.reason = ex.getStatusCode().toString() + " - " + ex.getMessage();
+        return post("/wallet/unfreeze", body, idempotencyKey);
+    }
+
+    public GenericResponse deposit(Integer userId, Double amount, String source) {
+        return deposit(userId, amount, source, null);
+    }
+
+    public GenericResponse deposit(Integer userId, Double amount, String source, String idempotencyKey) {
+        Map<String, Object> body = Map.of("userId", userId.toString(), "amount", amount, "source", source);
+        return post("/wallet/deposit", body, idempotencyKey);
+    }
+
+    /**
+     * Release many reservations with one request per {@code payment.batch.max-items} items.
+     * Returns one result per reservation, in order. Falls back to one call per reservation when
+     * payment-service has no batch endpoint.
+     */
+    public List<GenericResponse> unfreezeAll(List<Reservation> reservations) {
+        List<GenericResponse> results = new ArrayList<>(reservations.size());
+        for (int from = 0; from < reservations.size(); from += batchMaxItems) {
+            List<Reservation> chunk = reservations.subList(from, Math.min(reservations.size(), from + batchMaxItems));
+            results.addAll(unfreezeChunk(chunk));
+        }
+        return results;
+    }
+
+    /**
+     * Charge the auction winner and, if that succeeded, pay the seller, in one request.
+     * {@code sellerDeposit} may be null. {@link SettleResponse#deposit} is null when no deposit
+     * was attempted.
+     */
+    public SettleResponse settle(Deduct winnerDeduct, Deposit sellerDeposit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("deduct", winnerDeduct.toMap());
+        if (sellerDeposit != null) {
+            body.put("deposit", sellerDeposit.toMap());
+        }
+        GenericResponse resp = post("/wallet/settle", body, null);
+        SettleResponse out = new SettleResponse();
+        if (resp.status == 404) {
+            // payment-service without the combined endpoint
+            out.deduct = deduct(winnerDeduct.userId(), winnerDeduct.amount(), winnerDeduct.auctionId(),
+                    winnerDeduct.reservationId(), winnerDeduct.email(), winnerDeduct.idempotencyKey());
+            if (out.deduct.ok && sellerDeposit != null) {
+                out.deposit = deposit(sellerDeposit.userId(), sellerDeposit.amount(), sellerDeposit.source(),
+                        sellerDeposit.idempotencyKey());
             }
-            return gr;
-        } catch (Exception ex) {
+            return out;
+        }
+        if (resp.ok && resp.body instanceof JsonNode node && node.path("deduct").isObject()) {
+            out.deduct = itemResult(node.path("deduct"));
+            out.deposit = node.path("deposit").isObject() ? itemResult(node.path("deposit")) : null;
+        } else {
+            // the request as a whole failed, so the deduct outcome is that failure
+            out.deduct = resp;
+        }
+        return out;
+    }
+
+    private List<GenericResponse> unfreezeChunk(List<Reservation> chunk) {
+        List<Map<String, Object>> items = chunk.stream().map(Reservation::toMap).toList();
+        GenericResponse resp = post("/wallet/unfreeze/batch", Map.of("items", items), null);
+        if (resp.status == 404) {
+            return chunk.stream().map(r -> unfreeze(r.userId(), r.amount(), r.idempotencyKey())).toList();
+        }
+        if (resp.ok && resp.body instanceof JsonNode node && node.path("results").size() == chunk.size()) {
+            List<GenericResponse> results = new ArrayList<>(chunk.size());
+            node.path("results").forEach(item -> results.add(itemResult(item)));
+            return results;
+        }
+        // the request as a whole failed; every item shares that outcome
+        List<GenericResponse> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            GenericResponse gr = new GenericResponse();
             gr.ok = false;
-            gr.reason = ex.getMessage();
-            return gr;
+            gr.status = resp.status;
+            gr.reason = resp.ok ? "malformed batch response" : resp.reason;
+            results.add(gr);
         }
+        return results;
     }
 
-    public GenericResponse deposit(Integer userId, Double amount, String source) {
-        String url = paymentServiceUrl + "/wallet/deposit";
-        HttpHeaders headers = new HttpHeaders();
-        Map<String, Object> body = Map.of("userId", userId.toString(), "amount", amount, "source", source);
-        HttpEntity<Map<String, Object>> ent = new HttpEntity<>(body, headers);
+    // per-item result inside a batch response: { status, ok?, reason? | error?, ... }
+    private GenericResponse itemResult(JsonNode item) {
+        GenericResponse gr = new GenericResponse();
+        gr.status = item.path("status").asInt(0);
+        gr.ok = item.has("ok") ? item.path("ok").asBoolean() : gr.status >= 200 && gr.status < 300;
+        if (!gr.ok) {
+            gr.reason = item.has("reason") ? item.get("reason").asText()
+                    : item.has("error") ? item.get("error").asText() : item.path("message").asText(null);
+        }
+        gr.body = item;
+        return gr;
+    }
+
+    private GenericResponse post(String path, Map<String, Object> body, String idempotencyKey) {
+        long start = System.nanoTime();
+        GenericResponse gr = exchange(path, body, idempotencyKey);
+        // "/wallet/unfreeze/batch" -> "unfreeze_batch"
+        recordCall(path.substring(path.indexOf('/', 1) + 1).replace('/', '_'), start, gr.ok);
+        return gr;
+    }
+
+    private GenericResponse exchange(String path, Map<String, Object> body, String idempotencyKey) {
+        HttpEntity<Map<String, Object>> ent = new HttpEntity<>(body, idempotentHeaders(idempotencyKey));
         GenericResponse gr = new GenericResponse();
         try {
-            ResponseEntity<JsonNode> resp = rest.exchange(url, HttpMethod.POST, ent, JsonNode.class);
+            ResponseEntity<JsonNode> resp =
+                    rest.exchange(paymentServiceUrl + path, HttpMethod.POST, ent, JsonNode.class);
             gr.ok = true;
+            gr.status = resp.getStatusCode().value();
             gr.body = resp.getBody();
             return gr;
         } catch (HttpStatusCodeException ex) {
             gr.ok = false;
-            try {
-                String respBody = ex.getResponseBodyAsString();
-                if (respBody != null && !respBody.isBlank()) {
-                    JsonNode node = mapper.readTree(respBody);
-                    if (node.has("reason")) {
-                        gr.reason = node.get("reason").asText();
-                    } else if (node.has("message")) {
-                        gr.reason = node.get("message").asText();
-                    } else {
-                        gr.reason = respBody;
-                    }
-                } else {
-                    gr.reason = ex.getStatusCode().toString();
-                }
-            } catch (Exception parseEx) {
-                gr.reason = ex.getStatusCode().toString() + " - " + ex.getMessage();
-            }
+            gr.status = ex.getStatusCode().value();
+            gr.reason = reasonOf(ex);
             return gr;
         } catch (Exception ex) {
             gr.ok = false;
@@ -175,16 +380,156 @@ public class PaymentClient {
         }
     }
 
+    // Try to parse JSON body { ok:false, reason: "..." } to return a clean reason
+    private String reasonOf(HttpStatusCodeException ex) {
+        return reasonOf(ex.getResponseBodyAsString(), ex.getStatusCode().toString());
+    }
+
+    // wallet version from an error body such as { ok:false, reason: "...", version: 7 }
+    private Long versionOf(String respBody) {
+        try {
+            JsonNode node = respBody == null || respBody.isBlank() ? null : mapper.readTree(respBody);
+            return node != null && node.hasNonNull("version") ? node.get("version").asLong() : null;
+        } catch (Exception parseEx) {
+            return null;
+        }
+    }
+
+    private String reasonOf(String respBody, String status) {
+        try {
+            if (respBody == null || respBody.isBlank()) {
+                return status;
+            }
+            JsonNode node = mapper.readTree(respBody);
+            if (node.has("reason")) {
+                return node.get("reason").asText();
+            } else if (node.has("message")) {
+                return node.get("message").asText();
+            }
+            return respBody;
+        } catch (Exception parseEx) {
+            return status + " - " + parseEx.getMessage();
+        }
+    }
+
+    private static HttpHeaders idempotentHeaders(String idempotencyKey) {
+        HttpHeaders headers = new HttpHeaders();
+        if (idempotencyKey != null) {
+            headers.set("Idempotency-Key", idempotencyKey);
+        }
+        return headers;
+    }
+
+    /**
+     * Amount frozen for a user that should be released.
+     */
+    public record Reservation(Integer userId, Double amount, String reservationId, String idempotencyKey) {
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("userId", userId.toString());
+            m.put("amount", amount);
+            m.put("reservationId", reservationId);
+            m.put("idempotencyKey", idempotencyKey);
+            return m;
+        }
+    }
+
+    public record Deduct(Integer userId, Double amount, Integer auctionId, String reservationId, String email,
+                         String idempotencyKey) {
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("userId", userId.toString());
+            m.put("amount", amount);
+            m.put("auctionId", auctionId);
+            m.put("reservationId", reservationId);
+            m.put("email", email);
+            m.put("idempotencyKey", idempotencyKey);
+            return m;
+        }
+    }
+
+    public record Deposit(Integer userId, Double amount, String source, String idempotencyKey) {
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("userId", userId.toString());
+            m.put("amount", amount);
+            m.put("source", source);
+            m.put("idempotencyKey", idempotencyKey);
+            return m;
+        }
+    }
+
+    public static class SettleResponse {
+        public GenericResponse deduct;
+        public GenericResponse deposit;
+    }
+
     public static class FreezeResponse {
         public boolean ok;
         public String reservationId;
         public String reason;
+        // wallet version after the freeze, or the one a refusal was decided at; null from older
+        // payment-service versions
+        public Long version;
+    }
+
+    /**
+     * Most recent latencies of one call type; percentiles are recomputed every few samples.
+     */
+    static class LatencyWindow {
+        private static final int MIN_SAMPLES = 50;
+        private static final int RECOMPUTE_EVERY = 32;
+
+        private final long[] samples;
+        private int count;
+        private int next;
+        private long[] sorted = new long[0];
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long ms) {
+            samples[next] = ms;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (count >= MIN_SAMPLES && next % RECOMPUTE_EVERY == 0) {
+                long[] copy = Arrays.copyOf(samples, count);
+                Arrays.sort(copy);
+                sorted = copy;
+            }
+        }
+
+        // -1 until enough samples were seen
+        synchronized long percentile(double p) {
+            if (sorted.length == 0) {
+                return -1;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+        }
     }
 
     public static class GenericResponse {
         public boolean ok;
+        // HTTP status of the response; 0 when payment-service could not be reached
+        public int status;
         public String reason;
         public Object body;
+
+        /**
+         * True when the call failed for reasons unrelated to the request itself (no response or a
+         * 5xx), so repeating it later may succeed.
+         */
+        public boolean isRetryable() {
+            return !ok && (status == 0 || status >= 500);
+        }
+
+        /**
+         * Wallet version after the call, when payment-service reports one.
+         */
+        public Long walletVersion() {
+            return body instanceof JsonNode node && node.hasNonNull("version") ? node.get("version").asLong() : null;
+        }
     }
 }
 
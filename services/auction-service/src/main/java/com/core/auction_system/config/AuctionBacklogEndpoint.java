@@ -0,0 +1,48 @@
+package com.core.auction_system.config;
+
+import com.core.auction_system.model.SettlementState;
+import com.core.auction_system.repository.AuctionSettlementRepository;
+import com.core.auction_system.repository.ProductRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * GET /actuator/auctionbacklog - how far auction closing is behind right now: ended auctions
+ * that are not frozen yet (the next scheduler run's work), how late the oldest of them is, and
+ * settlements still in progress by state.
+ */
+@Component
+@Endpoint(id = "auctionbacklog")
+public class AuctionBacklogEndpoint {
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private AuctionSettlementRepository settlementRepository;
+
+    @ReadOperation
+    public Map<String, Object> backlog() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("checkedAt", now);
+        body.put("expiredUnfrozen", productRepository.countByEndTimeBeforeAndFrozenFalse(now));
+        productRepository.findFirstByEndTimeBeforeAndFrozenFalseOrderByEndTimeAsc(now).ifPresent(oldest -> {
+            body.put("oldestEndTime", oldest.getEndTime());
+            body.put("oldestLagSeconds", Duration.between(oldest.getEndTime(), now).toSeconds());
+        });
+        Map<String, Long> unfinished = new TreeMap<>();
+        for (Object[] row : settlementRepository.countByStateNotGrouped(SettlementState.SETTLED)) {
+            unfinished.put(row[0].toString(), (Long) row[1]);
+        }
+        body.put("unfinishedSettlements", unfinished);
+        body.put("leasedSettlements", settlementRepository.countByLeaseUntilAfter(now));
+        return body;
+    }
+}
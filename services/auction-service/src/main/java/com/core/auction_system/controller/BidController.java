@@ -2,30 +2,70 @@ package com.core.auction_system.controller;
 
 import com.core.auction_system.dto.BidDTO;
 import com.core.auction_system.dto.BidResponseDTO;
+import com.core.auction_system.dto.MultiGetResultDTO;
+import com.core.auction_system.dto.ProxyBidDTO;
 import com.core.auction_system.model.Bid;
+import com.core.auction_system.service.BidAdmissionControl;
+import com.core.auction_system.service.BidIdempotencyService;
+import com.core.auction_system.service.BidJournal;
+import com.core.auction_system.service.BidMetrics;
 import com.core.auction_system.service.BidService;
+import com.core.auction_system.service.ExportService;
+import com.core.auction_system.service.ProxyBidEngine;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/bids/v1")
 public class BidController {
 
     private static final Logger logger = LoggerFactory.getLogger(BidController.class);
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 128;
+    private static final int MAX_JOURNAL_PAGE = 5000;
+    private static final int MAX_MULTI_GET = 100;
 
     @Autowired
     private BidService bidService;
 
+    @Autowired
+    private BidIdempotencyService bidIdempotencyService;
+
+    @Autowired
+    private BidAdmissionControl bidAdmissionControl;
+
+    @Autowired
+    private ProxyBidEngine proxyBidEngine;
+
+    @Autowired
+    private BidJournal bidJournal;
+
+    @Autowired
+    private BidMetrics bidMetrics;
+
+    @Autowired
+    private ExportService exportService;
+
     /**
      * GET /api/bids/v1
      */
@@ -35,6 +75,35 @@ public class BidController {
         return bidService.getAllBids();
     }
 
+    /**
+     * GET /api/bids/v1?ids=3,1,2
+     * Several bids in one request, in the order asked for, with null for ids that don't exist.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getBidsByIds(@RequestParam List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_MULTI_GET || ids.contains(null)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "ids must list between 1 and " + MAX_MULTI_GET + " bid ids"
+            ));
+        }
+        logger.debug("GET /api/bids/v1?ids= called for {} ids", ids.size());
+        return ResponseEntity.ok(MultiGetResultDTO.of(ids, bidService.getBidsByIdsAsDTO(ids)));
+    }
+
+    /**
+     * GET /api/bids/v1/export
+     * Same content as GET /api/bids/v1, streamed from the database as it is read, so memory use
+     * does not depend on the number of bids.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBids() {
+        logger.debug("GET /api/bids/v1/export called");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> logger.info("Exported {} bids", exportService.writeBids(out)));
+    }
+
     /**
      * GET /api/bids/v1/{id}
      */
@@ -62,7 +131,8 @@ public class BidController {
         logger.debug("GET /api/bids/v1/users/{} called", userId);
         List<BidResponseDTO> bids = bidService.getBidsByBidderAsDTO(userId);
         logger.info("Found {} bids for user {}", bids.size(), userId);
-        return ResponseEntity.ok(bids);
+        return ResponseEntity.ok().eTag(listingETag(bids)).cacheControl(CacheControl.noCache().cachePrivate())
+                .body(bids);
     }
 
     /**
@@ -74,7 +144,8 @@ public class BidController {
         logger.debug("GET /api/bids/v1/products/{} called", productId);
         List<BidResponseDTO> bids = bidService.getBidsByProductIdAsDTO(productId);
         logger.info("Found {} bids for product {}", bids.size(), productId);
-        return ResponseEntity.ok(bids);
+        return ResponseEntity.ok().eTag(listingETag(bids)).cacheControl(CacheControl.noCache().cachePublic())
+                .body(bids);
     }
 
     /**
@@ -89,14 +160,42 @@ public class BidController {
         return ResponseEntity.ok(summary);
     }
 
+    /**
+     * GET /api/bids/v1/journal?fromSeq=&limit=
+     * Tail the bid journal of this instance. Poll again with {@code nextSeq} to continue; records
+     * before {@code firstSeq} have been deleted by retention.
+     */
+    @GetMapping("/journal")
+    public ResponseEntity<?> readJournal(@RequestParam(defaultValue = "1") long fromSeq,
+                                         @RequestParam(defaultValue = "500") int limit) {
+        if (fromSeq < 1 || limit < 1 || limit > MAX_JOURNAL_PAGE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "fromSeq must be >= 1 and limit between 1 and " + MAX_JOURNAL_PAGE
+            ));
+        }
+        List<BidJournal.JournalEntry> entries = bidJournal.read(fromSeq, limit);
+        long nextSeq = entries.isEmpty() ? fromSeq : entries.get(entries.size() - 1).seq() + 1;
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("entries", entries);
+        response.put("nextSeq", nextSeq);
+        response.put("firstSeq", bidJournal.getFirstSeq());
+        response.put("headSeq", bidJournal.getNextSeq() - 1);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * POST /api/bids/v1
      * Accepts only amount and productId from user.
      * BuyerId and email are extracted from JWT token.
      * BidTime is set to current time.
+     * An optional Idempotency-Key header makes retries safe: a repeated key returns the original
+     * outcome without placing (or reserving payment for) a second bid.
      */
     @PostMapping
-    public ResponseEntity<?> placeBid(@RequestBody BidDTO bidDto) {
+    public ResponseEntity<?> placeBid(@RequestBody BidDTO bidDto,
+                                      @RequestHeader(value = "Idempotency-Key", required = false)
+                                      String idempotencyKey) {
         logger.debug("POST /api/bids/v1 called");
 
         // Extract authentication from JWT
@@ -140,8 +239,47 @@ public class BidController {
         logger.info("Processing bid from user: {} (ID: {})", email, bidderId);
 
         // Delegate to service layer
-        BidService.BidPlacementResult result = bidService.placeBidWithValidation(bidDto, bidderId, email);
+        BidService.BidPlacementResult result;
+        boolean replayed = false;
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            result = admitAndPlace(bidDto, bidderId, email);
+        } else {
+            if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "Idempotency-Key too long"
+                ));
+            }
+            final Integer bidder = bidderId;
+            BidIdempotencyService.Outcome outcome = bidIdempotencyService.execute(idempotencyKey, bidderId, bidDto,
+                    () -> admitAndPlace(bidDto, bidder, email));
+            if (outcome.conflict()) {
+                logger.warn("Idempotency-Key {} reused by user {} for a different bid", idempotencyKey, bidderId);
+                return ResponseEntity.status(422).body(Map.of(
+                    "errorCode", 422,
+                    "errorMessage", "Idempotency-Key already used for a different bid"
+                ));
+            }
+            if (outcome.inProgress()) {
+                return ResponseEntity.status(409).body(Map.of(
+                    "errorCode", 409,
+                    "errorMessage", "A request with this Idempotency-Key is still in progress"
+                ));
+            }
+            result = outcome.result();
+            replayed = outcome.replayed();
+            if (replayed) {
+                logger.info("Replaying bid outcome for Idempotency-Key {} (user {})", idempotencyKey, bidderId);
+            }
+        }
 
+        ResponseEntity.BodyBuilder status = ResponseEntity.status(result.getStatusCode());
+        if (replayed) {
+            status.header("Idempotent-Replayed", "true");
+        }
+        if (result.getStatusCode() == 429) {
+            status.header(HttpHeaders.RETRY_AFTER, String.valueOf(result.getRetryAfterSeconds()));
+        }
         if (result.isSuccess()) {
             Bid savedBid = result.getBid();
             java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
@@ -150,7 +288,7 @@ public class BidController {
             response.put("bidId", savedBid.getId());
             response.put("amount", savedBid.getAmount());
             response.put("productId", savedBid.getProduct().getId());
-            return ResponseEntity.ok(response);
+            return status.body(response);
         } else {
             // Handle error responses from service
             java.util.Map<String, Object> errorResp = new java.util.LinkedHashMap<>();
@@ -159,7 +297,121 @@ public class BidController {
             if (result.getErrorReason() != null) {
                 errorResp.put("reason", result.getErrorReason());
             }
-            return ResponseEntity.status(result.getStatusCode()).body(errorResp);
+            return status.body(errorResp);
+        }
+    }
+
+    /**
+     * POST /api/bids/v1/proxy
+     * Registers a maximum bid. The full maximum is reserved once; the service then bids on the
+     * user's behalf, one increment at a time, whenever they are outbid, up to that maximum.
+     */
+    @PostMapping("/proxy")
+    public ResponseEntity<?> placeProxyBid(@RequestBody ProxyBidDTO proxyDto) {
+        logger.debug("POST /api/bids/v1/proxy called");
+
+        var auth = org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication();
+        Integer bidderId = auth == null ? null : extractUserId(auth.getDetails());
+        if (auth == null || auth.getName() == null || bidderId == null) {
+            logger.warn("Unauthenticated proxy bid attempt");
+            return ResponseEntity.status(401).body(Map.of(
+                "errorCode", 401,
+                "errorMessage", "Authentication required"
+            ));
+        }
+
+        BidAdmissionControl.Decision decision = bidAdmissionControl.tryAcquire(bidderId, proxyDto.getProductId());
+        if (!decision.admitted()) {
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                    .body(Map.of(
+                        "errorCode", 429,
+                        "errorMessage", "too_many_requests",
+                        "reason", decision.reason()
+                    ));
+        }
+        ProxyBidEngine.RegistrationResult result;
+        try {
+            result = proxyBidEngine.register(proxyDto.getProductId(), proxyDto.getMaxAmount(), bidderId,
+                    auth.getName());
+        } finally {
+            decision.permit().release();
+        }
+
+        if (result.success()) {
+            java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
+            response.put("status", "success");
+            response.put("message", "Proxy bid registered");
+            response.put("proxyBidId", result.proxy().getId());
+            response.put("productId", result.proxy().getProductId());
+            response.put("maxAmount", result.proxy().getMaxAmount());
+            response.put("currentBid", result.currentBid());
+            response.put("leading", result.leading());
+            return ResponseEntity.ok(response);
+        }
+        java.util.Map<String, Object> errorResp = new java.util.LinkedHashMap<>();
+        errorResp.put("errorCode", result.statusCode());
+        errorResp.put("errorMessage", result.errorMessage());
+        if (result.errorReason() != null) {
+            errorResp.put("reason", result.errorReason());
+        }
+        return ResponseEntity.status(result.statusCode()).body(errorResp);
+    }
+
+    private Integer extractUserId(Object details) {
+        if (details instanceof Number) {
+            return ((Number) details).intValue();
+        }
+        if (details != null) {
+            try {
+                return Integer.parseInt(details.toString());
+            } catch (NumberFormatException e) {
+                logger.error("Invalid bidder ID format in JWT: {}", details);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run the placement under admission control; requests over the bidder/product rate or the
+     * adaptive concurrency limit are turned away with 429 before touching the DB or payments.
+     * Replayed idempotent requests never get here, so retries stay cheap even under load.
+     */
+    private BidService.BidPlacementResult admitAndPlace(BidDTO bidDto, Integer bidderId, String email) {
+        BidAdmissionControl.Decision decision = bidAdmissionControl.tryAcquire(bidderId, bidDto.getProductId());
+        if (!decision.admitted()) {
+            logger.info("Bid from user {} on product {} rejected: {} (retry after {}s)", bidderId,
+                    bidDto.getProductId(), decision.reason(), decision.retryAfterSeconds());
+            bidMetrics.rejected("throttled");
+            return BidService.BidPlacementResult.throttled(decision.reason(), decision.retryAfterSeconds());
+        }
+        try {
+            return bidService.placeBidWithValidation(bidDto, bidderId, email);
+        } finally {
+            decision.permit().release();
+        }
+    }
+
+    /**
+     * Bid statuses change without a new bid (outbid, paid), so a listing's ETag comes from its
+     * content: a matching If-None-Match still reads the bids but skips sending them. Every field
+     * the listing shows goes into a SHA-256 digest, the way the catalog version is built.
+     */
+    private static String listingETag(List<BidResponseDTO> bids) {
+        MessageDigest digest = sha256();
+        for (BidResponseDTO b : bids) {
+            digest.update((b.getId() + ":" + b.getAmount() + ":" + b.getBidTime() + ":" + b.getProductId() + ":"
+                    + b.getBidderId() + ":" + b.getEmail() + ":" + b.getReservationId() + ":" + b.getStatus() + ":"
+                    + b.getChangeSeq() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return ETags.of(bids.size(), HexFormat.of().formatHex(digest.digest(), 0, 16));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
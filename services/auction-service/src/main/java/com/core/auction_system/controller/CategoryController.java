@@ -2,11 +2,14 @@ package com.core.auction_system.controller;
 
 import com.core.auction_system.model.Category;
 import com.core.auction_system.service.CategoryService;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -14,6 +17,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -22,31 +26,45 @@ import org.springframework.web.bind.annotation.RestController;
 public class CategoryController {
 
     private static final Logger logger = LoggerFactory.getLogger(CategoryController.class);
+    // categories change rarely; a minute matches how long an instance may serve a stale dictionary
+    private static final CacheControl CATEGORY_CACHE = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
 
     @Autowired
     private CategoryService categoryService;
 
     /**
      * GET /api/categories/v1
+     * ETag is the catalog version; If-None-Match with the current one gets a 304.
      */
     @GetMapping
-    public List<Category> getAllCategories() {
+    public ResponseEntity<?> getAllCategories(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("GET /api/categories/v1 called");
-        List<Category> categories = categoryService.getAllCategories();
+        CategoryService.Catalog catalog = categoryService.getCatalog();
+        String etag = ETags.of("categories", catalog.version());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag, CATEGORY_CACHE);
+        }
+        List<Category> categories = catalog.categories();
         logger.info("Fetched {} categories", categories.size());
-        return categories;
+        return ResponseEntity.ok().eTag(etag).cacheControl(CATEGORY_CACHE).body(categories);
     }
 
     /**
      * GET /api/categories/v1/{id}
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getCategoryById(@PathVariable Integer id) {
+    public ResponseEntity<?> getCategoryById(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("GET /api/categories/v1/{} called", id);
+        String etag = ETags.of("categories", categoryService.getCatalog().version());
         return categoryService.getCategoryById(id)
                 .map(c -> {
+                    if (ETags.matches(ifNoneMatch, etag)) {
+                        return ETags.notModified(etag, CATEGORY_CACHE);
+                    }
                     logger.info("Category found with id {}", id);
-                    return ResponseEntity.ok((Object) c);
+                    return ResponseEntity.ok().eTag(etag).cacheControl(CATEGORY_CACHE).body((Object) c);
                 })
                 .orElseGet(() -> {
                     logger.warn("Category not found for id {}", id);
@@ -135,6 +153,12 @@ public class CategoryController {
                 "status", "success",
                 "message", "Category deleted successfully"
             ));
+        } catch (IllegalStateException e) {
+            logger.warn("Category deletion refused for id {}: {}", id, e.getMessage());
+            return ResponseEntity.status(409).body(Map.of(
+                "errorCode", 409,
+                "errorMessage", e.getMessage()
+            ));
         } catch (Exception e) {
             logger.error("Error deleting category with id {}: {}", id, e.getMessage());
             return ResponseEntity.status(500).body(Map.of(
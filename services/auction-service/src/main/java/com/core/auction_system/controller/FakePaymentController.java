@@ -0,0 +1,185 @@
+package com.core.auction_system.controller;
+
+import com.core.auction_system.service.FakePaymentService;
+import com.core.auction_system.service.FakePaymentService.Outcome;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * payment-service's wallet API served from this process (profile {@code fake-payment}); point
+ * {@code payment.service.url} at {@code /fake-payment} to use it. Responses are held back
+ * without blocking a request thread, so injected latency costs the caller what a slow
+ * payment-service would and nothing more.
+ */
+@RestController
+@Profile("fake-payment")
+@RequestMapping("/fake-payment")
+public class FakePaymentController {
+
+    private static final int MAX_BATCH_ITEMS = 1000;
+
+    @Autowired
+    private FakePaymentService fake;
+
+    @PostMapping("/wallet/freeze")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> freeze(
+            @RequestBody Map<String, Object> body,
+            @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        return respond(fake.nextDelayMs("freeze"),
+                () -> invalid(body) ? badRequest() : fake.freeze(userId(body), amount(body), key));
+    }
+
+    @PostMapping("/wallet/deduct")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> deduct(
+            @RequestBody Map<String, Object> body,
+            @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        return respond(fake.nextDelayMs("deduct"), () -> applyDeduct(body, key));
+    }
+
+    @PostMapping("/wallet/unfreeze")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> unfreeze(
+            @RequestBody Map<String, Object> body,
+            @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        return respond(fake.nextDelayMs("unfreeze"), () -> applyUnfreeze(body, key));
+    }
+
+    @PostMapping("/wallet/deposit")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> deposit(
+            @RequestBody Map<String, Object> body,
+            @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        return respond(fake.nextDelayMs("deposit"), () -> applyDeposit(body, key));
+    }
+
+    // one round trip, so one delay for the whole batch
+    @PostMapping("/wallet/unfreeze/batch")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> unfreezeBatch(
+            @RequestBody Map<String, Object> body) {
+        return respond(fake.nextDelayMs("unfreeze"), () -> {
+            if (!(body.get("items") instanceof List<?> items) || items.isEmpty()) {
+                return new Outcome(400, Map.of("error", "items required"));
+            }
+            if (items.size() > MAX_BATCH_ITEMS) {
+                return new Outcome(400, Map.of("error", "at most " + MAX_BATCH_ITEMS + " items"));
+            }
+            List<Map<String, Object>> results = new ArrayList<>(items.size());
+            boolean ok = true;
+            for (Object o : items) {
+                Map<String, Object> item = asMap(o);
+                Outcome r = applyUnfreeze(item, (String) item.get("idempotencyKey"));
+                ok &= r.ok();
+                results.add(flatten(r));
+            }
+            return new Outcome(200, Map.of("ok", ok, "results", results));
+        });
+    }
+
+    @PostMapping("/wallet/settle")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> settle(@RequestBody Map<String, Object> body) {
+        long delay = fake.nextDelayMs("deduct") + (body.get("deposit") != null ? fake.nextDelayMs("deposit") : 0);
+        return respond(delay, () -> {
+            if (body.get("deduct") == null) {
+                return new Outcome(400, Map.of("error", "deduct required"));
+            }
+            Map<String, Object> d = asMap(body.get("deduct"));
+            Outcome deduct = applyDeduct(d, (String) d.get("idempotencyKey"));
+            Outcome deposit = null;
+            if (deduct.ok() && body.get("deposit") != null) {
+                Map<String, Object> dep = asMap(body.get("deposit"));
+                deposit = applyDeposit(dep, (String) dep.get("idempotencyKey"));
+            }
+            Map<String, Object> resp = new LinkedHashMap<>();
+            resp.put("ok", deduct.ok() && (deposit == null || deposit.ok()));
+            resp.put("deduct", flatten(deduct));
+            resp.put("deposit", deposit == null ? null : flatten(deposit));
+            return new Outcome(200, resp);
+        });
+    }
+
+    @GetMapping("/wallet/{userId}")
+    public ResponseEntity<Map<String, Object>> wallet(@PathVariable String userId) {
+        return ResponseEntity.ok(fake.balance(userId));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(fake.stats());
+    }
+
+    @PostMapping("/reset")
+    public ResponseEntity<Void> reset() {
+        fake.reset();
+        return ResponseEntity.noContent().build();
+    }
+
+    private Outcome applyDeduct(Map<String, Object> body, String key) {
+        return invalid(body) ? badRequest() : fake.deduct(userId(body), amount(body), key);
+    }
+
+    private Outcome applyUnfreeze(Map<String, Object> body, String key) {
+        return invalid(body) ? badRequest() : fake.unfreeze(userId(body), amount(body), key);
+    }
+
+    private Outcome applyDeposit(Map<String, Object> body, String key) {
+        return invalid(body) ? badRequest() : fake.deposit(userId(body), amount(body), key);
+    }
+
+    private static CompletableFuture<ResponseEntity<Map<String, Object>>> respond(long delayMs,
+                                                                                 Supplier<Outcome> op) {
+        return CompletableFuture
+                .supplyAsync(op, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS))
+                .thenApply(r -> ResponseEntity.status(r.status()).body(r.body()));
+    }
+
+    // batch and settle items carry their status next to the body, like payment-service's
+    private static Map<String, Object> flatten(Outcome r) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("status", r.status());
+        m.putAll(r.body());
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object o) {
+        return o instanceof Map<?, ?> m ? (Map<String, Object>) m : Map.of();
+    }
+
+    private static boolean invalid(Map<String, Object> body) {
+        if (body.get("userId") == null) {
+            return true;
+        }
+        try {
+            double amount = amount(body);
+            return !Double.isFinite(amount) || amount < 0;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static Outcome badRequest() {
+        return new Outcome(400, Map.of("error", "userId/amount required"));
+    }
+
+    private static String userId(Map<String, Object> body) {
+        return body.get("userId").toString();
+    }
+
+    private static double amount(Map<String, Object> body) {
+        Object amount = body.get("amount");
+        return amount instanceof Number n ? n.doubleValue() : Double.parseDouble(amount.toString());
+    }
+}
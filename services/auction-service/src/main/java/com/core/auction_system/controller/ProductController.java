@@ -1,14 +1,34 @@
     // ...existing code...
 package com.core.auction_system.controller;
 
+import com.core.auction_system.dto.MultiGetResultDTO;
+import com.core.auction_system.dto.ProductBrowseResultDTO;
 import com.core.auction_system.dto.ProductCreateDTO;
+import com.core.auction_system.dto.ProductSearchResultDTO;
+import com.core.auction_system.model.Category;
 import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProductSummary;
+import com.core.auction_system.service.CategoryService;
+import com.core.auction_system.service.EndingSoonIndex;
+import com.core.auction_system.service.ExportService;
+import com.core.auction_system.service.LiveAuctionBroadcaster;
+import com.core.auction_system.service.ProductChangeFeed;
+import com.core.auction_system.service.ProductFacetIndex;
 import com.core.auction_system.service.ProductService;
+import com.core.auction_system.service.ProductSuggestIndex;
+import com.core.auction_system.service.ProductVersionCache;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,25 +36,50 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/products/v1")
 public class ProductController {
 
     private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    // deepest result a search can page to
+    private static final int MAX_SEARCH_WINDOW = 10000;
+    private static final int MAX_CHANGES_PAGE = 5000;
+    private static final int MAX_MULTI_GET = 100;
+    // bids change a product at any time, so clients revalidate on every use
+    private static final CacheControl PRODUCT_CACHE = CacheControl.noCache().cachePublic();
 
     @Autowired
     private ProductService productService;
+    @Autowired
+    private LiveAuctionBroadcaster liveAuctionBroadcaster;
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    @Autowired
+    private EndingSoonIndex endingSoonIndex;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private ProductVersionCache productVersionCache;
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
 
     /**
      * GET /api/products/v1/users/{userId}
      * Returns all products posted by a particular seller (userId)
      */
     @GetMapping("/users/{userId}")
-    public ResponseEntity<List<Product>> getProductsBySeller(@PathVariable Integer userId) {
-        List<Product> products = productService.getProductsBySeller(userId);
+    public ResponseEntity<List<ProductSummary>> getProductsBySeller(@PathVariable Integer userId) {
+        List<ProductSummary> products = productService.getProductsBySeller(userId);
         return ResponseEntity.ok(products);
     }
 
@@ -42,23 +87,228 @@ public class ProductController {
      * GET /api/products/v1
      */
     @GetMapping
-    public List<Product> getAllProducts() {
+    public List<ProductSummary> getAllProducts() {
         log.debug("GET /api/products/v1 called");
-        List<Product> products = productService.getAllProducts();
+        List<ProductSummary> products = productService.getAllProducts();
         log.info("Fetched {} products", products.size());
         return products;
     }
 
+    /**
+     * GET /api/products/v1?ids=3,1,2
+     * Several products in one request, in the order asked for, with null for ids that don't exist.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getProductsByIds(@RequestParam List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_MULTI_GET || ids.contains(null)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "ids must list between 1 and " + MAX_MULTI_GET + " product ids"
+            ));
+        }
+        log.debug("GET /api/products/v1?ids= called for {} ids", ids.size());
+        return ResponseEntity.ok(MultiGetResultDTO.of(ids, productService.getProductsByIds(ids)));
+    }
+
+    /**
+     * GET /api/products/v1/export
+     * Same content as GET /api/products/v1, streamed from the database as it is read.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        log.debug("GET /api/products/v1/export called");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> log.info("Exported {} products", exportService.writeProducts(out)));
+    }
+
+    /**
+     * GET /api/products/v1/search?q=&page=0&size=20&activeOnly=false
+     * Full-text search over name, category and description, best match first. Every word of q
+     * must match; the last one also matches as a prefix.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(@RequestParam(required = false) String q,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size,
+                                            @RequestParam(defaultValue = "false") boolean activeOnly) {
+        log.debug("GET /api/products/v1/search called with q='{}' page={} size={}", q, page, size);
+        if (q == null || q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "q is required"
+            ));
+        }
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE || (long) (page + 1) * size > MAX_SEARCH_WINDOW) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "size must be between 1 and " + MAX_SEARCH_PAGE_SIZE
+                            + " and (page + 1) * size at most " + MAX_SEARCH_WINDOW
+            ));
+        }
+        ProductSearchResultDTO result = productService.searchProducts(q, activeOnly, page, size);
+        if (result == null) {
+            log.warn("Search requested while the search index is unavailable");
+            return ResponseEntity.status(503).body(Map.of(
+                    "errorCode", 503,
+                    "errorMessage", "Search is not available yet, retry later"
+            ));
+        }
+        log.info("Search '{}' matched {} products", q, result.getTotal());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * GET /api/products/v1/suggest?q=&limit=8
+     * Autocomplete: categories and product names of open auctions that start with q, most bid on
+     * first.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam(required = false) String q,
+                                     @RequestParam(defaultValue = "8") int limit) {
+        if (q == null || q.isBlank() || limit < 1 || limit > ProductSuggestIndex.MAX_SUGGESTIONS) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "q is required and limit must be between 1 and "
+                            + ProductSuggestIndex.MAX_SUGGESTIONS
+            ));
+        }
+        if (!productSuggestIndex.isReady()) {
+            return ResponseEntity.status(503).body(Map.of(
+                    "errorCode", 503,
+                    "errorMessage", "Suggestions are not available yet, retry later"
+            ));
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("query", q);
+        response.put("suggestions", productSuggestIndex.suggest(q, limit));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /api/products/v1/ending-soon?within=24h&limit=20
+     * Open auctions ending within the given time (30m, 6h, 2d or ISO-8601), soonest first.
+     */
+    @GetMapping("/ending-soon")
+    public ResponseEntity<?> endingSoon(@RequestParam(defaultValue = "24h") String within,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        Duration window;
+        try {
+            window = DurationStyle.detectAndParse(within);
+        } catch (IllegalArgumentException e) {
+            window = null;
+        }
+        if (window == null || window.isNegative() || window.isZero() || limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "within must be a positive duration such as 6h and limit between 1 and "
+                            + MAX_SEARCH_PAGE_SIZE
+            ));
+        }
+        if (!endingSoonIndex.isReady()) {
+            return ResponseEntity.status(503).body(Map.of(
+                    "errorCode", 503,
+                    "errorMessage", "The ending-soon feed is not available yet, retry later"
+            ));
+        }
+        // the index picks the auctions, their listing rows come from one primary-key read
+        List<Integer> ids = endingSoonIndex.endingWithin(window, limit).stream().map(Product::getId).toList();
+        return ResponseEntity.ok(productService.getSummaries(ids));
+    }
+
+    /**
+     * GET /api/products/v1/changes?since=0&limit=500
+     * Products, bids and deleted products changed after since, for mirrors that sync incrementally:
+     * start at 0, then call again with each response's nextSince.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> changes(@RequestParam(defaultValue = "0") String since,
+                                     @RequestParam(defaultValue = "500") int limit) {
+        ProductChangeFeed.Cursor cursor = ProductChangeFeed.Cursor.parse(since);
+        if (cursor == null || limit < 1 || limit > MAX_CHANGES_PAGE) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "since must be a nextSince cursor and limit between 1 and " + MAX_CHANGES_PAGE
+            ));
+        }
+        return ResponseEntity.ok(productChangeFeed.changesSince(cursor, limit));
+    }
+
+    /**
+     * GET /api/products/v1/browse?category=&price=&ending=&status=&sort=newest&page=0&size=20
+     * Filtered listing with facet counts. category is a category id or name, price is a bucket such as 100-250 or 5000+, ending one of
+     * 1h, 24h, 7d, status active or closed; sort is newest, ending, price_asc or price_desc.
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<?> browseProducts(@RequestParam(required = false) String category,
+                                            @RequestParam(required = false) String price,
+                                            @RequestParam(required = false) String ending,
+                                            @RequestParam(required = false) String status,
+                                            @RequestParam(defaultValue = "newest") String sort,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        log.debug("GET /api/products/v1/browse called with category='{}' price={} ending={} status={} sort={}",
+                category, price, ending, status, sort);
+        if ((price != null && !ProductFacetIndex.isPriceBucket(price))
+                || (ending != null && !ProductFacetIndex.isEndingWindow(ending))
+                || (status != null && !ProductFacetIndex.ACTIVE.equals(status) && !ProductFacetIndex.CLOSED.equals(status))
+                || !ProductFacetIndex.SORTS.contains(sort)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "Unknown price bucket, ending window, status or sort"
+            ));
+        }
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE || (long) (page + 1) * size > MAX_SEARCH_WINDOW) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "errorCode", 400,
+                    "errorMessage", "size must be between 1 and " + MAX_SEARCH_PAGE_SIZE
+                            + " and (page + 1) * size at most " + MAX_SEARCH_WINDOW
+            ));
+        }
+        Integer categoryId = null;
+        if (category != null && !category.isBlank()) {
+            Optional<Category> resolved = categoryService.resolve(category);
+            if (resolved.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "errorCode", 400,
+                        "errorMessage", "Unknown category"
+                ));
+            }
+            categoryId = resolved.get().getId();
+        }
+        ProductBrowseResultDTO result = productService.browseProducts(
+                new ProductFacetIndex.Query(categoryId, price, ending, status), sort, page, size);
+        if (result == null) {
+            log.warn("Browse requested while the browse index is unavailable");
+            return ResponseEntity.status(503).body(Map.of(
+                    "errorCode", 503,
+                    "errorMessage", "Browse is not available yet, retry later"
+            ));
+        }
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * GET /api/products/v1/{id}
+     * ETag is the product's version. A matching If-None-Match gets a 304 straight from the version
+     * cache when it holds the product, without reading the database.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable Integer id) {
+    public ResponseEntity<?> getProductById(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("GET /api/products/v1/{} called", id);
+        Long cached = productVersionCache.version(id);
+        if (cached != null && ETags.matches(ifNoneMatch, ETags.of(id, cached))) {
+            return ETags.notModified(ETags.of(id, cached), PRODUCT_CACHE);
+        }
+        long stamp = productVersionCache.stamp();
         return productService.getProductById(id)
                 .map(p -> {
                     log.info("Product found with id {}", id);
-                    return ResponseEntity.ok((Object) p);
+                    productVersionCache.put(id, p.getVersion(), stamp);
+                    // a matching If-None-Match still gets a 304 here, from Spring
+                    return ResponseEntity.ok().eTag(ETags.of(id, p.getVersion())).cacheControl(PRODUCT_CACHE)
+                            .body((Object) p);
                 })
                 .orElseGet(() -> {
                     log.warn("Product not found for id {}", id);
@@ -69,20 +319,47 @@ public class ProductController {
                 });
     }
 
+    /**
+     * GET /api/products/v1/{id}/stream
+     * Server-sent events with the live auction state: the current snapshot on connect, then an
+     * "auction" event after every accepted bid and when the auction closes.
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamAuction(@PathVariable Integer id) {
+        Product product = productService.getProductById(id).orElse(null);
+        if (product == null) {
+            log.warn("Stream requested for missing product id {}", id);
+            return ResponseEntity.status(404).contentType(MediaType.APPLICATION_JSON).body(Map.of(
+                "errorCode", 404,
+                "errorMessage", "Product not found"
+            ));
+        }
+        SseEmitter emitter = liveAuctionBroadcaster.subscribe(product);
+        if (emitter == null) {
+            log.warn("Stream for product id {} refused: subscriber limit reached", id);
+            return ResponseEntity.status(503).contentType(MediaType.APPLICATION_JSON).body(Map.of(
+                "errorCode", 503,
+                "errorMessage", "Too many live subscribers, retry later"
+            ));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * GET /api/products/v1/category/{category}
+     * category is a category id or name.
      */
     @GetMapping("/category/{category}")
-    public List<Product> getProductsByCategory(@PathVariable String category) {
+    public List<ProductSummary> getProductsByCategory(@PathVariable String category) {
         log.debug("GET /api/products/v1/category/{} called", category);
-        List<Product> products = productService.getProductsByCategory(category);
+        List<ProductSummary> products = productService.getProductsByCategory(category);
         log.info("Found {} products for category '{}'", products.size(), category);
         return products;
     }
 
     /**
      * POST /api/products/v1
-     * Creates a new product. Accepts only: name, description, category, minBid, maxBid, endTime.
+     * Creates a new product. Accepts only: name, description, category (id or name), minBid, maxBid, endTime.
      * Seller ID is extracted from JWT token.
      * isFrozen and isSold are automatically set to false.
      * endTime must be on the hour (e.g., 12:00, 1:00, 2:00, not 12:30).
@@ -0,0 +1,22 @@
+package com.core.auction_system.dto;
+
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Live auction state pushed to stream subscribers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuctionSnapshotDTO {
+    private Integer productId;
+    private Double currentBid;
+    private Long bidCount;
+    private boolean frozen;
+    private boolean sold;
+    private Integer buyerId;
+    private LocalDateTime endTime;
+}
@@ -17,4 +17,5 @@ public class BidResponseDTO {
     private String email;
     private String reservationId;
     private String status;
+    private Long changeSeq;
 }
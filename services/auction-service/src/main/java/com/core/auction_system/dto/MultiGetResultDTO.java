@@ -0,0 +1,31 @@
+package com.core.auction_system.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a multi-get: one entry per requested id, in request order, null where nothing has that
+ * id; the ids that were not found are listed again in missing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResultDTO<T> {
+    private List<T> results;
+    private List<Integer> missing;
+
+    public static <T> MultiGetResultDTO<T> of(List<Integer> ids, List<T> results) {
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (results.get(i) == null) {
+                missing.add(ids.get(i));
+            }
+        }
+        return new MultiGetResultDTO<>(results, new ArrayList<>(missing));
+    }
+}
@@ -0,0 +1,22 @@
+package com.core.auction_system.dto;
+
+import com.core.auction_system.model.ProductSummary;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of filtered products plus, per facet, the number of products each value would give.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBrowseResultDTO {
+    private int total; // matches across all pages
+    private int page;
+    private int size;
+    private List<ProductSummary> results;
+    private Map<String, Map<String, Integer>> facets; // facet -> value -> count
+}
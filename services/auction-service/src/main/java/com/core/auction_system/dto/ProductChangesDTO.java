@@ -0,0 +1,23 @@
+package com.core.auction_system.dto;
+
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProductTombstone;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Products, bids and deleted products changed after a feed cursor, each in its latest state.
+ * Every entry carries its changeSeq; pass nextSince back as since to continue.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+    private String nextSince; // opaque cursor, "<xid>.<seq>"
+    private boolean hasMore; // more changes are ready right away
+    private List<Product> products;
+    private List<BidResponseDTO> bids;
+    private List<ProductTombstone> deleted;
+}
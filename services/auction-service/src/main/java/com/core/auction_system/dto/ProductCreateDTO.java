@@ -15,7 +15,7 @@ import lombok.NoArgsConstructor;
 public class ProductCreateDTO {
     private String name;
     private String description;
-    private String category;
+    private String category;  // Category id or name; an unknown name creates the category
     private Double minBid;
     private Double maxBid;
     private LocalDateTime endTime;  // Must be on the hour (e.g., 12:00, 1:00, 2:00)
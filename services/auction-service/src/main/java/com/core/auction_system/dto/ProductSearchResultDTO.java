@@ -0,0 +1,21 @@
+package com.core.auction_system.dto;
+
+import com.core.auction_system.model.ProductSummary;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of product search results, best match first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private String query;
+    private int total; // matches across all pages
+    private int page;
+    private int size;
+    private List<ProductSummary> results;
+}
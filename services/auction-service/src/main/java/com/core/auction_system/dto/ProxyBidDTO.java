@@ -0,0 +1,16 @@
+package com.core.auction_system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for registering a proxy (maximum) bid. Bidder information is extracted from JWT token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProxyBidDTO {
+    private Integer productId;
+    private Integer maxAmount;
+}
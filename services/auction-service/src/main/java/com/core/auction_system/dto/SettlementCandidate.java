@@ -0,0 +1,8 @@
+package com.core.auction_system.dto;
+
+/**
+ * Bid columns needed to settle an auction, read without hydrating the Bid entity.
+ */
+public record SettlementCandidate(Integer id, Integer amount, Integer bidderId, String email, String reservationId,
+                                  String status) {
+}
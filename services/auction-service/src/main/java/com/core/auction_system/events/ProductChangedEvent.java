@@ -0,0 +1,23 @@
+package com.core.auction_system.events;
+
+import com.core.auction_system.model.Product;
+
+/**
+ * A product was created, edited or closed by this instance ({@code product} is its committed
+ * state), or deleted ({@code product} is null). Published after the change is committed, for
+ * in-memory views of the catalogue to follow.
+ */
+public record ProductChangedEvent(Integer productId, Product product) {
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(product.getId(), product);
+    }
+
+    public static ProductChangedEvent deleted(Integer productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.core.auction_system.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Persisted progress of closing one auction. Payment calls made for a step carry an idempotency
+ * key derived from the product and the step, so replaying a step after a crash is answered by
+ * payment-service from its stored result instead of charging again.
+ */
+@Entity
+@Table(name = "auction_settlements", indexes = @Index(name = "idx_auction_settlements_state", columnList = "state"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuctionSettlement {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private SettlementState state;
+
+    // winning bid, set on DEDUCTED
+    @Column(name = "winner_bid_id")
+    private Integer winnerBidId;
+
+    @Column(name = "buyer_id")
+    private Integer buyerId;
+
+    @Column(name = "buyer_email")
+    private String buyerEmail;
+
+    private Integer amount;
+
+    @Column(name = "reservation_id")
+    private String reservationId;
+
+    // the unused part of a proxy winner's maximum was released, set on NOTIFIED
+    @Column(name = "leftover_released", nullable = false)
+    private Boolean leftoverReleased;
+
+    // last candidate whose deduct failed; CLOSING resumes after it
+    @Column(name = "cursor_amount")
+    private Integer cursorAmount;
+
+    @Column(name = "cursor_bid_id")
+    private Integer cursorBidId;
+
+    // failed attempts at the current step
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    // instance currently advancing this settlement, and until when it holds it
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        AuctionSettlement that = (AuctionSettlement) o;
+        return Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId);
+    }
+}
@@ -1,5 +1,6 @@
 package com.core.auction_system.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -7,23 +8,33 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
 @Entity
-@Table(name = "bids")
+// (product_id, amount DESC) serves highest-bid lookups and settlement's keyset paging; the id-ascending
+// one is what the product_summary trigger reads the first bid at the top amount from
+@Table(name = "bids", indexes = {
+        @Index(name = "idx_bids_product_amount", columnList = "product_id, amount DESC, id DESC"),
+        @Index(name = "idx_bids_product_top", columnList = "product_id, amount DESC, id")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Bid {
+    // Pooled sequence so Hibernate can batch inserts (IDENTITY forces one round trip per row)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bids_seq")
+    @SequenceGenerator(name = "bids_seq", sequenceName = "bids_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false)
@@ -50,10 +61,21 @@ public class Bid {
     @Column(name = "reservation_id")
     private String reservationId;
 
-    // status: PENDING, PAID, FAILED
+    // status: PENDING, PAID, FAILED, RELEASED (lost the auction, reservation released)
     @Column(name = "status")
     private String status;
 
+    // Set by the database on every insert and update, from the same sequence as Product.changeSeq
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
+    // Transaction that took changeSeq, as on Product
+    @JsonIgnore
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    private Long changeXid;
+
     // Lombok will generate constructors, getters, setters
 
     @Override
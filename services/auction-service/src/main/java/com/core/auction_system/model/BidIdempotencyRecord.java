@@ -0,0 +1,53 @@
+package com.core.auction_system.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bid placement made under an Idempotency-Key, kept so client retries can be
+ * answered without re-running validation or the payment reservation.
+ */
+@Entity
+@Table(name = "bid_idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BidIdempotencyRecord {
+    // statusCode of a claim whose request is still running
+    public static final int PENDING = 0;
+
+    // "<bidderId>:<Idempotency-Key>" - keys are scoped per bidder
+    @Id
+    @Column(length = 160)
+    private String id;
+
+    @Column(name = "bidder_id", nullable = false)
+    private Integer bidderId;
+
+    // productId:amount of the original request, to detect a key reused for a different bid
+    @Column(name = "request_fingerprint", nullable = false)
+    private String requestFingerprint;
+
+    // PENDING until the original request has an outcome
+    @Column(name = "status_code", nullable = false)
+    private Integer statusCode;
+
+    // set when the original placement succeeded
+    @Column(name = "bid_id")
+    private Integer bidId;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "error_reason")
+    private String errorReason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
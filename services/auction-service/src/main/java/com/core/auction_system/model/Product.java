@@ -1,17 +1,22 @@
 package com.core.auction_system.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
 @Entity
 @Table(name = "products")
@@ -20,8 +25,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
+    // Pooled sequence so Hibernate can batch inserts (IDENTITY forces one round trip per row)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Integer id;
 
     @Column(nullable = false)
@@ -29,6 +36,10 @@ public class Product {
 
     private String description;
 
+    // categories.id; category below is a copy of that category's name, kept in step by CategoryService
+    @Column(name = "category_id", nullable = false)
+    private Integer categoryId;
+
     @Column(nullable = false)
     private String category;
 
@@ -52,6 +63,22 @@ public class Product {
     @Column(name = "buyer_id")
     private Integer buyerId;
 
+    // Bumped on every write (bids included); also the product's ETag
+    @Version
+    private Long version;
+
+    // Set by the database on every insert and update (V5 migration), never written from here, and
+    // read back after each write; mirrors page through GET /api/products/v1/changes with it
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
+    // Transaction that took changeSeq (V9 migration); orders the change feed, not shown to clients
+    @JsonIgnore
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    private Long changeXid;
+
     // Lombok will generate constructors, getters, setters
 
     @Override
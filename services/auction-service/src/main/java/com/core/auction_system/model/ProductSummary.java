@@ -0,0 +1,80 @@
+package com.core.auction_system.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * A product as the listing endpoints show it: the product's own columns plus its bid count and
+ * highest bidder, so a listing is a read of this one table. Rows are kept in step by database
+ * triggers on products and bids, in the writing transaction (V6 and V8 migrations), including
+ * proxy raises that update a bid row in place; nothing here writes them.
+ */
+@Entity
+@Immutable
+@Table(name = "product_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummary {
+    @Id
+    @Column(name = "product_id")
+    private Integer id;
+
+    private String name;
+    private String description;
+
+    @Column(name = "category_id")
+    private Integer categoryId;
+
+    private String category;
+    private Double minBid;
+    private Double maxBid;
+    private Double currentBid;
+
+    @Column(nullable = false)
+    private Long bidCount;
+
+    private Integer highestBid;
+    private Integer highestBidderId;
+
+    private Boolean frozen;
+    private Boolean sold;
+    private LocalDateTime endTime;
+
+    @Column(name = "seller_id")
+    private Integer sellerId;
+
+    @Column(name = "buyer_id")
+    private Integer buyerId;
+
+    // worked out on every read, so it can't go stale
+    public long getSecondsLeft() {
+        return endTime == null ? 0 : Math.max(0, Duration.between(LocalDateTime.now(), endTime).getSeconds());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProductSummary summary = (ProductSummary) o;
+        return Objects.equals(id, summary.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
@@ -0,0 +1,34 @@
+package com.core.auction_system.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * A deleted product, as served by the change feed. Rows are written by a database trigger when a
+ * product is deleted, never from here.
+ */
+@Entity
+@Immutable
+@Table(name = "product_tombstones")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTombstone {
+    @Id
+    @Column(name = "product_id")
+    private Integer productId;
+
+    @Column(name = "change_seq", nullable = false)
+    private Long changeSeq;
+
+    @JsonIgnore
+    @Column(name = "change_xid", nullable = false)
+    private Long changeXid;
+}
@@ -0,0 +1,74 @@
+package com.core.auction_system.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bidder's standing maximum on an auction. The proxy engine bids on the bidder's behalf, up to
+ * maxAmount, whenever they are outbid. The full maxAmount is reserved in payment-service up front.
+ */
+@Entity
+@Table(name = "proxy_bids", uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "bidder_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProxyBid {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "proxy_bids_seq")
+    @SequenceGenerator(name = "proxy_bids_seq", sequenceName = "proxy_bids_seq", allocationSize = 50)
+    private Integer id;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "bidder_id", nullable = false)
+    private Integer bidderId;
+
+    @Column(name = "email")
+    private String email;
+
+    @Column(name = "max_amount", nullable = false)
+    private Integer maxAmount;
+
+    // Reservation id returned by payment.freeze for maxAmount
+    @Column(name = "reservation_id")
+    private String reservationId;
+
+    @Column(nullable = false)
+    private Boolean active;
+
+    // reservation released by settlement while this proxy had no bid row
+    @Column(nullable = false)
+    private Boolean released;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ProxyBid proxyBid = (ProxyBid) o;
+        return Objects.equals(id, proxyBid.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
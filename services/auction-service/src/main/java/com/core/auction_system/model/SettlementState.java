@@ -0,0 +1,20 @@
+package com.core.auction_system.model;
+
+/**
+ * Steps of closing an auction, in order. Each state means every step before it has completed and
+ * been persisted; a restarted scheduler resumes from the step after the stored state.
+ */
+public enum SettlementState {
+    // auction ended, nothing done yet
+    OPEN,
+    // product frozen; trying to deduct from candidates in descending amount order
+    CLOSING,
+    // winner charged and product marked sold
+    DEDUCTED,
+    // sale proceeds deposited to the seller
+    SELLER_PAID,
+    // winner notification published
+    NOTIFIED,
+    // other reservations released; nothing left to do
+    SETTLED
+}
@@ -0,0 +1,36 @@
+package com.core.auction_system.repository;
+
+import com.core.auction_system.model.AuctionSettlement;
+import com.core.auction_system.model.SettlementState;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface AuctionSettlementRepository extends JpaRepository<AuctionSettlement, Integer> {
+    List<AuctionSettlement> findByStateNot(SettlementState state);
+
+    // [state, count] for every state except the given one
+    @Query("select s.state, count(s) from AuctionSettlement s where s.state <> :state group by s.state")
+    List<Object[]> countByStateNotGrouped(@Param("state") SettlementState state);
+
+    long countByLeaseUntilAfter(LocalDateTime now);
+
+    // Takes the lease if nobody holds it or it expired; returns 1 when this caller got it
+    @Modifying
+    @Transactional
+    @Query("update AuctionSettlement s set s.leaseOwner = :owner, s.leaseUntil = :until "
+            + "where s.productId = :productId and (s.leaseUntil is null or s.leaseUntil < :now "
+            + "or s.leaseOwner = :owner)")
+    int claim(@Param("productId") Integer productId, @Param("owner") String owner,
+              @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("update AuctionSettlement s set s.leaseOwner = null, s.leaseUntil = null "
+            + "where s.productId = :productId and s.leaseOwner = :owner")
+    int release(@Param("productId") Integer productId, @Param("owner") String owner);
+}
@@ -0,0 +1,34 @@
+package com.core.auction_system.repository;
+
+import com.core.auction_system.model.BidIdempotencyRecord;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface BidIdempotencyRepository extends JpaRepository<BidIdempotencyRecord, String> {
+
+    // Claims a key for a request that is about to run; a plain insert, so of two instances racing
+    // for the same key exactly one succeeds and the other gets a primary key violation
+    @Modifying
+    @Transactional
+    @Query(value = "insert into bid_idempotency_keys (id, bidder_id, request_fingerprint, status_code, created_at) "
+            + "values (:id, :bidderId, :fingerprint, " + BidIdempotencyRecord.PENDING + ", :now)", nativeQuery = true)
+    int insertPending(@Param("id") String id, @Param("bidderId") Integer bidderId,
+                      @Param("fingerprint") String fingerprint, @Param("now") LocalDateTime now);
+
+    // Takes over a claim whose request has been running since before staleBefore, i.e. died
+    @Modifying
+    @Transactional
+    @Query("update BidIdempotencyRecord r set r.createdAt = :now where r.id = :id "
+            + "and r.statusCode = " + BidIdempotencyRecord.PENDING + " and r.createdAt < :staleBefore")
+    int takeOverStale(@Param("id") String id, @Param("now") LocalDateTime now,
+                      @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Transactional
+    @Query("delete from BidIdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,10 +1,21 @@
 package com.core.auction_system.repository;
 
+import com.core.auction_system.dto.SettlementCandidate;
 import com.core.auction_system.model.Bid;
 import com.core.auction_system.model.Product;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface BidRepository extends JpaRepository<Bid, Integer> {
     boolean existsByBidderIdAndProduct(Integer bidderId, Product product);
@@ -15,7 +26,58 @@ public interface BidRepository extends JpaRepository<Bid, Integer> {
 
     List<Bid> findByProductId(Integer productId);
 
+    long countByProductId(Integer productId);
+
     Optional<Bid> findByReservationId(String reservationId);
 
     Optional<Bid> findTopByProductOrderByAmountDesc(Product product);
+
+    Optional<Bid> findFirstByProductIdAndBidderId(Integer productId, Integer bidderId);
+
+    // Settlement candidates in descending amount order, keyset-paged over idx_bids_product_amount
+    @Query("select new com.core.auction_system.dto.SettlementCandidate(b.id, b.amount, b.bidderId, b.email, "
+            + "b.reservationId, b.status) from Bid b where b.product.id = :productId order by b.amount desc, b.id desc")
+    List<SettlementCandidate> findTopCandidates(@Param("productId") Integer productId, Pageable page);
+
+    @Query("select new com.core.auction_system.dto.SettlementCandidate(b.id, b.amount, b.bidderId, b.email, "
+            + "b.reservationId, b.status) from Bid b where b.product.id = :productId "
+            + "and (b.amount < :amount or (b.amount = :amount and b.id < :id)) order by b.amount desc, b.id desc")
+    List<SettlementCandidate> findCandidatesAfter(@Param("productId") Integer productId,
+                                                  @Param("amount") Integer amount, @Param("id") Integer id,
+                                                  Pageable page);
+
+    // Export: read through a cursor instead of loading every row; products come along in the same query
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select b from Bid b left join fetch b.product order by b.id")
+    Stream<Bid> streamAllWithProduct();
+
+    // Bid count per product, streamed: [productId, count]
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.product.id, count(b) from Bid b group by b.product.id")
+    Stream<Object[]> streamBidCountsByProduct();
+
+    // Bid count of each of these products that has bids: [productId, count]
+    @Query("select b.product.id, count(b) from Bid b where b.product.id in :productIds group by b.product.id")
+    List<Object[]> countByProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    // Change feed, see ProductRepository.findChangedSince
+    @Query(value = "select * from bids where (change_xid, change_seq) > (:sinceXid, :sinceSeq) "
+            + "and change_xid < :xmin "
+            + "order by change_xid, change_seq limit :limit", nativeQuery = true)
+    List<Bid> findChangedSince(@Param("sinceXid") long sinceXid, @Param("sinceSeq") long sinceSeq,
+                               @Param("xmin") long xmin, @Param("limit") int limit);
+
+    // Marks every still-pending bid on the product except the winner (if any) as released
+    @Modifying
+    @Transactional
+    @Query("update Bid b set b.status = 'RELEASED' where b.product.id = :productId and b.status = 'PENDING' "
+            + "and (:winnerId is null or b.id <> :winnerId)")
+    int releaseOtherBids(@Param("productId") Integer productId, @Param("winnerId") Integer winnerId);
+
+    // bids whose reservation payment-service confirmed released
+    @Modifying
+    @Transactional
+    @Query("update Bid b set b.status = 'RELEASED' where b.id in :ids and b.status = 'PENDING'")
+    int markReleased(@Param("ids") List<Integer> ids);
 }
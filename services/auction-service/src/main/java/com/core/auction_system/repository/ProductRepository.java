@@ -1,15 +1,63 @@
 package com.core.auction_system.repository;
 
 import com.core.auction_system.model.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface ProductRepository extends JpaRepository<Product, Integer> {
-    List<Product> findByCategory(String category);
+    List<Product> findByCategoryId(Integer categoryId);
 
-    // Property is 'sellerId' on Product, use findBySellerId for Spring Data parsing
-    List<Product> findBySellerId(Integer sellerId);
+    boolean existsByCategoryId(Integer categoryId);
+
+    // Keeps the denormalized category name in step with a renamed category; bumps the version so
+    // product ETags change too
+    @Modifying
+    @Transactional
+    @Query("update Product p set p.category = :name, p.version = p.version + 1 where p.categoryId = :categoryId")
+    int renameCategory(@Param("categoryId") Integer categoryId, @Param("name") String name);
 
     List<Product> findByEndTimeBeforeAndFrozenFalse(LocalDateTime now);
+
+    // scheduler backlog: ended auctions nobody has frozen yet
+    long countByEndTimeBeforeAndFrozenFalse(LocalDateTime now);
+
+    Optional<Product> findFirstByEndTimeBeforeAndFrozenFalseOrderByEndTimeAsc(LocalDateTime now);
+
+    // Row-locks a set of products in id order (consistent order avoids deadlocks between writers)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id in :ids order by p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
+
+    // Change feed: rows changed after a (transaction, sequence number) cursor, in that order. Only
+    // rows written by transactions below xmin (currentSnapshotXmin, read once per page) are read:
+    // those have all finished, so a row still uncommitted can never land behind a cursor already
+    // handed out. Passed in rather than read here, since each statement gets its own snapshot.
+    @Query(value = "select * from products where (change_xid, change_seq) > (:sinceXid, :sinceSeq) "
+            + "and change_xid < :xmin "
+            + "order by change_xid, change_seq limit :limit", nativeQuery = true)
+    List<Product> findChangedSince(@Param("sinceXid") long sinceXid, @Param("sinceSeq") long sinceSeq,
+                                   @Param("xmin") long xmin, @Param("limit") int limit);
+
+    // Change feed: the oldest transaction still running; every change below it is final
+    @Query(value = "select pg_snapshot_xmin(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    long currentSnapshotXmin();
+
+    // Export: read through a cursor instead of loading every row
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("select p from Product p order by p.id")
+    Stream<Product> streamAll();
 }
@@ -0,0 +1,11 @@
+package com.core.auction_system.repository;
+
+import com.core.auction_system.model.ProductSummary;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ProductSummaryRepository extends JpaRepository<ProductSummary, Integer> {
+    List<ProductSummary> findBySellerId(Integer sellerId);
+
+    List<ProductSummary> findByCategoryId(Integer categoryId);
+}
@@ -0,0 +1,16 @@
+package com.core.auction_system.repository;
+
+import com.core.auction_system.model.ProductTombstone;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Integer> {
+    // Change feed, see ProductRepository.findChangedSince
+    @Query(value = "select * from product_tombstones where (change_xid, change_seq) > (:sinceXid, :sinceSeq) "
+            + "and change_xid < :xmin "
+            + "order by change_xid, change_seq limit :limit", nativeQuery = true)
+    List<ProductTombstone> findChangedSince(@Param("sinceXid") long sinceXid, @Param("sinceSeq") long sinceSeq,
+                                            @Param("xmin") long xmin, @Param("limit") int limit);
+}
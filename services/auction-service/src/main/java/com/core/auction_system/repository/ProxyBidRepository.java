@@ -0,0 +1,33 @@
+package com.core.auction_system.repository;
+
+import com.core.auction_system.model.ProxyBid;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ProxyBidRepository extends JpaRepository<ProxyBid, Integer> {
+    // Row-locks an auction's active proxies in id order until the transaction ends, so one resolution
+    // at a time runs on the auction across instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from ProxyBid p where p.productId = :productId and p.active = true order by p.id")
+    List<ProxyBid> findActiveByProductIdForUpdate(@Param("productId") Integer productId);
+
+    List<ProxyBid> findByProductId(Integer productId);
+
+    boolean existsByProductIdAndBidderId(Integer productId, Integer bidderId);
+
+    @Modifying
+    @Transactional
+    @Query("update ProxyBid p set p.active = false where p.productId = :productId and p.active = true")
+    int deactivateByProductId(@Param("productId") Integer productId);
+
+    @Modifying
+    @Transactional
+    @Query("update ProxyBid p set p.released = true where p.id in :ids")
+    int markReleased(@Param("ids") List<Integer> ids);
+}
@@ -37,6 +37,9 @@ public class SecurityConfig {
                 // allow CORS preflight
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
 
+                // full-table exports are not for anonymous callers
+                .requestMatchers(HttpMethod.GET, "/api/bids/v1/export", "/api/products/v1/export").authenticated()
+
                 // PUBLIC endpoints
                 .requestMatchers(HttpMethod.GET, "/api/products/v1/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/categories/v1/**").permitAll()
@@ -44,6 +47,13 @@ public class SecurityConfig {
 
                 // allow placing bids without role restrictions
                 .requestMatchers(HttpMethod.POST, "/api/bids/v1").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/bids/v1/proxy").permitAll()
+
+                // health probes and Prometheus scraping
+                .requestMatchers(HttpMethod.GET, "/actuator/health/**", "/actuator/prometheus").permitAll()
+
+                // in-process fake payment-service (only mapped with profile fake-payment)
+                .requestMatchers("/fake-payment/**").permitAll()
 
                 // Swagger/OpenAPI
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
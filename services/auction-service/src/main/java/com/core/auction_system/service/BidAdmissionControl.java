@@ -0,0 +1,236 @@
+package com.core.auction_system.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Admission control for the bid placement path.
+ * <p>
+ * Three gates, cheapest first: a token bucket per bidder (one client hammering retry), a token
+ * bucket per product (a sniping stampede on one auction), and an adaptive concurrency limit over
+ * all bid requests. The limit follows the gradient between long-term and recent request latency:
+ * when recent latency rises above the baseline the limit shrinks, when it is back at baseline
+ * the limit grows again. Rejected requests are answered immediately with a Retry-After hint
+ * instead of queueing on a Tomcat thread behind DB and payment calls.
+ */
+@Component
+public class BidAdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(BidAdmissionControl.class);
+
+    private final Map<Integer, TokenBucket> bidderBuckets = new ConcurrentHashMap<>();
+    private final Map<Integer, TokenBucket> productBuckets = new ConcurrentHashMap<>();
+    private final GradientLimiter limiter;
+
+    @Value("${bid.admission.enabled:true}")
+    private boolean enabled;
+    @Value("${bid.admission.bidder.rate-per-second:2}")
+    private double bidderRate;
+    @Value("${bid.admission.bidder.burst:5}")
+    private double bidderBurst;
+    @Value("${bid.admission.product.rate-per-second:50}")
+    private double productRate;
+    @Value("${bid.admission.product.burst:100}")
+    private double productBurst;
+
+    public BidAdmissionControl(@Value("${bid.admission.limit.initial:20}") int initialLimit,
+                               @Value("${bid.admission.limit.min:4}") int minLimit,
+                               @Value("${bid.admission.limit.max:200}") int maxLimit) {
+        this.limiter = new GradientLimiter(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Try to admit a bid request. On admission the caller must {@link Permit#release()} the
+     * returned permit when the request finishes.
+     */
+    public Decision tryAcquire(Integer bidderId, Integer productId) {
+        if (!enabled) {
+            return Decision.admitted(Permit.NOOP);
+        }
+        if (bidderId != null) {
+            long wait = bidderBuckets.computeIfAbsent(bidderId, id -> new TokenBucket(bidderRate, bidderBurst))
+                    .tryConsume();
+            if (wait > 0) {
+                return Decision.rejected("bidder_rate_limited", wait);
+            }
+        }
+        if (productId != null) {
+            long wait = productBuckets.computeIfAbsent(productId, id -> new TokenBucket(productRate, productBurst))
+                    .tryConsume();
+            if (wait > 0) {
+                return Decision.rejected("product_rate_limited", wait);
+            }
+        }
+        if (!limiter.tryAcquire()) {
+            log.debug("Bid rejected by concurrency limit {} (in flight {})", limiter.getLimit(),
+                    limiter.getInFlight());
+            return Decision.rejected("concurrency_limited", TimeUnit.SECONDS.toNanos(1));
+        }
+        return Decision.admitted(new Permit(limiter, System.nanoTime()));
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    public int getInFlight() {
+        return limiter.getInFlight();
+    }
+
+    // full buckets carry no state worth keeping; drop them so idle bidders/products don't pile up
+    @Scheduled(fixedDelayString = "${bid.admission.cleanup-ms:60000}")
+    public void evictIdleBuckets() {
+        bidderBuckets.values().removeIf(TokenBucket::isFull);
+        productBuckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    /**
+     * Outcome of {@link #tryAcquire}. When rejected, {@code retryAfterSeconds} is at least 1.
+     */
+    public record Decision(boolean admitted, Permit permit, String reason, long retryAfterSeconds) {
+        static Decision admitted(Permit permit) {
+            return new Decision(true, permit, null, 0);
+        }
+
+        static Decision rejected(String reason, long waitNanos) {
+            long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            return new Decision(false, null, reason, seconds);
+        }
+    }
+
+    /**
+     * Concurrency slot held by an admitted request; releasing it feeds the observed latency back
+     * into the limiter. Safe to release more than once.
+     */
+    public static class Permit {
+        static final Permit NOOP = new Permit(null, 0);
+
+        private final GradientLimiter limiter;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(GradientLimiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        public void release() {
+            if (limiter != null && released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Gradient-style adaptive concurrency limit. Keeps a slow moving average of latency as the
+     * baseline and a fast one for current conditions; their ratio (capped to [0.5, 1]) scales the
+     * limit down under queueing, and a sqrt(limit) headroom lets it probe upwards when healthy.
+     */
+    static class GradientLimiter {
+        private static final double TOLERANCE = 1.5;
+        private static final double SMOOTHING = 0.2;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private double limit;
+        private int inFlight;
+        private double longRtt;
+        private double shortRtt;
+
+        GradientLimiter(int initialLimit, int minLimit, int maxLimit) {
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+
+        synchronized void release(long rttNanos) {
+            boolean appLimited = inFlight < limit / 2;
+            inFlight--;
+            if (rttNanos <= 0) {
+                return;
+            }
+            if (longRtt == 0) {
+                longRtt = rttNanos;
+                shortRtt = rttNanos;
+                return;
+            }
+            shortRtt = shortRtt * 0.9 + rttNanos * 0.1;
+            longRtt = longRtt * 0.99 + rttNanos * 0.01;
+            // let the baseline recover quickly after a sustained latency drop
+            if (longRtt > shortRtt * 2) {
+                longRtt *= 0.95;
+            }
+            if (appLimited) {
+                // not enough load to tell whether a higher limit would hurt
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        }
+
+        synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        synchronized int getInFlight() {
+            return inFlight;
+        }
+    }
+
+    /**
+     * Classic token bucket refilled lazily from the monotonic clock.
+     */
+    static class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double ratePerSecond, double capacity) {
+            this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Take one token. Returns 0 on success, otherwise the nanoseconds until a token is due.
+         */
+        synchronized long tryConsume() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / ratePerNano);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.dto.BidDTO;
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.BidIdempotencyRecord;
+import com.core.auction_system.repository.BidIdempotencyRepository;
+import com.core.auction_system.repository.BidRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Replays bid placement outcomes for repeated Idempotency-Key values.
+ * <p>
+ * Recent outcomes live in a bounded in-memory LRU so a client retry is a map lookup; the
+ * {@code bid_idempotency_keys} table backs it so retries that land on another instance, or after
+ * the entry was evicted, still never reach payment-service a second time. Concurrent requests
+ * with the same key wait for the first one instead of racing it: the key's row is inserted as a
+ * pending claim before the bid is placed, so on any instance only the request that wins that
+ * insert runs, and the others wait for the result it stores.
+ */
+@Service
+public class BidIdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(BidIdempotencyService.class);
+
+    private static final Outcome IN_PROGRESS = new Outcome(null, false, false, true);
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedOutcome> cache;
+
+    @Autowired
+    private BidIdempotencyRepository idempotencyRepository;
+    @Autowired
+    private BidRepository bidRepository;
+
+    @Value("${bid.idempotency.ttl-hours:24}")
+    private long ttlHours;
+    // how long a request waits for another instance holding the same key
+    @Value("${bid.idempotency.wait-ms:10000}")
+    private long waitMs;
+    // a claim this old belongs to a request that died; must exceed the longest placement
+    @Value("${bid.idempotency.pending-timeout-ms:60000}")
+    private long pendingTimeoutMs;
+
+    public BidIdempotencyService(@Value("${bid.idempotency.cache-size:10000}") int cacheSize) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedOutcome> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Run {@code placement} at most once per (bidder, key). Later calls with the same key get the
+     * original result back with {@link Outcome#replayed()} set; a key reused for a different
+     * product or amount is reported as a conflict and nothing is executed. A call whose key is
+     * still being worked on by another instance for longer than {@code bid.idempotency.wait-ms}
+     * is reported as in progress.
+     */
+    public Outcome execute(String key, Integer bidderId, BidDTO bidDto,
+                           Supplier<BidService.BidPlacementResult> placement) {
+        String id = bidderId + ":" + key;
+        String fingerprint = bidDto.getProductId() + ":" + bidDto.getAmount();
+
+        CachedOutcome cached = cache.get(id);
+        if (cached != null) {
+            log.debug("Idempotency cache hit for key {}", id);
+            return replay(cached.fingerprint, fingerprint, cached.result);
+        }
+
+        CompletableFuture<CachedOutcome> mine = new CompletableFuture<>();
+        InFlight claim = new InFlight(mine);
+        InFlight running = inFlight.putIfAbsent(id, claim);
+        if (running != null) {
+            // same key already being processed here (client retried before the first response)
+            log.debug("Idempotency key {} in flight, waiting for original request", id);
+            CachedOutcome original = running.future.join();
+            return original == null ? IN_PROGRESS : replay(original.fingerprint, fingerprint, original.result);
+        }
+
+        try {
+            Outcome previous = claimOrWait(id, bidderId, fingerprint);
+            if (previous != null) {
+                mine.complete(previous.conflict() || previous.inProgress() ? null
+                        : new CachedOutcome(fingerprint, previous.result()));
+                return previous;
+            }
+
+            BidService.BidPlacementResult result;
+            try {
+                result = placement.get();
+            } catch (RuntimeException ex) {
+                release(id);
+                throw ex;
+            }
+            if (isReplayable(result)) {
+                remember(id, bidderId, fingerprint, result);
+            } else {
+                release(id);
+            }
+            mine.complete(new CachedOutcome(fingerprint, result));
+            return new Outcome(result, false, false, false);
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, claim);
+        }
+    }
+
+    /**
+     * Claims the key by inserting its row, so that across instances only one request runs the
+     * placement. Returns null once this request owns the key; otherwise the outcome to answer
+     * with, after waiting for the request that owns it to store its result.
+     */
+    private Outcome claimOrWait(String id, Integer bidderId, String fingerprint) {
+        long deadline = System.currentTimeMillis() + waitMs;
+        long pause = 20;
+        boolean free = true;
+        while (true) {
+            if (free && tryInsert(id, bidderId, fingerprint)) {
+                return null;
+            }
+            Optional<BidIdempotencyRecord> stored = idempotencyRepository.findById(id);
+            // gone again if the attempt holding it failed and gave it up
+            free = stored.isEmpty();
+            if (stored.isPresent()) {
+                BidIdempotencyRecord rec = stored.get();
+                if (rec.getStatusCode() != BidIdempotencyRecord.PENDING) {
+                    BidService.BidPlacementResult result = fromRecord(rec);
+                    if (result != null) {
+                        cache.put(id, new CachedOutcome(rec.getRequestFingerprint(), result));
+                        return replay(rec.getRequestFingerprint(), fingerprint, result);
+                    }
+                    // the stored bid is gone, so there is nothing to replay: run it again
+                    idempotencyRepository.deleteById(id);
+                    free = true;
+                    continue;
+                }
+                if (!rec.getRequestFingerprint().equals(fingerprint)) {
+                    return new Outcome(null, true, true, false);
+                }
+                LocalDateTime now = LocalDateTime.now();
+                if (idempotencyRepository.takeOverStale(id, now, now.minus(Duration.ofMillis(pendingTimeoutMs))) == 1) {
+                    log.warn("Idempotency key {} was pending for over {} ms, taking it over", id, pendingTimeoutMs);
+                    return null;
+                }
+            }
+            // still running elsewhere
+            if (System.currentTimeMillis() >= deadline) {
+                log.info("Idempotency key {} still in progress after {} ms", id, waitMs);
+                return IN_PROGRESS;
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return IN_PROGRESS;
+            }
+            pause = Math.min(pause * 2, 200);
+        }
+    }
+
+    private boolean tryInsert(String id, Integer bidderId, String fingerprint) {
+        try {
+            return idempotencyRepository.insertPending(id, bidderId, fingerprint, LocalDateTime.now()) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    // gives the key up so a retry runs the placement again
+    private void release(String id) {
+        try {
+            idempotencyRepository.deleteById(id);
+        } catch (Exception e) {
+            // the claim then blocks retries until bid.idempotency.pending-timeout-ms passes
+            log.warn("Failed to release idempotency key {}: {}", id, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bid.idempotency.cleanup-ms:3600000}")
+    public void purgeExpired() {
+        int removed = idempotencyRepository.deleteOlderThan(LocalDateTime.now().minusHours(ttlHours));
+        if (removed > 0) {
+            log.info("Purged {} expired bid idempotency keys", removed);
+        }
+    }
+
+    // 5xx and throttling responses say nothing about the bid itself, so a retry should run again
+    private boolean isReplayable(BidService.BidPlacementResult result) {
+        return result.getStatusCode() < 500 && result.getStatusCode() != 429;
+    }
+
+    private void remember(String id, Integer bidderId, String fingerprint, BidService.BidPlacementResult result) {
+        cache.put(id, new CachedOutcome(fingerprint, result));
+        BidIdempotencyRecord rec = new BidIdempotencyRecord();
+        rec.setId(id);
+        rec.setBidderId(bidderId);
+        rec.setRequestFingerprint(fingerprint);
+        rec.setStatusCode(result.getStatusCode());
+        rec.setBidId(result.isSuccess() ? result.getBid().getId() : null);
+        rec.setErrorMessage(result.getErrorMessage());
+        rec.setErrorReason(result.getErrorReason());
+        rec.setCreatedAt(LocalDateTime.now());
+        try {
+            // replaces the pending claim
+            idempotencyRepository.save(rec);
+        } catch (Exception e) {
+            // the in-memory entry still covers retries to this instance; others wait out the claim
+            log.warn("Failed to persist idempotency key {}: {}", id, e.getMessage());
+        }
+    }
+
+    private BidService.BidPlacementResult fromRecord(BidIdempotencyRecord rec) {
+        if (rec.getBidId() != null) {
+            Optional<Bid> bid = bidRepository.findById(rec.getBidId());
+            if (bid.isEmpty()) {
+                log.warn("Idempotency key {} references missing bid {}", rec.getId(), rec.getBidId());
+                return null;
+            }
+            return BidService.BidPlacementResult.success(bid.get());
+        }
+        return BidService.BidPlacementResult.error(rec.getStatusCode(), rec.getErrorMessage(), rec.getErrorReason());
+    }
+
+    private Outcome replay(String originalFingerprint, String fingerprint, BidService.BidPlacementResult result) {
+        if (!originalFingerprint.equals(fingerprint)) {
+            return new Outcome(null, true, true, false);
+        }
+        return new Outcome(result, true, false, false);
+    }
+
+    /**
+     * Result of an idempotent placement. {@code conflict} means the key was already used for a
+     * different bid, {@code inProgress} that the request holding the key has not finished yet;
+     * {@code result} is null for both.
+     */
+    public record Outcome(BidService.BidPlacementResult result, boolean replayed, boolean conflict,
+                          boolean inProgress) {
+    }
+
+    // completes with null when the original request has no result to share yet
+    private record InFlight(CompletableFuture<CachedOutcome> future) {
+    }
+
+    private record CachedOutcome(String fingerprint, BidService.BidPlacementResult result) {
+    }
+}
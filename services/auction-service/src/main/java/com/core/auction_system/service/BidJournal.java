@@ -0,0 +1,486 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only journal of accepted bids and auction closes.
+ * <p>
+ * Records are appended to memory-mapped segment files named after the sequence number of their
+ * first record. Each record is {@code [int length][int crc32c][body]} with a fixed body layout
+ * (type, seq, timestamp, productId, bidId, userId, amount, flag); the body is written before the
+ * length, so a reader that sees a non-zero length sees a complete record. A full segment is
+ * forced to disk and a new one is started; the active one is forced every
+ * {@code bid.journal.fsync-ms}, so a crash loses at most that window (the bids table stays the
+ * source of truth).
+ * <p>
+ * On startup the segments are replayed into a per-auction state map. {@link LiveAuctionBroadcaster}
+ * takes its bid counts from it: the first time an auction is streamed its count is read from the
+ * bids table and journaled as a {@link Type#COUNT} record, and later bids move it on from there, so
+ * reopening the stream, even after a restart, does not count the bids again. Counts are only
+ * trusted after a clean shutdown, since a crash can lose the last {@code bid.journal.fsync-ms} of
+ * records. The journal only covers bids committed by this instance since it was enabled.
+ * <p>
+ * {@link #read} lets consumers tail the journal from any sequence number. Every segment keeps a
+ * sparse sequence-to-offset index, so a read starts next to its first record instead of at the
+ * start of the segment, and sealed segments stay mapped between reads. Only the newest
+ * {@code bid.journal.retain-segments} sealed segments are kept; older ones are deleted when the
+ * journal rolls.
+ */
+@Component
+public class BidJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(BidJournal.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 8;
+    // type(1) seq(8) timestamp(8) productId(4) bidId(4) userId(4) amount(4) flag(1)
+    private static final int BODY_BYTES = 34;
+    private static final int RECORD_BYTES = HEADER_BYTES + BODY_BYTES;
+    private static final int NO_USER = -1;
+    // every this many records of a segment get an index entry
+    private static final int INDEX_INTERVAL = 256;
+    // written on clean shutdown; replayed counts are only trusted when it is found on startup
+    private static final String CLEAN_MARKER = ".clean-shutdown";
+
+    public enum Type {
+        BID((byte) 1), CLOSE((byte) 2), COUNT((byte) 3);
+
+        final byte code;
+
+        Type(byte code) {
+            this.code = code;
+        }
+
+        static Type of(byte code) {
+            for (Type t : values()) {
+                if (t.code == code) {
+                    return t;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Map<Integer, AuctionState> auctions = new ConcurrentHashMap<>();
+    // sealed segments, oldest first; the active one is not in the list
+    private final List<Segment> sealed = new ArrayList<>();
+    private Segment active;
+    private MappedByteBuffer activeBuffer;
+    private FileChannel activeChannel;
+    private long nextSeq = 1;
+    private boolean dirty;
+
+    @Value("${bid.journal.enabled:true}")
+    private boolean enabled;
+    @Value("${bid.journal.dir:data/bid-journal}")
+    private String dir;
+    @Value("${bid.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+    @Value("${bid.journal.retain-segments:16}")
+    private int retainSegments;
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Path root = Paths.get(dir);
+            Files.createDirectories(root);
+            boolean clean = Files.deleteIfExists(root.resolve(CLEAN_MARKER));
+            List<Segment> segments = listSegments(root);
+            long start = System.nanoTime();
+            long records = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment seg = segments.get(i);
+                boolean last = i == segments.size() - 1;
+                ByteBuffer view = mapReadOnly(seg.path);
+                ScanResult scan = scan(seg, view);
+                records += scan.records;
+                if (scan.lastSeq > 0) {
+                    nextSeq = scan.lastSeq + 1;
+                }
+                if (last) {
+                    openActive(seg, scan.endPosition);
+                } else {
+                    seg.sealedView = view;
+                    sealed.add(seg);
+                }
+            }
+            if (active == null) {
+                openActive(new Segment(root.resolve(segmentName(nextSeq)), nextSeq), 0);
+            }
+            if (!clean && records > 0) {
+                log.warn("Bid journal was not shut down cleanly; replayed bid counts will be read again");
+                auctions.replaceAll((id, state) -> state.uncounted());
+            }
+            log.info("Bid journal replayed {} records for {} auctions from {} segments in {} ms (next seq {})",
+                    records, auctions.size(), segments.size(), (System.nanoTime() - start) / 1_000_000, nextSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open bid journal in " + dir, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (activeBuffer != null) {
+            activeBuffer.force();
+            closeQuietly(activeChannel);
+            activeBuffer = null;
+            try {
+                Files.write(Paths.get(dir).resolve(CLEAN_MARKER), new byte[0]);
+            } catch (IOException e) {
+                log.warn("Failed to mark bid journal as cleanly closed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public void appendBid(Bid bid, boolean inserted) {
+        append(Type.BID, bid.getProduct().getId(), bid.getId(), bid.getBidderId(), bid.getAmount(), inserted);
+    }
+
+    public void appendClose(Product product) {
+        int amount = product.getCurrentBid() == null ? 0 : product.getCurrentBid().intValue();
+        append(Type.CLOSE, product.getId(), 0, product.getBuyerId(), amount, Boolean.TRUE.equals(product.getSold()));
+    }
+
+    /**
+     * Record an auction's bid count as read from the bids table; bids journaled after it count on
+     * from there.
+     */
+    public void appendCount(Integer productId, long bidCount) {
+        append(Type.COUNT, productId, 0, null, (int) Math.min(bidCount, Integer.MAX_VALUE), false);
+    }
+
+    /**
+     * The auction's bid count, when the journal holds a count read from the bids table and every
+     * bid this instance wrote since.
+     */
+    public OptionalLong bidCount(Integer productId) {
+        AuctionState state = auctions.get(productId);
+        return state != null && state.counted() ? OptionalLong.of(state.bidCount()) : OptionalLong.empty();
+    }
+
+    /**
+     * Up to {@code limit} records starting at {@code fromSeq}, in sequence order. Records before
+     * {@link #getFirstSeq()} were deleted by retention.
+     */
+    public List<JournalEntry> read(long fromSeq, int limit) {
+        List<JournalEntry> out = new ArrayList<>(Math.min(limit, 1024));
+        if (!enabled || limit <= 0) {
+            return out;
+        }
+        List<Segment> segments;
+        Segment activeSegment;
+        ByteBuffer activeView;
+        synchronized (this) {
+            if (activeBuffer == null) {
+                return out;
+            }
+            segments = new ArrayList<>(sealed);
+            activeSegment = active;
+            // everything before the write position was fully written under this lock
+            activeView = activeBuffer.duplicate().flip();
+        }
+        Predicate<JournalEntry> collect = e -> {
+            if (e.seq() >= fromSeq) {
+                out.add(e);
+            }
+            return out.size() < limit;
+        };
+        for (int i = 0; i < segments.size() && out.size() < limit; i++) {
+            Segment seg = segments.get(i);
+            long nextBase = i + 1 < segments.size() ? segments.get(i + 1).baseSeq : activeSegment.baseSeq;
+            if (nextBase <= fromSeq) {
+                continue;
+            }
+            scanBuffer(seg.sealedView.duplicate(), seg.offsetOf(fromSeq), null, collect);
+        }
+        if (out.size() < limit) {
+            scanBuffer(activeView, activeSegment.offsetOf(fromSeq), null, collect);
+        }
+        return out;
+    }
+
+    public synchronized long getNextSeq() {
+        return nextSeq;
+    }
+
+    // the oldest sequence number still on disk
+    public synchronized long getFirstSeq() {
+        if (!sealed.isEmpty()) {
+            return sealed.get(0).baseSeq;
+        }
+        return active == null ? nextSeq : active.baseSeq;
+    }
+
+    @Scheduled(fixedDelayString = "${bid.journal.fsync-ms:1000}")
+    public synchronized void sync() {
+        if (dirty && activeBuffer != null) {
+            activeBuffer.force();
+            dirty = false;
+        }
+    }
+
+    private synchronized void append(Type type, int productId, Integer bidId, Integer userId, Integer amount,
+                                     boolean flag) {
+        if (!enabled || activeBuffer == null) {
+            return;
+        }
+        try {
+            if (activeBuffer.remaining() < RECORD_BYTES) {
+                roll();
+            }
+            JournalEntry entry = new JournalEntry(nextSeq, type, System.currentTimeMillis(), productId,
+                    bidId == null ? 0 : bidId, userId == null ? NO_USER : userId, amount == null ? 0 : amount, flag);
+            int pos = activeBuffer.position();
+            ByteBuffer body = activeBuffer.duplicate().position(pos + HEADER_BYTES);
+            writeBody(body, entry);
+            CRC32C crc = new CRC32C();
+            crc.update(activeBuffer.duplicate().position(pos + HEADER_BYTES).limit(pos + RECORD_BYTES));
+            activeBuffer.putInt(pos + 4, (int) crc.getValue());
+            // length last: a non-zero length marks the record as complete
+            activeBuffer.putInt(pos, BODY_BYTES);
+            activeBuffer.position(pos + RECORD_BYTES);
+            active.indexRecord(entry.seq(), pos);
+            nextSeq++;
+            dirty = true;
+            apply(entry);
+        } catch (IOException e) {
+            // the bids table is authoritative; losing a journal record must not fail the bid
+            log.error("Failed to append {} record for product {} to bid journal", type, productId, e);
+        }
+    }
+
+    // caller holds the monitor
+    private void roll() throws IOException {
+        activeBuffer.force();
+        closeQuietly(activeChannel);
+        // the mapping outlives the channel; readers keep using it
+        active.sealedView = activeBuffer.asReadOnlyBuffer().clear();
+        sealed.add(active);
+        Path next = active.path.resolveSibling(segmentName(nextSeq));
+        openActive(new Segment(next, nextSeq), 0);
+        dirty = false;
+        log.info("Bid journal rolled to segment {}", next.getFileName());
+        while (sealed.size() > retainSegments) {
+            // a read already walking it keeps its mapping until done
+            Segment oldest = sealed.remove(0);
+            Files.deleteIfExists(oldest.path);
+            log.info("Bid journal deleted segment {}", oldest.path.getFileName());
+        }
+    }
+
+    private void openActive(Segment seg, int position) throws IOException {
+        activeChannel = FileChannel.open(seg.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        int size = (int) Math.max(segmentBytes, activeChannel.size());
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        // wipe a torn or corrupt tail so replay never picks up stale records behind new appends
+        if (position + HEADER_BYTES <= size && activeBuffer.getInt(position) != 0) {
+            for (int i = position; i < size; i++) {
+                activeBuffer.put(i, (byte) 0);
+            }
+        }
+        activeBuffer.position(position);
+        active = seg;
+    }
+
+    private static ByteBuffer mapReadOnly(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    // replays a segment on startup and builds its index
+    private ScanResult scan(Segment seg, ByteBuffer buf) {
+        ScanResult result = scanBuffer(buf, 0, seg, e -> {
+            apply(e);
+            return true;
+        });
+        if (result.endPosition < buf.limit() - RECORD_BYTES && buf.getInt(result.endPosition) != 0) {
+            log.warn("Bid journal segment {} has a corrupt record at offset {}, ignoring the rest",
+                    seg.path.getFileName(), result.endPosition);
+        }
+        return result;
+    }
+
+    // walks the records from offset {@code from} until the end, a corrupt record, or the visitor
+    // returning false; indexes them into {@code indexInto} when given
+    private ScanResult scanBuffer(ByteBuffer buf, int from, Segment indexInto, Predicate<JournalEntry> visitor) {
+        int pos = from;
+        long records = 0;
+        long lastSeq = 0;
+        int limit = buf.limit();
+        while (pos + HEADER_BYTES <= limit) {
+            int length = buf.getInt(pos);
+            if (length <= 0 || pos + HEADER_BYTES + length > limit) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buf.duplicate().position(pos + HEADER_BYTES).limit(pos + HEADER_BYTES + length));
+            if ((int) crc.getValue() != buf.getInt(pos + 4)) {
+                break;
+            }
+            JournalEntry entry = readBody(buf.duplicate().position(pos + HEADER_BYTES));
+            int offset = pos;
+            pos += HEADER_BYTES + length;
+            if (entry != null) {
+                lastSeq = entry.seq();
+                records++;
+                if (indexInto != null) {
+                    indexInto.indexRecord(entry.seq(), offset);
+                }
+                if (!visitor.test(entry)) {
+                    break;
+                }
+            }
+        }
+        return new ScanResult(pos, records, lastSeq);
+    }
+
+    private void apply(JournalEntry e) {
+        AuctionState prev = auctions.getOrDefault(e.productId(), AuctionState.empty(e.productId()));
+        AuctionState next = switch (e.type()) {
+            case BID -> e.amount() >= prev.currentBid()
+                    ? new AuctionState(e.productId(), e.amount(), e.userId(), prev.bidCount() + (e.flag() ? 1 : 0),
+                            prev.counted(), prev.closed(), prev.sold(), prev.buyerId(), e.seq())
+                    : new AuctionState(e.productId(), prev.currentBid(), prev.leaderId(),
+                            prev.bidCount() + (e.flag() ? 1 : 0), prev.counted(), prev.closed(), prev.sold(),
+                            prev.buyerId(), e.seq());
+            case CLOSE -> new AuctionState(e.productId(), prev.currentBid(), prev.leaderId(), prev.bidCount(),
+                    prev.counted(), true, e.flag(), e.userId(), e.seq());
+            case COUNT -> new AuctionState(e.productId(), prev.currentBid(), prev.leaderId(), e.amount(), true,
+                    prev.closed(), prev.sold(), prev.buyerId(), e.seq());
+        };
+        auctions.put(e.productId(), next);
+    }
+
+    private static void writeBody(ByteBuffer buf, JournalEntry e) {
+        buf.put(e.type().code);
+        buf.putLong(e.seq());
+        buf.putLong(e.timestamp());
+        buf.putInt(e.productId());
+        buf.putInt(e.bidId());
+        buf.putInt(e.userId() == null ? NO_USER : e.userId());
+        buf.putInt(e.amount());
+        buf.put((byte) (e.flag() ? 1 : 0));
+    }
+
+    private static JournalEntry readBody(ByteBuffer buf) {
+        Type type = Type.of(buf.get());
+        long seq = buf.getLong();
+        long timestamp = buf.getLong();
+        int productId = buf.getInt();
+        int bidId = buf.getInt();
+        int userId = buf.getInt();
+        int amount = buf.getInt();
+        boolean flag = buf.get() != 0;
+        if (type == null) {
+            return null;
+        }
+        return new JournalEntry(seq, type, timestamp, productId, bidId, userId == NO_USER ? null : userId, amount,
+                flag);
+    }
+
+    private static List<Segment> listSegments(Path root) throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .map(p -> {
+                        String name = p.getFileName().toString();
+                        return new Segment(p, Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    })
+                    .sorted((a, b) -> Long.compare(a.baseSeq, b.baseSeq))
+                    .toList();
+        }
+    }
+
+    private static String segmentName(long baseSeq) {
+        return String.format("%020d%s", baseSeq, SEGMENT_SUFFIX);
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        try {
+            ch.close();
+        } catch (IOException e) {
+            log.warn("Failed to close bid journal segment: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * One journal record. For {@link Type#BID}, {@code userId} is the bidder and {@code flag} is
+     * true when the bid added a row (a proxy raising its own bid does not). For
+     * {@link Type#CLOSE}, {@code userId} is the buyer (null if unsold), {@code amount} the final
+     * price and {@code flag} whether the auction sold. For {@link Type#COUNT}, {@code amount} is
+     * the auction's bid count as read from the bids table.
+     */
+    public record JournalEntry(long seq, Type type, long timestamp, int productId, int bidId, Integer userId,
+                               int amount, boolean flag) {
+    }
+
+    // per-auction state rebuilt from the journal; bidCount is only meaningful once counted
+    private record AuctionState(int productId, int currentBid, Integer leaderId, long bidCount, boolean counted,
+                                boolean closed, boolean sold, Integer buyerId, long lastSeq) {
+        static AuctionState empty(int productId) {
+            return new AuctionState(productId, 0, null, 0, false, false, false, null, 0);
+        }
+
+        AuctionState uncounted() {
+            return new AuctionState(productId, currentBid, leaderId, bidCount, false, closed, sold, buyerId, lastSeq);
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long baseSeq;
+        // offset of every INDEX_INTERVAL-th record by sequence number
+        final ConcurrentSkipListMap<Long, Integer> index = new ConcurrentSkipListMap<>();
+        // read-only mapping, set once the segment is sealed
+        volatile ByteBuffer sealedView;
+
+        Segment(Path path, long baseSeq) {
+            this.path = path;
+            this.baseSeq = baseSeq;
+        }
+
+        void indexRecord(long seq, int offset) {
+            if ((seq - baseSeq) % INDEX_INTERVAL == 0) {
+                index.put(seq, offset);
+            }
+        }
+
+        // where a read for seq starts: the last indexed record at or before it
+        int offsetOf(long seq) {
+            Map.Entry<Long, Integer> entry = index.floorEntry(seq);
+            return entry == null ? 0 : entry.getValue();
+        }
+    }
+
+    private record ScanResult(int endPosition, long records, long lastSeq) {
+    }
+}
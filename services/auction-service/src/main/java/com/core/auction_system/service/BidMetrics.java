@@ -0,0 +1,60 @@
+package com.core.auction_system.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the bid placement pipeline:
+ * <ul>
+ *   <li>{@code bid.placement} - whole placement, tagged {@code outcome} (accepted, rejected, error)</li>
+ *   <li>{@code bid.placement.phase} - one step of it, tagged {@code phase}</li>
+ *   <li>{@code bid.placement.rejected} - rejections, tagged {@code reason}</li>
+ * </ul>
+ * Histogram buckets and SLO boundaries for the timers are set in application.properties
+ * ({@code management.metrics.distribution.*}), so alert thresholds can change without a build.
+ */
+@Component
+public class BidMetrics {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final Map<String, Timer> phases = new ConcurrentHashMap<>();
+    private final Map<String, Timer> placements = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    /**
+     * Record a phase that started at {@code startNanos}; returns now, the start of the next phase.
+     */
+    public long phase(String phase, long startNanos) {
+        long now = System.nanoTime();
+        phases.computeIfAbsent(phase, p -> Timer.builder("bid.placement.phase")
+                        .description("Time spent in one step of bid placement")
+                        .tag("phase", p)
+                        .register(registry))
+                .record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void placement(String outcome, long startNanos) {
+        placements.computeIfAbsent(outcome, o -> Timer.builder("bid.placement")
+                        .description("Bid placement from admission to response")
+                        .tag("outcome", o)
+                        .register(registry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rejected(String reason) {
+        rejections.computeIfAbsent(reason, r -> Counter.builder("bid.placement.rejected")
+                        .description("Bids turned away, by reason")
+                        .tag("reason", r)
+                        .register(registry))
+                .increment();
+    }
+}
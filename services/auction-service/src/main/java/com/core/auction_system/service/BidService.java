@@ -7,7 +7,9 @@ import com.core.auction_system.model.Bid;
 import com.core.auction_system.model.Product;
 import com.core.auction_system.repository.BidRepository;
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -28,6 +30,18 @@ public class BidService {
     @Autowired
     private PaymentClient paymentClient;
 
+    @Autowired
+    private BidWriter bidWriter;
+
+    @Autowired
+    private ProxyBidEngine proxyBidEngine;
+
+    @Autowired
+    private WalletExposureCache walletExposure;
+
+    @Autowired
+    private BidMetrics bidMetrics;
+
     public List<Bid> getAllBids() {
         return bidRepository.findAll();
     }
@@ -40,6 +54,16 @@ public class BidService {
         return bidRepository.save(bid);
     }
 
+    /**
+     * The bids with these ids, read in one query and returned in the same order, with null where
+     * no bid has the id.
+     */
+    public List<BidResponseDTO> getBidsByIdsAsDTO(List<Integer> ids) {
+        Map<Integer, BidResponseDTO> byId = bidRepository.findAllById(new LinkedHashSet<>(ids)).stream()
+                .collect(Collectors.toMap(Bid::getId, this::mapToBidResponseDTO));
+        return ids.stream().map(byId::get).toList();
+    }
+
     public List<Bid> getBidsByBidder(Integer bidderId) {
         return bidRepository.findByBidderId(bidderId);
     }
@@ -73,13 +97,14 @@ public class BidService {
         dto.setEmail(bid.getEmail());
         dto.setReservationId(bid.getReservationId());
         dto.setStatus(bid.getStatus());
+        dto.setChangeSeq(bid.getChangeSeq());
         return dto;
     }
 
     /**
      * Convert list of Bid entities to list of BidResponseDTOs
      */
-    private List<BidResponseDTO> mapToBidResponseDTOList(List<Bid> bids) {
+    List<BidResponseDTO> mapToBidResponseDTOList(List<Bid> bids) {
         return bids.stream()
                 .map(this::mapToBidResponseDTO)
                 .collect(Collectors.toList());
@@ -139,98 +164,168 @@ public class BidService {
      * @param email    Buyer email extracted from JWT token
      * @return BidPlacementResult containing the saved bid or error details
      * <p>
-     * Note: bidTime is always set to current time, not from user input
+     * Note: bidTime is always set to current time, not from user input. Each step is timed, and
+     * every rejection counted by reason, through {@link BidMetrics}.
      */
     public BidPlacementResult placeBidWithValidation(BidDTO bidDto, Integer bidderId, String email) {
+        long started = System.nanoTime();
+        BidPlacementResult result;
         try {
-            // Validate required fields in DTO
-            if (bidDto.getProductId() == null) {
-                return BidPlacementResult.error(400, "productId required");
-            }
-            if (bidDto.getAmount() == null) {
-                return BidPlacementResult.error(400, "amount required");
-            }
-            if (bidderId == null) {
-                return BidPlacementResult.error(400, "bidder id required");
-            }
+            result = placeTimed(bidDto, bidderId, email, started);
+        } catch (Exception ex) {
+            logger.error("Error in placeBidWithValidation", ex);
+            result = BidPlacementResult.error(500, "internal_server_error", ex.getMessage());
+            bidMetrics.rejected("error");
+        }
+        bidMetrics.placement(result.isSuccess() ? "accepted" : result.getStatusCode() >= 500 ? "error" : "rejected",
+                started);
+        return result;
+    }
 
-            // Load product by id
-            Integer productId = bidDto.getProductId();
-            Product product = productService.getProductById(productId).orElse(null);
-            if (product == null) {
-                return BidPlacementResult.error(400, "Product not found");
-            }
+    private BidPlacementResult placeTimed(BidDTO bidDto, Integer bidderId, String email, long t) {
+        // Validate required fields in DTO
+        if (bidDto.getProductId() == null) {
+            return reject("invalid_request", BidPlacementResult.error(400, "productId required"));
+        }
+        if (bidDto.getAmount() == null) {
+            return reject("invalid_request", BidPlacementResult.error(400, "amount required"));
+        }
+        if (bidderId == null) {
+            return reject("invalid_request", BidPlacementResult.error(400, "bidder id required"));
+        }
+        // Bidder known to be short of funds for this amount: payment-service would refuse the freeze
+        if (walletExposure.isUnaffordable(bidderId, bidDto.getAmount())) {
+            return reject("insufficient_funds_local",
+                    BidPlacementResult.error(402, "payment_reserve_failed", "insufficient_funds"));
+        }
+        t = bidMetrics.phase("validation", t);
+
+        // Load product by id
+        Integer productId = bidDto.getProductId();
+        Product product = productService.getProductById(productId).orElse(null);
+        t = bidMetrics.phase("product_load", t);
+        if (product == null) {
+            return reject("product_not_found", BidPlacementResult.error(400, "Product not found"));
+        }
 
-            // Validate against product constraints
-            if (product.getMinBid() == null || product.getMaxBid() == null) {
-                return BidPlacementResult.error(400, "Product min/max required");
-            }
-            if (bidDto.getAmount() < product.getMinBid()) {
-                return BidPlacementResult.error(400, "Bid below minimum");
-            }
-            if (bidDto.getAmount() > product.getMaxBid()) {
-                return BidPlacementResult.error(400, "Bid above maximum");
-            }
+        // Validate against product constraints
+        if (product.getMinBid() == null || product.getMaxBid() == null) {
+            return reject("invalid_product", BidPlacementResult.error(400, "Product min/max required"));
+        }
+        if (bidDto.getAmount() < product.getMinBid()) {
+            return reject("below_minimum", BidPlacementResult.error(400, "Bid below minimum"));
+        }
+        if (bidDto.getAmount() > product.getMaxBid()) {
+            return reject("above_maximum", BidPlacementResult.error(400, "Bid above maximum"));
+        }
 
-            // Check user hasn't already bid and auction status
-            if (hasUserBidOnProduct(bidderId, product)) {
-                return BidPlacementResult.error(400, "User already bid");
-            }
-            if (product.getFrozen() != null && product.getFrozen()) {
-                return BidPlacementResult.error(400, "Auction closed");
-            }
-            // Check if auction has ended (current time is past end time)
-            if (product.getEndTime() != null && LocalDateTime.now().isAfter(product.getEndTime())) {
-                return BidPlacementResult.error(400, "Auction has ended");
-            }
-            if (product.getCurrentBid() != null && bidDto.getAmount() <= product.getCurrentBid()) {
-                return BidPlacementResult.error(400, "Bid not higher than current");
-            }
+        // Check user hasn't already bid and auction status
+        boolean alreadyBid = hasUserBidOnProduct(bidderId, product);
+        t = bidMetrics.phase("duplicate_check", t);
+        if (alreadyBid) {
+            return reject("duplicate", BidPlacementResult.error(400, "User already bid"));
+        }
+        if (product.getFrozen() != null && product.getFrozen()) {
+            return reject("closed", BidPlacementResult.error(400, "Auction closed"));
+        }
+        // Check if auction has ended (current time is past end time)
+        if (product.getEndTime() != null && LocalDateTime.now().isAfter(product.getEndTime())) {
+            return reject("ended", BidPlacementResult.error(400, "Auction has ended"));
+        }
+        if (product.getCurrentBid() != null && bidDto.getAmount() <= product.getCurrentBid()) {
+            return reject("not_higher", BidPlacementResult.error(400, "Bid not higher than current"));
+        }
 
-            // Reserve payment synchronously
-            logger.info("Payment reserve: bidderId={} amount={} email={}", bidderId, bidDto.getAmount(), email);
-            com.core.auction_system.client.PaymentClient.FreezeResponse fr =
-                    paymentClient.freeze(bidderId, (double) bidDto.getAmount(), email);
-            if (fr == null || !fr.ok) {
-                String reason = fr == null ? "unknown" : (fr.reason == null ? "insufficient_funds" : fr.reason);
-                return BidPlacementResult.error(402, "payment_reserve_failed", reason);
-            }
+        // Reserve payment synchronously
+        logger.info("Payment reserve: bidderId={} amount={} email={}", bidderId, bidDto.getAmount(), email);
+        com.core.auction_system.client.PaymentClient.FreezeResponse fr =
+                paymentClient.freeze(bidderId, (double) bidDto.getAmount(), email);
+        t = bidMetrics.phase("payment_freeze", t);
+        if (fr != null) {
+            walletExposure.onFreeze(bidderId, bidDto.getAmount(), fr.ok, fr.reason, fr.version);
+        }
+        if (fr == null || !fr.ok) {
+            String reason = fr == null ? "unknown" : (fr.reason == null ? "insufficient_funds" : fr.reason);
+            return reject("insufficient_funds".equals(reason) ? "insufficient_funds" : "payment_error",
+                    BidPlacementResult.error(402, "payment_reserve_failed", reason));
+        }
 
-            // Re-fetch the product (to reduce race window) and check currentBid again
-            Product fresh = productService.getProductById(productId).orElse(null);
-            if (fresh == null) {
-                return BidPlacementResult.error(400, "Product not found");
-            }
-            if (fresh.getCurrentBid() != null && bidDto.getAmount() <= fresh.getCurrentBid()) {
-                // Release reservation? For now, we return failure and let payment provider handle expiry.
-                return BidPlacementResult.error(400, "Bid not higher than current (race detected)");
-            }
+        // Re-fetch the product (to reduce race window) and check currentBid again
+        Product fresh = productService.getProductById(productId).orElse(null);
+        t = bidMetrics.phase("refetch", t);
+        if (fresh == null) {
+            releaseReservation(bidderId, bidDto.getAmount(), fr.reservationId);
+            return reject("product_not_found", BidPlacementResult.error(400, "Product not found"));
+        }
+        if (fresh.getCurrentBid() != null && bidDto.getAmount() <= fresh.getCurrentBid()) {
+            releaseReservation(bidderId, bidDto.getAmount(), fr.reservationId);
+            return reject("outbid_race", BidPlacementResult.error(400, "Bid not higher than current (race detected)"));
+        }
 
-            // Build Bid entity from DTO and save as PENDING
-            // BidTime is always set to current time (not from user input)
-            Bid bid = new Bid();
-            bid.setAmount(bidDto.getAmount());
-            bid.setProduct(fresh);
-            bid.setBidderId(bidderId);  // From JWT token
-            bid.setReservationId(fr.reservationId);
-            bid.setStatus("PENDING");
-            bid.setEmail(email);  // From JWT token
-            bid.setBidTime(LocalDateTime.now());  // Always current time
-
-            Bid savedBid = placeBid(bid);
-
-            // update product currentBid to the new amount
-            fresh.setCurrentBid((double) bidDto.getAmount());
-            productService.saveProduct(fresh);
-
-            // finalization happens asynchronously on payment.success
-            logger.info("Bid placed successfully: bidId={} productId={} amount={}", savedBid.getId(), productId,
-                    bidDto.getAmount());
-            return BidPlacementResult.success(savedBid);
-        } catch (Exception ex) {
-            logger.error("Error in placeBidWithValidation", ex);
-            return BidPlacementResult.error(500, "internal_server_error", ex.getMessage());
+        // Build Bid entity from DTO and save as PENDING
+        // BidTime is always set to current time (not from user input)
+        Bid bid = new Bid();
+        bid.setAmount(bidDto.getAmount());
+        bid.setProduct(fresh);
+        bid.setBidderId(bidderId);  // From JWT token
+        bid.setReservationId(fr.reservationId);
+        bid.setStatus("PENDING");
+        bid.setEmail(email);  // From JWT token
+        bid.setBidTime(LocalDateTime.now());  // Always current time
+
+        // Insert the bid and raise product currentBid through the group-commit writer; the writer
+        // re-checks the amount against the locked product row, so only one of two racing bids wins
+        Bid savedBid;
+        try {
+            savedBid = bidWriter.write(bid);
+        } catch (BidWriter.StaleBidException stale) {
+            bidMetrics.phase("bid_write", t);
+            releaseReservation(bidderId, bidDto.getAmount(), fr.reservationId);
+            return reject("outbid_race", BidPlacementResult.error(400, stale.getMessage()));
+        } catch (RuntimeException e) {
+            // the writer only fails bids it did not commit, so no bid row will ever point at the freeze
+            releaseReservation(bidderId, bidDto.getAmount(), fr.reservationId);
+            throw e;
+        }
+        t = bidMetrics.phase("bid_write", t);
+
+        // finalization happens asynchronously on payment.success
+        logger.info("Bid placed successfully: bidId={} productId={} amount={}", savedBid.getId(), productId,
+                bidDto.getAmount());
+
+        // standing proxy bids on this auction get to answer right away
+        try {
+            proxyBidEngine.onBidPlaced(productId);
+        } catch (Exception e) {
+            logger.warn("Proxy resolution after bid {} failed: {}", savedBid.getId(), e.getMessage());
         }
+        bidMetrics.phase("proxy_resolution", t);
+        return BidPlacementResult.success(savedBid);
+    }
+
+    /**
+     * Gives back the funds frozen for a bid that was not written. Keyed by reservation, so a
+     * repeat is harmless; a release that fails is logged for follow-up, the bid is refused either way.
+     */
+    private void releaseReservation(Integer bidderId, int amount, String reservationId) {
+        try {
+            PaymentClient.GenericResponse r = paymentClient.unfreeze(bidderId, (double) amount,
+                    "bid-release-" + reservationId);
+            if (r != null && r.ok) {
+                walletExposure.onReleased(bidderId, amount, r.walletVersion());
+            } else {
+                logger.error("Could not release reservation {} of bidder {} ({}): funds stay frozen",
+                        reservationId, bidderId, r == null ? "no response" : r.reason);
+            }
+        } catch (Exception e) {
+            logger.error("Could not release reservation {} of bidder {}: {}", reservationId, bidderId,
+                    e.getMessage(), e);
+        }
+    }
+
+    private BidPlacementResult reject(String reason, BidPlacementResult result) {
+        bidMetrics.rejected(reason);
+        return result;
     }
 
     /**
@@ -242,13 +337,20 @@ public class BidService {
         private final int statusCode;
         private final String errorMessage;
         private final String errorReason;
+        private final long retryAfterSeconds;
 
         private BidPlacementResult(boolean success, Bid bid, int statusCode, String errorMessage, String errorReason) {
+            this(success, bid, statusCode, errorMessage, errorReason, 0);
+        }
+
+        private BidPlacementResult(boolean success, Bid bid, int statusCode, String errorMessage, String errorReason,
+                                   long retryAfterSeconds) {
             this.success = success;
             this.bid = bid;
             this.statusCode = statusCode;
             this.errorMessage = errorMessage;
             this.errorReason = errorReason;
+            this.retryAfterSeconds = retryAfterSeconds;
         }
 
         public static BidPlacementResult success(Bid bid) {
@@ -263,6 +365,13 @@ public class BidService {
             return new BidPlacementResult(false, null, statusCode, errorMessage, errorReason);
         }
 
+        /**
+         * 429 result for a request turned away by admission control.
+         */
+        public static BidPlacementResult throttled(String reason, long retryAfterSeconds) {
+            return new BidPlacementResult(false, null, 429, "too_many_requests", reason, retryAfterSeconds);
+        }
+
         public boolean isSuccess() {
             return success;
         }
@@ -282,5 +391,9 @@ public class BidService {
         public String getErrorReason() {
             return errorReason;
         }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
     }
 }
@@ -0,0 +1,368 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Group-commit writer for accepted bids.
+ * <p>
+ * Callers enqueue a bid and wait on a future. A single flusher thread collects whatever arrives
+ * within a short linger window and persists it in one transaction: one locking read of the
+ * touched products, the currentBid updates, and the bid inserts as a JDBC batch. Each bid is
+ * re-checked against the locked product row, so this is also where the "higher than current"
+ * race between concurrent bidders is finally decided.
+ */
+@Component
+public class BidWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(BidWriter.class);
+
+    private final BlockingQueue<PendingBid> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService exec = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "bid-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean running = true;
+
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private LiveAuctionBroadcaster liveAuctionBroadcaster;
+    @Autowired
+    private BidJournal bidJournal;
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    @Autowired
+    private EndingSoonIndex endingSoonIndex;
+    @Autowired
+    private ProductVersionCache productVersionCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private Timer commitTimer;
+    private DistributionSummary batchSizes;
+
+    // extra time the flusher waits for more bids after the first one arrives. Bids already queue up
+    // while the previous flush is in flight, so 0 batches well and adds no latency to a lone bidder
+    @Value("${bid.writer.linger-ms:0}")
+    private long lingerMs;
+    @Value("${bid.writer.max-batch:128}")
+    private int maxBatch;
+    // how long a caller waits for its bid to be flushed
+    @Value("${bid.writer.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @PostConstruct
+    public void start() {
+        // one commit covers the product row locks, currentBid updates and the bid inserts
+        commitTimer = Timer.builder("bid.writer.commit")
+                .description("Group commit of queued bids")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("bid.writer.batch.size")
+                .description("Bids per group commit")
+                .register(meterRegistry);
+        Gauge.builder("bid.writer.queue", queue, BlockingQueue::size)
+                .description("Bids waiting for the next group commit")
+                .register(meterRegistry);
+        exec.execute(this::runLoop);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        exec.shutdownNow();
+        List<PendingBid> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(p -> p.future.completeExceptionally(new IllegalStateException("bid writer stopped")));
+    }
+
+    /**
+     * Enqueue a bid for the next group commit. The future completes with the saved bid once the
+     * batch containing it has committed, or exceptionally with {@link StaleBidException} if the
+     * bid was no longer higher than the product's current bid at write time.
+     */
+    public CompletableFuture<Bid> submit(Bid bid) {
+        return enqueue(bid).future;
+    }
+
+    /**
+     * Blocking variant of {@link #submit(Bid)} used on the request path. An exception always means
+     * the bid was not committed: a bid still queued when the wait runs out is withdrawn, and one
+     * the flusher has already taken is waited for until its batch is done.
+     */
+    public Bid write(Bid bid) {
+        PendingBid pending = enqueue(bid);
+        try {
+            return pending.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (TimeoutException e) {
+            if (pending.cancel()) {
+                throw new IllegalStateException("bid write timed out after " + timeoutMs + "ms", e);
+            }
+            return awaitTaken(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.cancel()) {
+                throw new IllegalStateException("interrupted while writing bid", e);
+            }
+            return awaitTaken(pending);
+        }
+    }
+
+    private PendingBid enqueue(Bid bid) {
+        if (bid.getProduct() == null || bid.getProduct().getId() == null) {
+            throw new IllegalArgumentException("bid must reference a persisted product");
+        }
+        if (!running) {
+            throw new IllegalStateException("bid writer stopped");
+        }
+        PendingBid pending = new PendingBid(bid);
+        queue.add(pending);
+        return pending;
+    }
+
+    // the flusher owns the bid now; its batch ends in a commit or a rollback shortly
+    private static Bid awaitTaken(PendingBid pending) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    return pending.future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw failure(e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static RuntimeException failure(ExecutionException e) {
+        if (e.getCause() instanceof StaleBidException stale) {
+            return stale;
+        }
+        return new IllegalStateException("bid write failed: " + e.getCause().getMessage(), e.getCause());
+    }
+
+    private void runLoop() {
+        List<PendingBid> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                PendingBid first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                take(first, batch);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                List<PendingBid> drained = new ArrayList<>(maxBatch);
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(drained, maxBatch - batch.size());
+                    drained.forEach(p -> take(p, batch));
+                    drained.clear();
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    PendingBid next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    take(next, batch);
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error in bid writer loop", e);
+                batch.forEach(p -> p.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // bids their caller gave up on stay out of every batch
+    private static void take(PendingBid pending, List<PendingBid> batch) {
+        if (pending.claim()) {
+            batch.add(pending);
+        }
+    }
+
+    private void flush(List<PendingBid> batch) {
+        try {
+            commitTimer.record(() -> commit(batch));
+            batchSizes.record(batch.size());
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.error("Bid write failed for product {}: {}", batch.get(0).bid.getProduct().getId(),
+                        e.getMessage(), e);
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // one bad row must not fail everybody else's bid: retry the members one by one
+            log.warn("Group commit of {} bids failed ({}), retrying individually", batch.size(), e.getMessage());
+            for (PendingBid p : batch) {
+                p.reset();
+                flush(List.of(p));
+            }
+            return;
+        }
+        for (PendingBid p : batch) {
+            if (p.rejection != null) {
+                p.future.completeExceptionally(new StaleBidException(p.rejection));
+            } else {
+                p.future.complete(p.bid);
+            }
+        }
+        log.debug("Group commit flushed {} bids", batch.size());
+        publishCommitted(batch);
+    }
+
+    // journal every accepted bid in commit order; one live update per product per batch, carrying
+    // the state after the batch's last accepted bid
+    private void publishCommitted(List<PendingBid> batch) {
+        Map<Integer, Product> latest = new LinkedHashMap<>();
+        Map<Integer, Integer> inserted = new HashMap<>();
+        for (PendingBid p : batch) {
+            if (p.rejection == null) {
+                bidJournal.appendBid(p.bid, p.isInsert);
+                Product product = p.bid.getProduct();
+                latest.put(product.getId(), product);
+                inserted.merge(product.getId(), p.isInsert ? 1 : 0, Integer::sum);
+            }
+        }
+        latest.forEach((id, product) -> {
+            try {
+                productVersionCache.invalidate(id);
+                liveAuctionBroadcaster.onBidsAccepted(product, inserted.get(id));
+                productSuggestIndex.onBidsAccepted(id, inserted.get(id));
+                productFacetIndex.onBidsAccepted(product);
+                endingSoonIndex.onBidsAccepted(product);
+            } catch (Exception e) {
+                log.warn("Failed to publish live update for product {}: {}", id, e.getMessage());
+            }
+        });
+    }
+
+    private void commit(List<PendingBid> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Integer> productIds = new TreeSet<>();
+            batch.forEach(p -> productIds.add(p.bid.getProduct().getId()));
+            Map<Integer, Product> products = productRepository.findAllByIdForUpdate(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+            // apply in arrival order so a later, lower bid in the same batch loses to an earlier one
+            List<Bid> toSave = new ArrayList<>(batch.size());
+            for (PendingBid p : batch) {
+                Bid bid = p.bid;
+                Product product = products.get(bid.getProduct().getId());
+                if (product == null) {
+                    p.rejection = "Product not found";
+                } else if (Boolean.TRUE.equals(product.getFrozen())) {
+                    p.rejection = "Auction closed";
+                } else if (product.getCurrentBid() != null && bid.getAmount() <= product.getCurrentBid()) {
+                    p.rejection = "Bid not higher than current (race detected)";
+                } else {
+                    // managed entity: the currentBid change is flushed (batched) at commit
+                    product.setCurrentBid(bid.getAmount().doubleValue());
+                    bid.setProduct(product);
+                    toSave.add(bid);
+                }
+            }
+            bidRepository.saveAll(toSave);
+        });
+    }
+
+    /**
+     * Raised when a queued bid loses to a bid committed before it.
+     */
+    public static class StaleBidException extends RuntimeException {
+        public StaleBidException(String message) {
+            super(message);
+        }
+    }
+
+    private static class PendingBid {
+        private static final int QUEUED = 0;
+        private static final int TAKEN = 1;
+        private static final int CANCELLED = 2;
+
+        final Bid bid;
+        final Product originalProduct;
+        final CompletableFuture<Bid> future = new CompletableFuture<>();
+        // false when a proxy bid raises the bidder's existing row
+        final boolean isInsert;
+        String rejection;
+        // QUEUED until either the flusher takes it or the caller gives up, whichever comes first
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        PendingBid(Bid bid) {
+            this.bid = bid;
+            this.originalProduct = bid.getProduct();
+            this.isInsert = bid.getId() == null;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(QUEUED, TAKEN);
+        }
+
+        boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+
+        // undo state from a rolled-back attempt before retrying
+        void reset() {
+            rejection = null;
+            if (isInsert) {
+                bid.setId(null);
+            }
+            bid.setProduct(originalProduct);
+        }
+    }
+}
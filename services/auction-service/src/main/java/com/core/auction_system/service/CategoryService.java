@@ -1,43 +1,199 @@
 package com.core.auction_system.service;
 
+import com.core.auction_system.events.ProductChangedEvent;
 import com.core.auction_system.model.Category;
 import com.core.auction_system.repository.CategoryRepository;
+import com.core.auction_system.repository.ProductRepository;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Categories are read on every product write and category filter but change rarely, so reads are
+ * served from an in-memory dictionary. Every write here bumps a version and the dictionary is
+ * rebuilt on the next read once its version is stale; it is also rebuilt after
+ * {@code category.cache.ttl-ms} to pick up changes made through other instances.
+ * <p>
+ * Each dictionary carries a catalog version, a digest of its contents, which is the ETag of the
+ * category endpoints: it is the same on every instance holding the same categories.
+ */
 @Service
 public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${category.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Dictionary dictionary;
+
+    private record Dictionary(long version, long loadedAt, String catalogVersion, List<Category> all,
+                              Map<Integer, Category> byId, Map<String, Category> byName,
+                              Map<String, Category> byLowerName) {
+    }
+
+    /**
+     * Every category, with the catalog version they were read at.
+     */
+    public record Catalog(String version, List<Category> categories) {
+    }
 
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return dictionary().all();
+    }
+
+    public Catalog getCatalog() {
+        Dictionary d = dictionary();
+        return new Catalog(d.catalogVersion(), d.all());
     }
 
     public Optional<Category> getCategoryById(Integer id) {
-        return categoryRepository.findById(id);
+        return Optional.ofNullable(dictionary().byId().get(id));
+    }
+
+    public Category getCategoryByName(String name) {
+        return dictionary().byName().get(name);
+    }
+
+    /**
+     * The category with this id (when the value is a number) or name, ignoring case when no name
+     * matches exactly.
+     */
+    public Optional<Category> resolve(String idOrName) {
+        if (idOrName == null || idOrName.isBlank()) {
+            return Optional.empty();
+        }
+        String value = idOrName.trim();
+        Dictionary d = dictionary();
+        if (value.length() <= 9 && value.chars().allMatch(Character::isDigit)) {
+            Category byId = d.byId().get(Integer.parseInt(value));
+            if (byId != null) {
+                return Optional.of(byId);
+            }
+        }
+        Category byName = d.byName().get(value);
+        return Optional.ofNullable(byName != null ? byName : d.byLowerName().get(value.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Like {@link #resolve}, but a name nobody has used yet becomes a new category, as free-text
+     * product categories always could.
+     */
+    public Category resolveOrCreate(String idOrName) {
+        Optional<Category> existing = resolve(idOrName);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        String name = idOrName.trim();
+        try {
+            return createCategory(new Category(null, name));
+        } catch (DataIntegrityViolationException e) {
+            // created concurrently, possibly through another instance
+            Category created = categoryRepository.findByName(name);
+            if (created == null) {
+                throw e;
+            }
+            version.incrementAndGet();
+            return created;
+        }
     }
 
     public Category createCategory(Category category) {
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        version.incrementAndGet();
+        return saved;
     }
 
+    /**
+     * Renames the category and every product's copy of its name in one transaction, then republishes
+     * those products so the in-memory product indexes see the new name.
+     */
     public Category updateCategory(Integer id, Category updatedCategory) {
-        return categoryRepository.findById(id)
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Category updated = tx.execute(status -> categoryRepository.findById(id)
                 .map(category -> {
                     category.setName(updatedCategory.getName());
-                    return categoryRepository.save(category);
+                    Category saved = categoryRepository.save(category);
+                    productRepository.renameCategory(id, saved.getName());
+                    return saved;
                 })
-                .orElse(null);
+                .orElse(null));
+        if (updated != null) {
+            version.incrementAndGet();
+            productRepository.findByCategoryId(id)
+                    .forEach(p -> eventPublisher.publishEvent(ProductChangedEvent.saved(p)));
+        }
+        return updated;
     }
 
+    /**
+     * @throws IllegalStateException while products still reference the category
+     */
     public void deleteCategory(Integer id) {
+        if (productRepository.existsByCategoryId(id)) {
+            throw new IllegalStateException("Category still has products");
+        }
         categoryRepository.deleteById(id);
+        version.incrementAndGet();
     }
 
-    public Category getCategoryByName(String name) {
-        return categoryRepository.findByName(name);
+    private Dictionary dictionary() {
+        Dictionary d = dictionary;
+        long current = version.get();
+        if (d == null || d.version() != current || System.currentTimeMillis() - d.loadedAt() > ttlMs) {
+            // read the version first: a write landing during the load leaves this one stale
+            d = load(current);
+            dictionary = d;
+        }
+        return d;
+    }
+
+    private Dictionary load(long atVersion) {
+        List<Category> all = categoryRepository.findAll().stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .toList();
+        Map<Integer, Category> byId = new HashMap<>();
+        Map<String, Category> byName = new HashMap<>();
+        Map<String, Category> byLowerName = new HashMap<>();
+        MessageDigest digest = sha256();
+        for (Category c : all) {
+            digest.update((c.getId() + ":" + c.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+            byId.put(c.getId(), c);
+            byName.put(c.getName(), c);
+            byLowerName.putIfAbsent(c.getName().toLowerCase(Locale.ROOT), c);
+        }
+        String catalogVersion = HexFormat.of().formatHex(digest.digest(), 0, 8);
+        return new Dictionary(atVersion, System.currentTimeMillis(), catalogVersion, all, Map.copyOf(byId),
+                Map.copyOf(byName), Map.copyOf(byLowerName));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,160 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Open auctions ordered by {@code (endTime, id)}, behind {@code GET /api/products/v1/ending-soon}.
+ * <p>
+ * A skip list holds a copy of every open product, so reading the next k auctions to end is
+ * O(log n + k) and never touches the database; readers don't lock. Writes (product events,
+ * accepted bids) are serialized on the index, since moving an auction means removing its old key.
+ * Auctions whose end time has passed stay in the map, outside every query, until they are closed
+ * or the scheduler has picked them up.
+ * <p>
+ * Loaded and kept current across instances by {@link ProductIndexLoader}.
+ */
+@Service
+public class EndingSoonIndex implements ProductIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(EndingSoonIndex.class);
+
+    private final ConcurrentSkipListMap<Key, Product> open = new ConcurrentSkipListMap<>();
+    // current key of each indexed product; guarded by this
+    private final Map<Integer, Key> keys = new HashMap<>();
+    // products an event has already put in place (or removed), so the initial load leaves them alone
+    private final BitSet touchedDuringLoad = new BitSet();
+    private volatile boolean ready;
+
+    @Value("${ending-soon.index.enabled:true}")
+    private boolean enabled;
+
+    private record Key(LocalDateTime endTime, int id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key o) {
+            int c = endTime.compareTo(o.endTime);
+            return c != 0 ? c : Integer.compare(id, o.id);
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void loadProduct(Product p) {
+        if (p.getId() != null && !touchedDuringLoad.get(p.getId())) {
+            put(p);
+        }
+    }
+
+    @Override
+    public void loaded(long millis) {
+        ready = true;
+        log.info("Ending-soon index loaded in {} ms: {} open auctions", millis, open.size());
+    }
+
+    @Override
+    @EventListener
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        Integer id = event.productId();
+        if (!enabled || id == null || id < 0) {
+            return;
+        }
+        if (!ready) {
+            touchedDuringLoad.set(id);
+        }
+        if (event.isDeleted()) {
+            remove(id);
+        } else {
+            put(event.product());
+        }
+    }
+
+    /**
+     * A bid moved the product's {@code currentBid}; refresh the copy served by the feed.
+     */
+    public synchronized void onBidsAccepted(Product product) {
+        Key key = enabled && product.getId() != null ? keys.get(product.getId()) : null;
+        if (key != null) {
+            open.put(key, copy(product));
+        }
+    }
+
+    /**
+     * Open auctions ending after now and at most {@code within} from now, soonest first.
+     */
+    public List<Product> endingWithin(Duration within, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        // Integer.MAX_VALUE sorts after every id with the same end time
+        Key from = new Key(now, Integer.MAX_VALUE);
+        Key to = new Key(now.plus(within), Integer.MAX_VALUE);
+        List<Product> products = new ArrayList<>(Math.min(limit, 64));
+        for (Product p : open.subMap(from, false, to, true).values()) {
+            if (products.size() >= limit) {
+                break;
+            }
+            products.add(p);
+        }
+        return products;
+    }
+
+    /**
+     * Forgets auctions that ended before {@code time}. Called by the scheduler once it has
+     * queried them from the database, which also covers auctions closed by other instances.
+     */
+    public synchronized int dropEndedBefore(LocalDateTime time) {
+        int dropped = 0;
+        while (!open.isEmpty() && open.firstKey().endTime().isBefore(time)) {
+            keys.remove(open.pollFirstEntry().getKey().id());
+            dropped++;
+        }
+        return dropped;
+    }
+
+    private void put(Product p) {
+        Integer id = p.getId();
+        if (id == null || id < 0) {
+            return;
+        }
+        remove(id);
+        if (p.getEndTime() == null || Boolean.TRUE.equals(p.getFrozen()) || Boolean.TRUE.equals(p.getSold())) {
+            return;
+        }
+        Key key = new Key(p.getEndTime(), id);
+        keys.put(id, key);
+        open.put(key, copy(p));
+    }
+
+    private void remove(int id) {
+        Key key = keys.remove(id);
+        if (key != null) {
+            open.remove(key);
+        }
+    }
+
+    // the feed serves its own copies, never an entity a persistence context may still change
+    private static Product copy(Product p) {
+        return new Product(p.getId(), p.getName(), p.getDescription(), p.getCategoryId(), p.getCategory(),
+                p.getMinBid(), p.getMaxBid(), p.getCurrentBid(), p.getFrozen(), p.getSold(), p.getEndTime(),
+                p.getSellerId(), p.getBuyerId(), p.getVersion(), p.getChangeSeq(), p.getChangeXid());
+    }
+}
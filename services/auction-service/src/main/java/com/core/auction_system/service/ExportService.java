@@ -0,0 +1,78 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Full-table exports written as one JSON array while the rows are read. Rows come from a
+ * database cursor (Postgres only uses one inside a transaction, hence {@code @Transactional}),
+ * each is serialized straight to the response and then detached, so neither the persistence
+ * context nor the heap grows with the table.
+ */
+@Service
+public class ExportService {
+
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public long writeBids(OutputStream out) throws IOException {
+        try (Stream<Bid> bids = bidRepository.streamAllWithProduct()) {
+            return writeArray(out, bids, bid -> {
+                entityManager.detach(bid);
+                if (bid.getProduct() != null) {
+                    entityManager.detach(bid.getProduct());
+                }
+            });
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long writeProducts(OutputStream out) throws IOException {
+        try (Stream<Product> products = productRepository.streamAll()) {
+            return writeArray(out, products, entityManager::detach);
+        }
+    }
+
+    private <T> long writeArray(OutputStream out, Stream<T> rows, Consumer<T> detach) throws IOException {
+        // flushing after every row would turn each one into its own socket write
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            // the servlet container owns the response stream
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.writeStartArray();
+            Iterator<T> it = rows.iterator();
+            while (it.hasNext()) {
+                T row = it.next();
+                writer.writeValue(gen, row);
+                detach.accept(row);
+                count++;
+            }
+            gen.writeEndArray();
+        }
+        return count;
+    }
+}
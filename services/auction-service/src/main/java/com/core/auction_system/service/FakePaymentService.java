@@ -0,0 +1,267 @@
+package com.core.auction_system.service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory stand-in for payment-service's wallet, for load tests of the bid and close paths on
+ * one machine (profile {@code fake-payment}). Wallets behave like the real ones (freeze checks the
+ * available balance, deduct checks the locked amount, unfreeze clamps at zero) and start with
+ * {@code fake-payment.initial-balance}.
+ *
+ * <p>On top of that every operation can be slowed down and made to fail, per operation name
+ * ({@code freeze}, {@code deduct}, {@code unfreeze}, {@code deposit}) with fallback to
+ * {@code default}:
+ * <ul>
+ *   <li>{@code fake-payment.latency.<op>.type}: {@code fixed}, {@code uniform} or {@code lognormal};
+ *   {@code fixed-ms}, {@code min-ms}/{@code max-ms}, or {@code median-ms}/{@code sigma}/{@code max-ms}</li>
+ *   <li>{@code fake-payment.<op>.error-rate}: share of calls answered with a 503 and no side effect</li>
+ *   <li>{@code fake-payment.freeze.refusal-rate}: share of freezes refused as {@code insufficient_funds}
+ *   whatever the balance</li>
+ * </ul>
+ * All randomness comes from one generator seeded with {@code fake-payment.seed}, so a benchmark
+ * driven in the same order sees the same delays and failures.
+ */
+@Service
+@Profile("fake-payment")
+public class FakePaymentService {
+
+    private static final Logger log = LoggerFactory.getLogger(FakePaymentService.class);
+
+    public static final String[] OPERATIONS = {"freeze", "deduct", "unfreeze", "deposit"};
+
+    @Autowired
+    private Environment env;
+
+    private Random random;
+    private double initialBalance;
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Double> errorRates = new ConcurrentHashMap<>();
+    private double refusalRate;
+
+    private final Map<String, Wallet> wallets = new ConcurrentHashMap<>();
+    private final Map<String, Outcome> idempotent = new ConcurrentHashMap<>();
+    private final AtomicLong reservationSeq = new AtomicLong();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Result of one wallet operation, shaped like payment-service's response body.
+     */
+    public record Outcome(int status, Map<String, Object> body) {
+        public boolean ok() {
+            return status < 300;
+        }
+    }
+
+    private static class Wallet {
+        double balance;
+        double locked;
+
+        Wallet(double balance) {
+            this.balance = balance;
+        }
+    }
+
+    private static class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder injectedErrors = new LongAdder();
+        final LongAdder refused = new LongAdder();
+        final LongAdder delayMs = new LongAdder();
+    }
+
+    private record Latency(String type, double a, double b, long maxMs) {
+    }
+
+    @PostConstruct
+    void init() {
+        configure();
+        log.warn("Fake payment-service active: wallets are in memory, no payment events are published");
+    }
+
+    private void configure() {
+        random = new Random(env.getProperty("fake-payment.seed", Long.class, 42L));
+        initialBalance = env.getProperty("fake-payment.initial-balance", Double.class, 1_000_000.0);
+        refusalRate = env.getProperty("fake-payment.freeze.refusal-rate", Double.class, 0.0);
+        for (String op : OPERATIONS) {
+            latencies.put(op, latency(op));
+            errorRates.put(op, property("fake-payment", op, "error-rate", Double.class, 0.0));
+            stats.put(op, new Stats());
+        }
+    }
+
+    /**
+     * Milliseconds the response to the next call of {@code op} should be held back.
+     */
+    public long nextDelayMs(String op) {
+        Latency l = latencies.get(op);
+        double ms = switch (l.type()) {
+            case "fixed" -> l.a();
+            case "uniform" -> l.a() + random.nextDouble() * (l.b() - l.a());
+            // a = median, b = sigma of the underlying normal
+            default -> l.a() * Math.exp(l.b() * random.nextGaussian());
+        };
+        long delay = Math.max(0, Math.min(l.maxMs(), Math.round(ms)));
+        stats.get(op).delayMs.add(delay);
+        return delay;
+    }
+
+    public Outcome freeze(String userId, double amount, String idempotencyKey) {
+        return once("freeze", idempotencyKey, () -> {
+            if (chance(refusalRate)) {
+                stats.get("freeze").refused.increment();
+                return failure(400, "insufficient_funds");
+            }
+            Wallet w = wallet(userId);
+            synchronized (w) {
+                if (w.balance - w.locked < amount) {
+                    stats.get("freeze").refused.increment();
+                    return failure(400, "insufficient_funds");
+                }
+                w.locked += amount;
+            }
+            return success("reservationId", userId + "-fake-" + reservationSeq.incrementAndGet());
+        });
+    }
+
+    public Outcome deduct(String userId, double amount, String idempotencyKey) {
+        return once("deduct", idempotencyKey, () -> {
+            Wallet w = wallet(userId);
+            synchronized (w) {
+                if (w.locked < amount) {
+                    return failure(400, "locked_amount_insufficient");
+                }
+                w.locked -= amount;
+                w.balance = Math.max(0, w.balance - amount);
+                return success("balance", w.balance);
+            }
+        });
+    }
+
+    public Outcome unfreeze(String userId, double amount, String idempotencyKey) {
+        return once("unfreeze", idempotencyKey, () -> {
+            Wallet w = wallet(userId);
+            synchronized (w) {
+                w.locked = Math.max(0, w.locked - amount);
+            }
+            return success(null, null);
+        });
+    }
+
+    public Outcome deposit(String userId, double amount, String idempotencyKey) {
+        return once("deposit", idempotencyKey, () -> {
+            Wallet w = wallet(userId);
+            synchronized (w) {
+                w.balance += amount;
+            }
+            return success(null, null);
+        });
+    }
+
+    public Map<String, Object> balance(String userId) {
+        Wallet w = wallet(userId);
+        synchronized (w) {
+            return Map.of("balance", w.balance, "locked", w.locked);
+        }
+    }
+
+    /**
+     * Call counts, injected failures and total injected delay per operation.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String op : OPERATIONS) {
+            Stats s = stats.get(op);
+            out.put(op, Map.of(
+                    "calls", s.calls.sum(),
+                    "injectedErrors", s.injectedErrors.sum(),
+                    "refused", s.refused.sum(),
+                    "delayMsTotal", s.delayMs.sum()));
+        }
+        out.put("wallets", wallets.size());
+        return out;
+    }
+
+    /**
+     * Forgets all wallets, idempotency keys and counters and reseeds the generator, so the next
+     * benchmark run starts from the same state as the first.
+     */
+    public void reset() {
+        wallets.clear();
+        idempotent.clear();
+        reservationSeq.set(0);
+        configure();
+    }
+
+    // an operation with a stored result for its key is not run (or counted as failed) again;
+    // concurrent calls with the same key (a hedged freeze) wait for the first one
+    private Outcome once(String op, String idempotencyKey, Supplier<Outcome> action) {
+        stats.get(op).calls.increment();
+        if (idempotencyKey == null) {
+            return attempt(op, action);
+        }
+        Outcome[] result = new Outcome[1];
+        idempotent.compute(op + ":" + idempotencyKey, (k, stored) -> {
+            result[0] = stored != null ? stored : attempt(op, action);
+            // like payment-service, 5xx results are not kept so a retry runs again
+            return result[0].status() >= 500 ? null : result[0];
+        });
+        return result[0];
+    }
+
+    private Outcome attempt(String op, Supplier<Outcome> action) {
+        if (chance(errorRates.get(op))) {
+            stats.get(op).injectedErrors.increment();
+            return new Outcome(503, Map.of("error", "injected_failure"));
+        }
+        return action.get();
+    }
+
+    private Wallet wallet(String userId) {
+        return wallets.computeIfAbsent(userId, id -> new Wallet(initialBalance));
+    }
+
+    private boolean chance(double rate) {
+        return rate > 0 && random.nextDouble() < rate;
+    }
+
+    private Latency latency(String op) {
+        String prefix = "fake-payment.latency";
+        String type = property(prefix, op, "type", String.class, "fixed");
+        return switch (type) {
+            case "fixed" -> new Latency(type, property(prefix, op, "fixed-ms", Double.class, 0.0), 0,
+                    Long.MAX_VALUE);
+            case "uniform" -> new Latency(type, property(prefix, op, "min-ms", Double.class, 0.0),
+                    property(prefix, op, "max-ms", Double.class, 0.0), Long.MAX_VALUE);
+            case "lognormal" -> new Latency(type, property(prefix, op, "median-ms", Double.class, 10.0),
+                    property(prefix, op, "sigma", Double.class, 0.5),
+                    property(prefix, op, "max-ms", Long.class, 5000L));
+            default -> throw new IllegalStateException("Unknown latency type for " + op + ": " + type);
+        };
+    }
+
+    // <prefix>.<op>.<name>, falling back to <prefix>.default.<name>
+    private <T> T property(String prefix, String op, String name, Class<T> type, T fallback) {
+        T v = env.getProperty(prefix + "." + op + "." + name, type);
+        return v != null ? v : env.getProperty(prefix + ".default." + name, type, fallback);
+    }
+
+    private static Outcome failure(int status, String reason) {
+        return new Outcome(status, Map.of("ok", false, "reason", reason));
+    }
+
+    private static Outcome success(String key, Object value) {
+        return new Outcome(200, key == null ? Map.of("ok", true) : Map.of("ok", true, key, value));
+    }
+}
@@ -0,0 +1,246 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.dto.AuctionSnapshotDTO;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.repository.BidRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Fan-out of live auction state (current bid, bid count, closed/sold) to server-sent event
+ * subscribers.
+ * <p>
+ * An update is serialized once per product and the same JSON string is handed to every
+ * subscriber. Each subscriber has a single pending slot: if it is still busy writing the previous
+ * event when a new one arrives, the pending one is replaced, so a slow client only ever lags by
+ * one snapshot and never holds up the bid path or the other subscribers.
+ */
+@Service
+public class LiveAuctionBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveAuctionBroadcaster.class);
+    // marker for a keepalive comment; real payloads are never empty
+    private static final String HEARTBEAT = "";
+
+    private final Map<Integer, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService dispatcher;
+
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private BidJournal bidJournal;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${auction.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+    @Value("${auction.stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    public LiveAuctionBroadcaster(@Value("${auction.stream.dispatch-threads:4}") int dispatchThreads) {
+        AtomicInteger n = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread t = new Thread(r, "auction-stream-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        topics.values().forEach(t -> t.subscribers.forEach(s -> s.emitter.complete()));
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Open a stream for a product. The current state is sent immediately. Returns null when the
+     * instance is at its subscriber limit.
+     */
+    public SseEmitter subscribe(Product product) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber sub = new Subscriber(emitter);
+        // joined under the map's lock for this product, so a concurrent unsubscribe cannot drop
+        // the topic between looking it up and adding to it
+        Topic topic = topics.compute(product.getId(), (id, current) -> {
+            Topic t = current != null ? current : new Topic(initialBidCount(id));
+            t.subscribers.add(sub);
+            return t;
+        });
+        Runnable remove = () -> unsubscribe(product.getId(), topic, sub);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        String payload = serialize(product, topic.bidCount.get());
+        if (payload != null) {
+            sub.offer(payload, dispatcher);
+        }
+        return emitter;
+    }
+
+    /**
+     * Publish after bids on this product were committed. {@code newBids} counts inserted rows
+     * (a proxy raising its existing row does not add to the bid count).
+     */
+    public void onBidsAccepted(Product product, int newBids) {
+        Topic topic = topics.get(product.getId());
+        if (topic == null) {
+            return;
+        }
+        long count = topic.bidCount.addAndGet(newBids);
+        broadcast(topic, product, count);
+    }
+
+    /**
+     * Publish a state change that is not a bid (closed, sold, unsold).
+     */
+    public void onAuctionUpdated(Product product) {
+        Topic topic = topics.get(product.getId());
+        if (topic != null) {
+            broadcast(topic, product, topic.bidCount.get());
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // keeps idle connections open through proxies and detects clients that went away
+    @Scheduled(fixedDelayString = "${auction.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        topics.values().forEach(t -> t.subscribers.forEach(s -> s.offerHeartbeat(dispatcher)));
+    }
+
+    private void broadcast(Topic topic, Product product, long bidCount) {
+        List<Subscriber> subs = topic.subscribers;
+        if (subs.isEmpty()) {
+            return;
+        }
+        String payload = serialize(product, bidCount);
+        if (payload == null) {
+            return;
+        }
+        for (Subscriber sub : subs) {
+            sub.offer(payload, dispatcher);
+        }
+    }
+
+    // from the journal when it has the auction counted; otherwise counted once and journaled, so
+    // the next topic for this auction, here or after a restart, starts from the journal
+    private long initialBidCount(Integer productId) {
+        OptionalLong journaled = bidJournal.bidCount(productId);
+        if (journaled.isPresent()) {
+            return journaled.getAsLong();
+        }
+        long count = bidRepository.countByProductId(productId);
+        bidJournal.appendCount(productId, count);
+        return count;
+    }
+
+    private String serialize(Product product, long bidCount) {
+        AuctionSnapshotDTO dto = new AuctionSnapshotDTO(product.getId(), product.getCurrentBid(), bidCount,
+                Boolean.TRUE.equals(product.getFrozen()), Boolean.TRUE.equals(product.getSold()),
+                product.getBuyerId(), product.getEndTime());
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (IOException e) {
+            log.error("Failed to serialize auction snapshot for product {}", product.getId(), e);
+            return null;
+        }
+    }
+
+    private void unsubscribe(Integer productId, Topic topic, Subscriber sub) {
+        if (topic.subscribers.remove(sub)) {
+            subscriberCount.decrementAndGet();
+        }
+        // the emptiness check runs under the same lock as subscribe's add
+        topics.computeIfPresent(productId, (id, current) ->
+                current == topic && current.subscribers.isEmpty() ? null : current);
+    }
+
+    private static class Topic {
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final AtomicLong bidCount;
+
+        Topic(long bidCount) {
+            this.bidCount = new AtomicLong(bidCount);
+        }
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        // latest undelivered event; newer updates overwrite older ones
+        final AtomicReference<String> pending = new AtomicReference<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(String payload, ExecutorService dispatcher) {
+            pending.set(payload);
+            schedule(dispatcher);
+        }
+
+        void offerHeartbeat(ExecutorService dispatcher) {
+            if (pending.compareAndSet(null, HEARTBEAT)) {
+                schedule(dispatcher);
+            }
+        }
+
+        private void schedule(ExecutorService dispatcher) {
+            if (!closed && draining.compareAndSet(false, true)) {
+                dispatcher.execute(() -> drain(dispatcher));
+            }
+        }
+
+        private void drain(ExecutorService dispatcher) {
+            try {
+                String next;
+                while (!closed && (next = pending.getAndSet(null)) != null) {
+                    if (next.isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    } else {
+                        emitter.send(SseEmitter.event().name("auction").data(next, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (Exception e) {
+                // client went away; completing triggers the onCompletion cleanup
+                closed = true;
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            // an update may have arrived after the last getAndSet but before draining was cleared
+            if (!closed && pending.get() != null) {
+                schedule(dispatcher);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.dto.ProductChangesDTO;
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProductTombstone;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import com.core.auction_system.repository.ProductTombstoneRepository;
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Delta sync for catalog mirrors, behind {@code GET /api/products/v1/changes}.
+ * <p>
+ * Products and bids carry a change sequence the database assigns on every write, and deleted
+ * products leave a tombstone holding one (V5 migration), next to the id of the transaction that
+ * wrote them (V9). A page is the {@code limit} lowest {@code (transaction, sequence)} pairs after
+ * the cursor across the three, each read from its index, so a call costs the same however large
+ * the catalog is. A row changed twice is served once, in its latest state.
+ * <p>
+ * A number is taken when a row is written but only becomes visible when its transaction commits.
+ * Only transactions below an xmin read once per call are served; those have all finished, and
+ * any transaction still running has a higher id, so it sorts after every cursor handed out so far.
+ */
+@Service
+public class ProductChangeFeed {
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private ProductTombstoneRepository productTombstoneRepository;
+    @Autowired
+    private BidService bidService;
+
+    /**
+     * Position in the feed: {@code "<xid>.<seq>"}. A bare number is a change sequence from before
+     * rows carried a transaction id, which sorts ahead of every newer change.
+     */
+    public record Cursor(long xid, long seq) implements Comparable<Cursor> {
+        public static final Cursor START = new Cursor(0, 0);
+
+        // null when the text is not a cursor
+        public static Cursor parse(String text) {
+            try {
+                int dot = text.indexOf('.');
+                Cursor c = dot < 0 ? new Cursor(0, Long.parseLong(text))
+                        : new Cursor(Long.parseLong(text.substring(0, dot)), Long.parseLong(text.substring(dot + 1)));
+                return c.xid() < 0 || c.seq() < 0 ? null : c;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            return xid != o.xid ? Long.compare(xid, o.xid) : Long.compare(seq, o.seq);
+        }
+
+        @Override
+        public String toString() {
+            return xid + "." + seq;
+        }
+    }
+
+    /**
+     * A cursor no change still to commit can sort before: anything missing from a snapshot taken
+     * after this call comes later in the feed.
+     */
+    @Transactional(readOnly = true)
+    public Cursor head() {
+        return new Cursor(productRepository.currentSnapshotXmin(), 0);
+    }
+
+    @Transactional(readOnly = true)
+    public ProductChangesDTO changesSince(Cursor since, int limit) {
+        // one bound for all three reads: each statement takes a fresh snapshot, and a later, higher
+        // xmin would let the merged cursor pass rows an earlier read held back
+        long xmin = productRepository.currentSnapshotXmin();
+        // a page from each, plus one: if the three together hold more than a page, there is another
+        List<Product> products = productRepository.findChangedSince(since.xid(), since.seq(), xmin, limit + 1);
+        List<Bid> bids = bidRepository.findChangedSince(since.xid(), since.seq(), xmin, limit + 1);
+        List<ProductTombstone> deleted = productTombstoneRepository.findChangedSince(since.xid(), since.seq(), xmin,
+                limit + 1);
+
+        List<Cursor> positions = Stream.of(
+                        products.stream().map(p -> new Cursor(p.getChangeXid(), p.getChangeSeq())),
+                        bids.stream().map(b -> new Cursor(b.getChangeXid(), b.getChangeSeq())),
+                        deleted.stream().map(t -> new Cursor(t.getChangeXid(), t.getChangeSeq())))
+                .flatMap(s -> s)
+                .sorted()
+                .toList();
+        if (positions.isEmpty()) {
+            return new ProductChangesDTO(since.toString(), false, List.of(), List.of(), List.of());
+        }
+        // each pair is unique (one sequence), so this cuts the three lists at exactly one page
+        Cursor last = positions.get(Math.min(positions.size(), limit) - 1);
+        return new ProductChangesDTO(last.toString(), positions.size() > limit,
+                products.stream().filter(p -> new Cursor(p.getChangeXid(), p.getChangeSeq()).compareTo(last) <= 0)
+                        .toList(),
+                bidService.mapToBidResponseDTOList(bids.stream()
+                        .filter(b -> new Cursor(b.getChangeXid(), b.getChangeSeq()).compareTo(last) <= 0).toList()),
+                deleted.stream().filter(t -> new Cursor(t.getChangeXid(), t.getChangeSeq()).compareTo(last) <= 0)
+                        .toList());
+    }
+}
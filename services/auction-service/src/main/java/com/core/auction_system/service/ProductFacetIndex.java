@@ -0,0 +1,401 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Facet counts and filtered listings over the whole catalogue, behind
+ * {@code GET /api/products/v1/browse}.
+ * <p>
+ * Every facet value (a category id, a price bucket of {@code currentBid}, active or closed) has a
+ * bitset of the product ids that carry it, and open auctions are also bucketed by the hour
+ * their {@code endTime} falls in. A filter is the AND of the selected values' bitsets; the
+ * "ending within" windows OR the hour buckets they cover and check the exact end time only in
+ * the two partial hours at the edges. A facet's counts are taken with every filter applied
+ * except its own, so the other values stay selectable.
+ * <p>
+ * Loaded by {@link ProductIndexLoader} once the application is ready, then kept current from
+ * {@link ProductChangedEvent}s, this instance's accepted bids and the change feed.
+ */
+@Service
+public class ProductFacetIndex implements ProductIndex {
+
+    public static final String ACTIVE = "active";
+    public static final String CLOSED = "closed";
+    public static final List<String> SORTS = List.of("newest", "ending", "price_asc", "price_desc");
+    private static final Logger log = LoggerFactory.getLogger(ProductFacetIndex.class);
+    // lower bounds of the currentBid buckets
+    private static final double[] PRICE_BOUNDS = {0, 50, 100, 250, 500, 1000, 5000};
+    private static final String[] PRICE_LABELS = {"0-50", "50-100", "100-250", "250-500", "500-1000",
+            "1000-5000", "5000+"};
+    private static final Map<String, Long> ENDING_WINDOWS = windows();
+    private static final long HOUR = 3600;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, BitSet> categories = new HashMap<>();
+    // name to report each category id's count under, as last seen on its products
+    private final Map<Integer, String> categoryNames = new HashMap<>();
+    private final BitSet[] prices = new BitSet[PRICE_BOUNDS.length];
+    private final BitSet active = new BitSet();
+    private final BitSet closed = new BitSet();
+    // open auctions by the hour (epoch seconds / 3600) their endTime falls in
+    private final TreeMap<Long, BitSet> endingByHour = new TreeMap<>();
+    // per product, indexed by id
+    private int[] categoryOf = new int[1024];
+    private long[] endsAt = new long[1024];
+    private double[] priceOf = new double[1024];
+    // products an event has already put in place (or deleted), so the initial load leaves them alone
+    private final BitSet touchedDuringLoad = new BitSet();
+    private volatile boolean ready;
+
+    @Value("${browse.index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Filters of one browse request; null means not filtered on.
+     */
+    public record Query(Integer categoryId, String price, String ending, String status) {
+    }
+
+    public record Result(int total, List<Integer> productIds, Map<String, Map<String, Integer>> facets) {
+    }
+
+    public ProductFacetIndex() {
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = new BitSet();
+        }
+    }
+
+    private static Map<String, Long> windows() {
+        Map<String, Long> w = new LinkedHashMap<>();
+        w.put("1h", HOUR);
+        w.put("24h", 24 * HOUR);
+        w.put("7d", 7 * 24 * HOUR);
+        return w;
+    }
+
+    public static boolean isPriceBucket(String label) {
+        return Arrays.asList(PRICE_LABELS).contains(label);
+    }
+
+    public static boolean isEndingWindow(String window) {
+        return ENDING_WINDOWS.containsKey(window);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void loadProduct(Product p) {
+        lock.writeLock().lock();
+        try {
+            if (p.getId() != null && !touchedDuringLoad.get(p.getId())) {
+                put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void loaded(long millis) {
+        ready = true;
+        log.info("Browse index loaded in {} ms: {} active, {} closed, {} categories", millis,
+                active.cardinality(), closed.cardinality(), categories.size());
+    }
+
+    @Override
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Integer id = event.productId();
+        if (!enabled || id == null || id < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                touchedDuringLoad.set(id);
+            }
+            if (event.isDeleted()) {
+                remove(id);
+            } else {
+                put(event.product());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A bid moved the product's {@code currentBid}; only its price bucket can have changed.
+     */
+    public void onBidsAccepted(Product product) {
+        Integer id = product.getId();
+        if (!enabled || id == null || product.getCurrentBid() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (contains(id)) {
+                prices[bucket(priceOf[id])].clear(id);
+                priceOf[id] = product.getCurrentBid();
+                prices[bucket(priceOf[id])].set(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One page of the products matching {@code query} in the given order, with the number of
+     * matches and the facet counts.
+     */
+    public Result browse(Query query, String sort, int offset, int limit) {
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        lock.readLock().lock();
+        try {
+            BitSet category = query.categoryId() == null ? null
+                    : categories.getOrDefault(query.categoryId(), new BitSet());
+            BitSet price = query.price() == null ? null : prices[Arrays.asList(PRICE_LABELS).indexOf(query.price())];
+            BitSet ending = query.ending() == null ? null : ending(now, ENDING_WINDOWS.get(query.ending()));
+            BitSet status = query.status() == null ? null : ACTIVE.equals(query.status()) ? active : closed;
+
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            BitSet base = and(price, ending, status);
+            Map<String, Integer> categoryCounts = new TreeMap<>();
+            categories.forEach((value, bits) -> {
+                int n = count(base, bits);
+                if (n > 0) {
+                    categoryCounts.merge(categoryNames.get(value), n, Integer::sum);
+                }
+            });
+            facets.put("category", categoryCounts);
+
+            Map<String, Integer> priceCounts = new LinkedHashMap<>();
+            BitSet withoutPrice = and(category, ending, status);
+            for (int i = 0; i < prices.length; i++) {
+                priceCounts.put(PRICE_LABELS[i], count(withoutPrice, prices[i]));
+            }
+            facets.put("price", priceCounts);
+
+            Map<String, Integer> endingCounts = new LinkedHashMap<>();
+            BitSet withoutEnding = and(category, price, status);
+            for (Map.Entry<String, Long> w : ENDING_WINDOWS.entrySet()) {
+                endingCounts.put(w.getKey(), count(withoutEnding, ending(now, w.getValue())));
+            }
+            facets.put("ending", endingCounts);
+
+            Map<String, Integer> statusCounts = new LinkedHashMap<>();
+            BitSet withoutStatus = and(category, price, ending);
+            statusCounts.put(ACTIVE, count(withoutStatus, active));
+            statusCounts.put(CLOSED, count(withoutStatus, closed));
+            facets.put("status", statusCounts);
+
+            BitSet matches = and(category, price, ending, status);
+            if (matches == null) {
+                matches = (BitSet) active.clone();
+                matches.or(closed);
+            }
+            return new Result(matches.cardinality(), page(matches, sort, now, offset, limit), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> page(BitSet matches, String sort, long now, int offset, int limit) {
+        int window = offset + limit;
+        List<Integer> ids = new ArrayList<>(window);
+        switch (sort) {
+            case "newest" -> {
+                // highest ids first, straight off the bitset
+                for (int id = matches.length() - 1; id >= 0 && ids.size() < window;
+                     id = matches.previousSetBit(id - 1)) {
+                    ids.add(id);
+                }
+            }
+            case "ending" -> {
+                // open auctions hour by hour from now, so only the hours the page reaches are read;
+                // then whatever has already ended
+                Comparator<Integer> byEnd = Comparator.comparingLong((Integer id) -> endsAt[id])
+                        .thenComparing(Comparator.<Integer>reverseOrder());
+                BitSet rest = (BitSet) matches.clone();
+                for (BitSet hour : endingByHour.tailMap(now / HOUR, true).values()) {
+                    if (ids.size() >= window) {
+                        break;
+                    }
+                    List<Integer> inHour = new ArrayList<>();
+                    for (int id = hour.nextSetBit(0); id >= 0; id = hour.nextSetBit(id + 1)) {
+                        if (matches.get(id) && endsAt[id] > now) {
+                            inHour.add(id);
+                            rest.clear(id);
+                        }
+                    }
+                    inHour.sort(byEnd);
+                    ids.addAll(inHour);
+                }
+                if (ids.size() < window) {
+                    ids.addAll(best(rest, byEnd, window - ids.size()));
+                }
+            }
+            case "price_asc" -> ids.addAll(best(matches, Comparator.comparingDouble((Integer id) -> priceOf[id])
+                    .thenComparing(Comparator.<Integer>reverseOrder()), window));
+            default -> ids.addAll(best(matches, Comparator.comparingDouble((Integer id) -> -priceOf[id])
+                    .thenComparing(Comparator.<Integer>reverseOrder()), window));
+        }
+        return offset >= ids.size() ? List.of() : ids.subList(offset, Math.min(ids.size(), window));
+    }
+
+    // the first n ids of the set in the given order
+    private static List<Integer> best(BitSet set, Comparator<Integer> order, int n) {
+        // the worst kept id on top
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(1, n + 1), order.reversed());
+        for (int id = set.nextSetBit(0); id >= 0; id = set.nextSetBit(id + 1)) {
+            top.add(id);
+            if (top.size() > n) {
+                top.poll();
+            }
+        }
+        List<Integer> ids = new ArrayList<>(top);
+        ids.sort(order);
+        return ids;
+    }
+
+    // open auctions ending in (now, now + seconds]
+    private BitSet ending(long now, long seconds) {
+        long until = now + seconds;
+        BitSet bits = new BitSet();
+        for (Map.Entry<Long, BitSet> hour : endingByHour.subMap(now / HOUR, true, until / HOUR, true).entrySet()) {
+            long start = hour.getKey() * HOUR;
+            if (start > now && start + HOUR - 1 <= until) {
+                bits.or(hour.getValue());
+                continue;
+            }
+            // a partial hour at either edge: check each end time
+            BitSet b = hour.getValue();
+            for (int id = b.nextSetBit(0); id >= 0; id = b.nextSetBit(id + 1)) {
+                if (endsAt[id] > now && endsAt[id] <= until) {
+                    bits.set(id);
+                }
+            }
+        }
+        return bits;
+    }
+
+    // AND of the given filters, null (no filter) when none is set
+    private static BitSet and(BitSet... filters) {
+        BitSet result = null;
+        for (BitSet f : filters) {
+            if (f == null) {
+                continue;
+            }
+            if (result == null) {
+                result = (BitSet) f.clone();
+            } else {
+                result.and(f);
+            }
+        }
+        return result;
+    }
+
+    private static int count(BitSet filter, BitSet value) {
+        if (filter == null) {
+            return value.cardinality();
+        }
+        BitSet both = (BitSet) (filter.length() < value.length() ? filter : value).clone();
+        both.and(filter.length() < value.length() ? value : filter);
+        return both.cardinality();
+    }
+
+    private void put(Product p) {
+        Integer id = p.getId();
+        if (id == null || id < 0) {
+            return;
+        }
+        remove(id);
+        ensureCapacity(id);
+        int category = p.getCategoryId() == null ? 0 : p.getCategoryId();
+        categoryOf[id] = category;
+        categories.computeIfAbsent(category, c -> new BitSet()).set(id);
+        categoryNames.put(category, p.getCategory() == null ? "" : p.getCategory().trim());
+        priceOf[id] = p.getCurrentBid() == null ? 0 : p.getCurrentBid();
+        prices[bucket(priceOf[id])].set(id);
+        endsAt[id] = p.getEndTime() == null ? 0 : p.getEndTime().toEpochSecond(ZoneOffset.UTC);
+        if (Boolean.TRUE.equals(p.getFrozen()) || Boolean.TRUE.equals(p.getSold())) {
+            closed.set(id);
+        } else {
+            active.set(id);
+            if (p.getEndTime() != null) {
+                endingByHour.computeIfAbsent(endsAt[id] / HOUR, h -> new BitSet()).set(id);
+            }
+        }
+    }
+
+    private void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        BitSet category = categories.get(categoryOf[id]);
+        category.clear(id);
+        if (category.isEmpty()) {
+            categories.remove(categoryOf[id]);
+            categoryNames.remove(categoryOf[id]);
+        }
+        prices[bucket(priceOf[id])].clear(id);
+        if (active.get(id)) {
+            BitSet hour = endingByHour.get(endsAt[id] / HOUR);
+            if (hour != null) {
+                hour.clear(id);
+                if (hour.isEmpty()) {
+                    endingByHour.remove(endsAt[id] / HOUR);
+                }
+            }
+        }
+        active.clear(id);
+        closed.clear(id);
+    }
+
+    private boolean contains(Integer id) {
+        return id != null && id >= 0 && (active.get(id) || closed.get(id));
+    }
+
+    private static int bucket(double price) {
+        int i = PRICE_BOUNDS.length - 1;
+        while (i > 0 && price < PRICE_BOUNDS[i]) {
+            i--;
+        }
+        return i;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= categoryOf.length) {
+            int capacity = Math.max(id + 1, categoryOf.length + (categoryOf.length >> 1));
+            categoryOf = Arrays.copyOf(categoryOf, capacity);
+            endsAt = Arrays.copyOf(endsAt, capacity);
+            priceOf = Arrays.copyOf(priceOf, capacity);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.util.Map;
+
+/**
+ * An in-memory view of the catalogue. {@link ProductIndexLoader} fills every enabled one from a
+ * single pass over the products, then feeds them changes made through other instances; changes
+ * made here arrive as {@link ProductChangedEvent}s as well.
+ */
+interface ProductIndex {
+
+    boolean isEnabled();
+
+    /**
+     * Runs in the load's read-only transaction, before the products are streamed.
+     */
+    default void beforeLoad() {
+    }
+
+    /**
+     * One product of the initial load. A product an event has already put in place (or deleted)
+     * is left alone, since the event is newer than the load's snapshot.
+     */
+    void loadProduct(Product product);
+
+    /**
+     * The load is complete; the index answers queries from now on.
+     */
+    void loaded(long millis);
+
+    void onProductChanged(ProductChangedEvent event);
+
+    /**
+     * Current bid counts of products whose bids changed, as read from the database.
+     */
+    default void onBidCounts(Map<Integer, Long> counts) {
+    }
+}
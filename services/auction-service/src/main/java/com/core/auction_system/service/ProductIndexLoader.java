@@ -0,0 +1,144 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.dto.BidResponseDTO;
+import com.core.auction_system.dto.ProductChangesDTO;
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProductTombstone;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Loads the in-memory product indexes (search, autocomplete, browse, ending-soon) and keeps them
+ * current across instances.
+ * <p>
+ * Once the application is ready, the products are streamed once and every enabled
+ * {@link ProductIndex} takes each of them in turn. After that the loader tails
+ * {@link ProductChangeFeed} from a cursor taken before the load, so products created, edited,
+ * closed or deleted through another instance, and bids placed there, reach this instance's
+ * indexes within {@code product.index.follow-ms}. This instance's own changes come back through
+ * the feed too; applying a product's latest state again changes nothing. A local event can be
+ * overwritten by a feed page read just before its commit, and is put back by the next poll.
+ */
+@Service
+public class ProductIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductIndexLoader.class);
+    private static final int FOLLOW_PAGE_SIZE = 500;
+
+    @Autowired
+    private List<ProductIndex> indexes;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${product.index.follow.enabled:true}")
+    private boolean followEnabled;
+
+    // where following the feed resumes; null until the load has finished
+    private volatile ProductChangeFeed.Cursor cursor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<ProductIndex> loading = indexes.stream().filter(ProductIndex::isEnabled).toList();
+        if (loading.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            // before the products are read, so whatever their snapshot misses comes after it
+            ProductChangeFeed.Cursor from = followEnabled ? productChangeFeed.head() : null;
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(true);
+            tx.executeWithoutResult(status -> {
+                loading.forEach(ProductIndex::beforeLoad);
+                try (Stream<Product> products = productRepository.streamAll()) {
+                    products.forEach(p -> {
+                        for (ProductIndex index : loading) {
+                            index.loadProduct(p);
+                        }
+                        entityManager.detach(p);
+                    });
+                }
+            });
+            long millis = System.currentTimeMillis() - started;
+            loading.forEach(index -> index.loaded(millis));
+            cursor = from;
+        } catch (RuntimeException e) {
+            log.error("Loading the product indexes failed, they stay unavailable: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies the changes committed since the last poll, a page at a time until the feed has no
+     * more ready.
+     */
+    @Scheduled(fixedDelayString = "${product.index.follow-ms:2000}")
+    public void follow() {
+        ProductChangeFeed.Cursor since = cursor;
+        if (since == null) {
+            return;
+        }
+        try {
+            ProductChangesDTO changes;
+            do {
+                changes = productChangeFeed.changesSince(since, FOLLOW_PAGE_SIZE);
+                apply(changes);
+                since = ProductChangeFeed.Cursor.parse(changes.getNextSince());
+                cursor = since;
+            } while (changes.isHasMore());
+        } catch (RuntimeException e) {
+            log.warn("Following the product change feed failed, retrying from {}: {}", cursor, e.getMessage());
+        }
+    }
+
+    private void apply(ProductChangesDTO changes) {
+        List<ProductIndex> following = indexes.stream().filter(ProductIndex::isEnabled).toList();
+        for (Product p : changes.getProducts()) {
+            ProductChangedEvent event = ProductChangedEvent.saved(p);
+            following.forEach(index -> index.onProductChanged(event));
+        }
+        for (ProductTombstone t : changes.getDeleted()) {
+            ProductChangedEvent event = ProductChangedEvent.deleted(t.getProductId());
+            following.forEach(index -> index.onProductChanged(event));
+        }
+        if (!changes.getBids().isEmpty()) {
+            // a raised bid shows up like a new one, so counts are read back rather than added up
+            Set<Integer> productIds = changes.getBids().stream().map(BidResponseDTO::getProductId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Map<Integer, Long> counts = new HashMap<>();
+            productIds.forEach(id -> counts.put(id, 0L));
+            for (Object[] row : bidRepository.countByProductIds(productIds)) {
+                counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+            }
+            following.forEach(index -> index.onBidCounts(counts));
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory full-text index over product name, category and description, behind
+ * {@code GET /api/products/v1/search}.
+ * <p>
+ * Text is folded to lower case without accents and split on anything that is not a letter or a
+ * digit. Every term has a posting list of product ids in ascending order with a field-weighted
+ * term frequency (a term in the name counts three times, in the category twice, in the
+ * description once). A query matches the products containing all of its terms, the last one also
+ * as a prefix so results follow the user's typing, and they are ranked with BM25.
+ * <p>
+ * The index is loaded by {@link ProductIndexLoader} once the application is ready and then follows
+ * {@link ProductChangedEvent}s for this instance's changes and the change feed for other instances'.
+ */
+@Service
+public class ProductSearchIndex implements ProductIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_TERM_LENGTH = 40;
+    // a one-letter prefix would expand to a large part of the dictionary
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // per product, indexed by id (ids come from a sequence, so these stay dense): its distinct
+    // terms, weighted length, and whether the auction is closed
+    private String[][] docTerms = new String[1024][];
+    private int[] docLengths = new int[1024];
+    private final BitSet closed = new BitSet();
+    private int docCount;
+    private long totalLength;
+    private long postingCount;
+    private volatile boolean ready;
+    // deletions seen while the initial load runs, so the load does not bring them back
+    private final Set<Integer> deletedDuringLoad = ConcurrentHashMap.newKeySet();
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    public record Hit(int productId, float score) {
+    }
+
+    public record Result(int total, List<Hit> hits) {
+    }
+
+    private static final class Postings {
+        final String term;
+        int[] ids = new int[2];
+        byte[] tfs = new byte[2];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        int find(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        int tf(int i) {
+            return tfs[i] & 0xff;
+        }
+
+        // new products have the highest ids, so this is nearly always an append
+        void put(int id, int tf) {
+            int i = size > 0 && ids[size - 1] < id ? -(size + 1) : find(id);
+            if (i >= 0) {
+                tfs[i] = (byte) tf;
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(tfs, i, tfs, i + 1, size - i);
+            ids[i] = id;
+            tfs[i] = (byte) tf;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int i = find(id);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(tfs, i + 1, tfs, i, size - i - 1);
+            size--;
+            return true;
+        }
+    }
+
+    // candidate products in ascending id order with their score so far
+    private static final class Matches {
+        final int[] ids;
+        final float[] scores;
+        int size;
+
+        Matches(int capacity) {
+            ids = new int[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(int id, float score) {
+            ids[size] = id;
+            scores[size] = score;
+            size++;
+        }
+    }
+
+    /**
+     * Lower-cased, accent-free words of {@code text}, in order.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String t : NON_WORD.split(folded)) {
+            if (!t.isEmpty() && t.length() <= MAX_TERM_LENGTH) {
+                tokens.add(t);
+            }
+        }
+        return tokens;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void loadProduct(Product p) {
+        lock.writeLock().lock();
+        try {
+            if (!contains(p.getId()) && !deletedDuringLoad.contains(p.getId())) {
+                put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void loaded(long millis) {
+        ready = true;
+        deletedDuringLoad.clear();
+        log.info("Search index loaded in {} ms: {}", millis, stats());
+    }
+
+    @Override
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!enabled || event.productId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.isDeleted()) {
+                remove(event.productId());
+                if (!ready) {
+                    deletedDuringLoad.add(event.productId());
+                }
+            } else {
+                put(event.product());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Products matching every term of {@code query}, best first, skipping {@code offset} of them.
+     * {@code total} counts all matches.
+     */
+    public Result search(String query, boolean activeOnly, int offset, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Result(0, List.of());
+        }
+        lock.readLock().lock();
+        try {
+            float avgLength = docCount == 0 ? 1 : (float) totalLength / docCount;
+            List<List<Postings>> groups = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                boolean prefix = i == tokens.size() - 1 && token.length() >= MIN_PREFIX_LENGTH;
+                List<Postings> group = prefix ? prefixTerms(token) : exactTerm(token);
+                if (group.isEmpty()) {
+                    return new Result(0, List.of());
+                }
+                groups.add(group);
+            }
+            // intersect starting from the rarest term
+            groups.sort(Comparator.comparingLong(ProductSearchIndex::groupSize));
+            if (groups.size() == 1 && groups.get(0).size() == 1) {
+                return rank(groups.get(0).get(0), avgLength, activeOnly, offset, limit);
+            }
+            Matches matches = collect(groups.get(0), avgLength);
+            for (int g = 1; g < groups.size() && matches.size > 0; g++) {
+                matches = intersect(matches, groups.get(g), avgLength);
+            }
+            return rank(matches, activeOnly, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("products", docCount);
+            stats.put("terms", terms.size());
+            stats.put("postings", postingCount);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Product p) {
+        Integer id = p.getId();
+        if (id == null || id < 0) {
+            return;
+        }
+        Map<String, Integer> tfs = new HashMap<>();
+        int length = count(tfs, p.getName(), NAME_WEIGHT)
+                + count(tfs, p.getCategory(), CATEGORY_WEIGHT)
+                + count(tfs, p.getDescription(), DESCRIPTION_WEIGHT);
+        remove(id);
+        String[] own = new String[tfs.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> e : tfs.entrySet()) {
+            Postings postings = terms.computeIfAbsent(e.getKey(), Postings::new);
+            postings.put(id, Math.min(e.getValue(), 255));
+            // share the dictionary's copy of the string
+            own[i++] = postings.term;
+        }
+        if (id >= docTerms.length) {
+            int capacity = Math.max(id + 1, docTerms.length + (docTerms.length >> 1));
+            docTerms = Arrays.copyOf(docTerms, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+        }
+        docTerms[id] = own;
+        docLengths[id] = length;
+        closed.set(id, Boolean.TRUE.equals(p.getFrozen()) || Boolean.TRUE.equals(p.getSold()));
+        docCount++;
+        totalLength += length;
+        postingCount += own.length;
+    }
+
+    private void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        for (String term : docTerms[id]) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+        docCount--;
+        totalLength -= docLengths[id];
+        postingCount -= docTerms[id].length;
+        docTerms[id] = null;
+        docLengths[id] = 0;
+        closed.clear(id);
+    }
+
+    private boolean contains(Integer id) {
+        return id != null && id >= 0 && id < docTerms.length && docTerms[id] != null;
+    }
+
+    private static int count(Map<String, Integer> tfs, String text, int weight) {
+        List<String> tokens = tokenize(text);
+        for (String t : tokens) {
+            tfs.merge(t, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private List<Postings> exactTerm(String token) {
+        Postings postings = terms.get(token);
+        return postings == null ? List.of() : List.of(postings);
+    }
+
+    // the term itself sorts first, then its longer completions
+    private List<Postings> prefixTerms(String prefix) {
+        List<Postings> group = new ArrayList<>();
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            group.add(postings);
+            if (group.size() == MAX_PREFIX_TERMS) {
+                break;
+            }
+        }
+        return group;
+    }
+
+    private static long groupSize(List<Postings> group) {
+        long size = 0;
+        for (Postings p : group) {
+            size += p.size;
+        }
+        return size;
+    }
+
+    private float idf(Postings p) {
+        return (float) Math.log(1 + (docCount - p.size + 0.5) / (p.size + 0.5));
+    }
+
+    private float score(Postings p, int i, float idf, float avgLength) {
+        int tf = p.tf(i);
+        float norm = K1 * (1 - B + B * docLengths[p.ids[i]] / avgLength);
+        return idf * tf * (K1 + 1) / (tf + norm);
+    }
+
+    private Matches scored(Postings p, float avgLength) {
+        float idf = idf(p);
+        Matches m = new Matches(p.size);
+        for (int i = 0; i < p.size; i++) {
+            m.add(p.ids[i], score(p, i, idf, avgLength));
+        }
+        return m;
+    }
+
+    // every product in the group with its best score among the group's terms, merging the
+    // posting lists pairwise
+    private Matches collect(List<Postings> group, float avgLength) {
+        List<Matches> lists = new ArrayList<>(group.size());
+        for (Postings p : group) {
+            lists.add(scored(p, avgLength));
+        }
+        while (lists.size() > 1) {
+            List<Matches> merged = new ArrayList<>((lists.size() + 1) / 2);
+            for (int i = 0; i < lists.size(); i += 2) {
+                merged.add(i + 1 < lists.size() ? union(lists.get(i), lists.get(i + 1)) : lists.get(i));
+            }
+            lists = merged;
+        }
+        return lists.get(0);
+    }
+
+    private static Matches union(Matches a, Matches b) {
+        Matches out = new Matches(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.ids[i] < b.ids[j])) {
+                out.add(a.ids[i], a.scores[i]);
+                i++;
+            } else if (i == a.size || b.ids[j] < a.ids[i]) {
+                out.add(b.ids[j], b.scores[j]);
+                j++;
+            } else {
+                out.add(a.ids[i], Math.max(a.scores[i], b.scores[j]));
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    // candidates that also contain one of the group's terms, adding the best of their scores
+    private Matches intersect(Matches matches, List<Postings> group, float avgLength) {
+        float[] best = new float[matches.size];
+        Arrays.fill(best, -1);
+        for (Postings p : group) {
+            float idf = idf(p);
+            int j = 0;
+            for (int i = 0; i < matches.size && j < p.size; i++) {
+                j = advance(p, j, matches.ids[i]);
+                if (j < p.size && p.ids[j] == matches.ids[i]) {
+                    best[i] = Math.max(best[i], score(p, j, idf, avgLength));
+                }
+            }
+        }
+        Matches out = new Matches(matches.size);
+        for (int i = 0; i < matches.size; i++) {
+            if (best[i] >= 0) {
+                out.add(matches.ids[i], matches.scores[i] + best[i]);
+            }
+        }
+        return out;
+    }
+
+    // first position at or after from whose id is >= target: galloping, so a long list is
+    // skipped through in steps instead of walked
+    private static int advance(Postings p, int from, int target) {
+        int step = 1;
+        int lo = from;
+        int hi = from;
+        while (hi < p.size && p.ids[hi] < target) {
+            lo = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        int i = Arrays.binarySearch(p.ids, lo, Math.min(hi + 1, p.size), target);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private Result rank(Matches matches, boolean activeOnly, int offset, int limit) {
+        TopK top = new TopK(offset + limit);
+        for (int i = 0; i < matches.size; i++) {
+            if (!activeOnly || !closed.get(matches.ids[i])) {
+                top.offer(matches.ids[i], matches.scores[i]);
+            }
+        }
+        return top.result(offset);
+    }
+
+    // single-term query: rank straight off the posting list
+    private Result rank(Postings p, float avgLength, boolean activeOnly, int offset, int limit) {
+        TopK top = new TopK(offset + limit);
+        float idf = idf(p);
+        for (int i = 0; i < p.size; i++) {
+            if (!activeOnly || !closed.get(p.ids[i])) {
+                top.offer(p.ids[i], score(p, i, idf, avgLength));
+            }
+        }
+        return top.result(offset);
+    }
+
+    // best hits by score, then by id (newer first), counting everything offered
+    private static final class TopK {
+        private static final Comparator<Hit> WORST_FIRST =
+                Comparator.comparingDouble(Hit::score).thenComparingInt(Hit::productId);
+
+        final int window;
+        final PriorityQueue<Hit> heap;
+        int total;
+        // the worst kept hit, once the window is full
+        float minScore;
+        int minId;
+
+        TopK(int window) {
+            this.window = window;
+            this.heap = new PriorityQueue<>(Math.max(1, window + 1), WORST_FIRST);
+        }
+
+        void offer(int id, float score) {
+            total++;
+            if (heap.size() == window) {
+                if (window == 0 || score < minScore || (score == minScore && id < minId)) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.add(new Hit(id, score));
+            if (heap.size() == window) {
+                minScore = heap.peek().score();
+                minId = heap.peek().productId();
+            }
+        }
+
+        Result result(int offset) {
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(WORST_FIRST.reversed());
+            return new Result(total, offset >= hits.size() ? List.of() : hits.subList(offset, hits.size()));
+        }
+    }
+}
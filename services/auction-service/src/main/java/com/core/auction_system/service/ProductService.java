@@ -1,21 +1,89 @@
 package com.core.auction_system.service;
 
+import com.core.auction_system.dto.ProductBrowseResultDTO;
 import com.core.auction_system.dto.ProductCreateDTO;
+import com.core.auction_system.dto.ProductSearchResultDTO;
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Category;
 import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProductSummary;
 import com.core.auction_system.repository.ProductRepository;
+import com.core.auction_system.repository.ProductSummaryRepository;
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 @Service
 public class ProductService {
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private ProductSummaryRepository productSummaryRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    @Autowired
+    private CategoryService categoryService;
+
+    public List<ProductSummary> getAllProducts() {
+        return productSummaryRepository.findAll();
+    }
+
+    /**
+     * One page of full-text search results, best match first, or null while the search index is
+     * unavailable (still loading, or disabled).
+     */
+    public ProductSearchResultDTO searchProducts(String query, boolean activeOnly, int page, int size) {
+        if (!productSearchIndex.isReady()) {
+            return null;
+        }
+        ProductSearchIndex.Result result = productSearchIndex.search(query, activeOnly, page * size, size);
+        List<Integer> ids = result.hits().stream().map(ProductSearchIndex.Hit::productId).toList();
+        return new ProductSearchResultDTO(query, result.total(), page, size, getSummaries(ids));
+    }
+
+    /**
+     * One page of the products matching the filters, with facet counts, or null while the browse
+     * index is unavailable (still loading, or disabled).
+     */
+    public ProductBrowseResultDTO browseProducts(ProductFacetIndex.Query query, String sort, int page, int size) {
+        if (!productFacetIndex.isReady()) {
+            return null;
+        }
+        ProductFacetIndex.Result result = productFacetIndex.browse(query, sort, page * size, size);
+        return new ProductBrowseResultDTO(result.total(), page, size, getSummaries(result.productIds()),
+                result.facets());
+    }
+
+    /**
+     * Listing rows for a page of ids, in one query and in the same order; a product deleted
+     * through another instance is simply left out.
+     */
+    public List<ProductSummary> getSummaries(List<Integer> ids) {
+        Map<Integer, ProductSummary> byId = productSummaryRepository.findAllById(new LinkedHashSet<>(ids)).stream()
+                .collect(Collectors.toMap(ProductSummary::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    /**
+     * The products with these ids, read in one query and returned in the same order, with null
+     * where no product has the id.
+     */
+    public List<Product> getProductsByIds(List<Integer> ids) {
+        Map<Integer, Product> byId = productRepository.findAllById(new LinkedHashSet<>(ids)).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(byId::get).toList();
     }
 
     public Optional<Product> getProductById(Integer id) {
@@ -57,7 +125,7 @@ public class ProductService {
         Product product = new Product();
         product.setName(dto.getName().trim());
         product.setDescription(dto.getDescription() != null ? dto.getDescription().trim() : "");
-        product.setCategory(dto.getCategory().trim());
+        setCategory(product, categoryService.resolveOrCreate(dto.getCategory()));
         product.setMinBid(dto.getMinBid());
         product.setMaxBid(dto.getMaxBid());
         product.setEndTime(dto.getEndTime());
@@ -71,7 +139,7 @@ public class ProductService {
         product.setSold(false);
         product.setBuyerId(null);
 
-        return productRepository.save(product);
+        return saved(productRepository.save(product));
     }
 
     public Product updateProduct(Integer id, Product updatedProduct) {
@@ -79,14 +147,19 @@ public class ProductService {
                 .map(product -> {
                     product.setName(updatedProduct.getName());
                     product.setDescription(updatedProduct.getDescription());
-                    product.setCategory(updatedProduct.getCategory());
+                    if (updatedProduct.getCategoryId() != null) {
+                        setCategory(product, categoryService.getCategoryById(updatedProduct.getCategoryId())
+                                .orElseThrow(() -> new IllegalArgumentException("Unknown categoryId")));
+                    } else if (updatedProduct.getCategory() != null && !updatedProduct.getCategory().isBlank()) {
+                        setCategory(product, categoryService.resolveOrCreate(updatedProduct.getCategory()));
+                    }
                     product.setMinBid(updatedProduct.getMinBid());
                     product.setMaxBid(updatedProduct.getMaxBid());
                     if (updatedProduct.getEndTime() != null && !isValidEndTime(updatedProduct.getEndTime())) {
                         throw new IllegalArgumentException("endTime must be on the hour and in the future");
                     }
                     product.setEndTime(updatedProduct.getEndTime());
-                    return productRepository.save(product);
+                    return saved(productRepository.save(product));
                 })
                 .orElse(null);
     }
@@ -104,17 +177,33 @@ public class ProductService {
 
     public void deleteProduct(Integer id) {
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category);
+    /**
+     * Products in the category with this id or name; empty when there is no such category.
+     */
+    public List<ProductSummary> getProductsByCategory(String idOrName) {
+        return categoryService.resolve(idOrName)
+                .map(c -> productSummaryRepository.findByCategoryId(c.getId()))
+                .orElse(List.of());
     }
 
-    public List<Product> getProductsBySeller(Integer sellerId) {
-        return productRepository.findBySellerId(sellerId);
+    public List<ProductSummary> getProductsBySeller(Integer sellerId) {
+        return productSummaryRepository.findBySellerId(sellerId);
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        return saved(productRepository.save(product));
+    }
+
+    private static void setCategory(Product product, Category category) {
+        product.setCategoryId(category.getId());
+        product.setCategory(category.getName());
+    }
+
+    private Product saved(Product product) {
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+        return product;
     }
 }
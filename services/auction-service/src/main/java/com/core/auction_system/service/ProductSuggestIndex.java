@@ -0,0 +1,594 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.repository.BidRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Autocomplete for product names and categories, behind {@code GET /api/products/v1/suggest}.
+ * <p>
+ * The names and categories of open auctions are kept in two radix tries, folded the way
+ * {@link ProductSearchIndex} folds text. An edge carries a whole string, so a run of
+ * single-child nodes takes one node. Every node caches its {@value #MAX_SUGGESTIONS} best
+ * completions by bid count. A lookup walks down the prefix and returns that list without
+ * visiting the subtree. An accepted bid moves its name and category up in the caches along
+ * their paths; a removal or a lower count rebuilds those caches from the children.
+ * <p>
+ * Loaded by {@link ProductIndexLoader} once the application is ready, then kept current from
+ * {@link ProductChangedEvent}s, this instance's accepted bids and the change feed.
+ */
+@Service
+public class ProductSuggestIndex implements ProductIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+    private static final int MAX_CATEGORY_SUGGESTIONS = 2;
+    // how long a memory estimate is reused; computing one walks both tries
+    private static final long FOOTPRINT_TTL_MS = 60_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Trie names = new Trie();
+    private final Trie categories = new Trie();
+    // per product, indexed by id: bid count and the entries it counts towards (null when closed)
+    private int[] bids = new int[1024];
+    private Entry[] nameOf = new Entry[1024];
+    private Entry[] categoryOf = new Entry[1024];
+    // products an event has already put in place, so the initial load leaves them alone
+    private final BitSet touchedDuringLoad = new BitSet();
+    private volatile boolean ready;
+    private volatile Map<String, Object> footprint;
+    private volatile long footprintAt;
+
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${suggest.index.enabled:true}")
+    private boolean enabled;
+
+    public record Suggestion(String text, String type, long bids) {
+    }
+
+    private static final class Entry {
+        final String key;
+        String text;
+        long bids;
+        int products;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+
+    // most bids first, then more products under the same text, then alphabetical
+    private static final Comparator<Entry> BEST_FIRST = Comparator.comparingLong((Entry e) -> e.bids).reversed()
+            .thenComparing(Comparator.comparingInt((Entry e) -> e.products).reversed())
+            .thenComparing(e -> e.key);
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        String label;
+        Node[] children = NO_CHILDREN;
+        Entry entry;
+        Entry[] top = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char c) {
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char m = children[mid].label.charAt(0);
+                if (m < c) {
+                    lo = mid + 1;
+                } else if (m > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+
+        void insertChild(int at, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        void removeChild(Node child) {
+            int at = childIndex(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, at);
+            System.arraycopy(children, at + 1, shrunk, at, children.length - at - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        // e's count went up: move it up in this node's cache, or into it
+        void raise(Entry e) {
+            int at = indexOf(top, e);
+            if (at < 0) {
+                if (top.length == MAX_SUGGESTIONS && BEST_FIRST.compare(e, top[top.length - 1]) >= 0) {
+                    return;
+                }
+                top = Arrays.copyOf(top, Math.min(top.length + 1, MAX_SUGGESTIONS));
+                at = top.length - 1;
+            }
+            while (at > 0 && BEST_FIRST.compare(e, top[at - 1]) < 0) {
+                top[at] = top[at - 1];
+                at--;
+            }
+            top[at] = e;
+        }
+
+        // best completions among this node's own entry and its children's caches
+        void rebuild() {
+            List<Entry> candidates = new ArrayList<>();
+            if (entry != null) {
+                candidates.add(entry);
+            }
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            candidates.sort(BEST_FIRST);
+            top = candidates.isEmpty() ? NO_ENTRIES
+                    : candidates.subList(0, Math.min(MAX_SUGGESTIONS, candidates.size())).toArray(Entry[]::new);
+        }
+    }
+
+    private static int indexOf(Entry[] entries, Entry e) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == e) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Trie {
+        final Node root = new Node("");
+        int entries;
+
+        // the entry for key, created (with its nodes) if needed
+        Entry entry(String key) {
+            Node node = root;
+            int pos = 0;
+            while (pos < key.length()) {
+                int ci = node.childIndex(key.charAt(pos));
+                if (ci < 0) {
+                    Node leaf = new Node(key.substring(pos));
+                    node.insertChild(-ci - 1, leaf);
+                    node = leaf;
+                    break;
+                }
+                Node child = node.children[ci];
+                int common = commonPrefix(child.label, key, pos);
+                if (common < child.label.length()) {
+                    // the key ends or branches off inside this edge: split it
+                    Node mid = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    mid.children = new Node[] {child};
+                    mid.top = child.top.clone();
+                    node.children[ci] = mid;
+                    child = mid;
+                }
+                node = child;
+                pos += common;
+            }
+            if (node.entry == null) {
+                node.entry = new Entry(key);
+                entries++;
+            }
+            return node.entry;
+        }
+
+        // nodes from the root down to where key's path ends
+        List<Node> path(String key) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            int pos = 0;
+            path.add(node);
+            while (pos < key.length()) {
+                int ci = node.childIndex(key.charAt(pos));
+                if (ci < 0) {
+                    break;
+                }
+                Node child = node.children[ci];
+                if (!key.startsWith(child.label, pos)) {
+                    break;
+                }
+                node = child;
+                pos += child.label.length();
+                path.add(node);
+            }
+            return path;
+        }
+
+        void raised(Entry e) {
+            for (Node node : path(e.key)) {
+                node.raise(e);
+            }
+        }
+
+        void lowered(Entry e) {
+            List<Node> path = path(e.key);
+            for (int i = path.size() - 1; i >= 0; i--) {
+                path.get(i).rebuild();
+            }
+        }
+
+        void remove(Entry e) {
+            List<Node> path = path(e.key);
+            Node node = path.get(path.size() - 1);
+            if (node.entry != e) {
+                return;
+            }
+            node.entry = null;
+            entries--;
+            // keep the trie compact: drop an empty leaf, fold a pass-through node into its child
+            Node parent = path.size() > 1 ? path.get(path.size() - 2) : null;
+            if (parent != null && node.children.length == 0) {
+                parent.removeChild(node);
+                if (parent != root && parent.entry == null && parent.children.length == 1) {
+                    absorbChild(parent);
+                }
+            } else if (parent != null && node.children.length == 1) {
+                absorbChild(node);
+            }
+            lowered(e);
+        }
+
+        private static void absorbChild(Node node) {
+            Node child = node.children[0];
+            node.label = node.label + child.label;
+            node.entry = child.entry;
+            node.children = child.children;
+            node.top = child.top;
+        }
+
+        List<Entry> complete(String prefix) {
+            Node node = root;
+            int pos = 0;
+            while (pos < prefix.length()) {
+                int ci = node.childIndex(prefix.charAt(pos));
+                if (ci < 0) {
+                    return List.of();
+                }
+                Node child = node.children[ci];
+                int common = commonPrefix(child.label, prefix, pos);
+                if (pos + common == prefix.length()) {
+                    // the prefix ends on or inside this edge
+                    return Arrays.asList(child.top);
+                }
+                if (common < child.label.length()) {
+                    return List.of();
+                }
+                node = child;
+                pos += common;
+            }
+            return Arrays.asList(node.top);
+        }
+
+        // nodes, label characters, cached completions, entry texts
+        long[] measure() {
+            long[] m = new long[4];
+            List<Node> stack = new ArrayList<>();
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.remove(stack.size() - 1);
+                m[0]++;
+                m[1] += node.label.length();
+                m[2] += node.top.length;
+                if (node.entry != null) {
+                    m[3] += node.entry.key.length() + node.entry.text.length();
+                }
+                stack.addAll(Arrays.asList(node.children));
+            }
+            return m;
+        }
+
+        private static int commonPrefix(String label, String key, int pos) {
+            int n = Math.min(label.length(), key.length() - pos);
+            int i = 0;
+            while (i < n && label.charAt(i) == key.charAt(pos + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Trie key for a name or category: its words, folded, joined by single spaces.
+     */
+    static String key(String text) {
+        return String.join(" ", ProductSearchIndex.tokenize(text));
+    }
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("product.suggest.entries", this, s -> s.names.entries + s.categories.entries)
+                .description("Names and categories available for autocomplete")
+                .register(meterRegistry);
+        Gauge.builder("product.suggest.memory", this, s -> ((Number) s.footprint().get("estimatedBytes")).doubleValue())
+                .description("Estimated heap used by the autocomplete tries")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // bid counts first, so the products streamed next are attached with theirs
+    @Override
+    public void beforeLoad() {
+        try (Stream<Object[]> counts = bidRepository.streamBidCountsByProduct()) {
+            counts.forEach(row -> {
+                lock.writeLock().lock();
+                try {
+                    int id = ((Number) row[0]).intValue();
+                    int count = ((Number) row[1]).intValue();
+                    ensureCapacity(id);
+                    bids[id] += count;
+                    // products an event already put in place count their bids now
+                    addBids(names, nameOf[id], count);
+                    addBids(categories, categoryOf[id], count);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void loadProduct(Product p) {
+        lock.writeLock().lock();
+        try {
+            if (p.getId() != null && !touchedDuringLoad.get(p.getId())) {
+                put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void loaded(long millis) {
+        ready = true;
+        footprintAt = 0;
+        log.info("Suggest index loaded in {} ms: {}", millis, footprint());
+    }
+
+    @Override
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Integer id = event.productId();
+        if (!enabled || id == null || id < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                touchedDuringLoad.set(id);
+            }
+            if (event.isDeleted()) {
+                detach(id);
+                if (id < bids.length) {
+                    bids[id] = 0;
+                }
+            } else {
+                put(event.product());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bids committed for a product (new bids only; a raised bid is not a new one).
+     */
+    public void onBidsAccepted(Integer productId, int newBids) {
+        if (!enabled || productId == null || productId < 0 || newBids <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(productId);
+            bids[productId] += newBids;
+            addBids(names, nameOf[productId], newBids);
+            addBids(categories, categoryOf[productId], newBids);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bid counts read back from the database for products whose bids changed on any instance.
+     */
+    @Override
+    public void onBidCounts(Map<Integer, Long> counts) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            counts.forEach((id, count) -> {
+                if (id < 0) {
+                    return;
+                }
+                ensureCapacity(id);
+                int delta = count.intValue() - bids[id];
+                bids[id] += delta;
+                addBids(names, nameOf[id], delta);
+                addBids(categories, categoryOf[id], delta);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} completions of {@code prefix}: a couple of matching categories first,
+     * then product names, each by bid count.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = key(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<Suggestion> out = new ArrayList<>(limit);
+            for (Entry e : categories.complete(key)) {
+                if (out.size() == Math.min(MAX_CATEGORY_SUGGESTIONS, limit / 2)) {
+                    break;
+                }
+                out.add(new Suggestion(e.text, "category", e.bids));
+            }
+            for (Entry e : names.complete(key)) {
+                if (out.size() == limit) {
+                    break;
+                }
+                out.add(new Suggestion(e.text, "product", e.bids));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Entry counts and an estimate of the heap the tries take, also scaled to a million names.
+     */
+    public Map<String, Object> footprint() {
+        Map<String, Object> current = footprint;
+        if (current != null && System.currentTimeMillis() - footprintAt < FOOTPRINT_TTL_MS) {
+            return current;
+        }
+        lock.readLock().lock();
+        try {
+            long[] n = names.measure();
+            long[] c = categories.measure();
+            long nodes = n[0] + c[0];
+            // compressed oops: a node is ~32 bytes, its label a String (~40 bytes plus one per
+            // Latin-1 char), its cache an array (16 bytes plus 4 per entry); an entry is ~32 bytes
+            // plus two Strings; per product id, two references and a count
+            long bytes = nodes * (32 + 40 + 16) + n[1] + c[1]
+                    + (n[2] + c[2]) * 4
+                    + (long) (names.entries + categories.entries) * (32 + 2 * 40) + n[3] + c[3]
+                    + (long) bids.length * 12;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("names", names.entries);
+            stats.put("categories", categories.entries);
+            stats.put("nodes", nodes);
+            stats.put("estimatedBytes", bytes);
+            stats.put("bytesPerMillionNames", names.entries == 0 ? 0 : bytes * 1_000_000 / names.entries);
+            footprint = stats;
+            footprintAt = System.currentTimeMillis();
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // counts the product towards its name and category while its auction is open
+    private void put(Product p) {
+        int id = p.getId();
+        ensureCapacity(id);
+        boolean open = !Boolean.TRUE.equals(p.getFrozen()) && !Boolean.TRUE.equals(p.getSold());
+        String nameKey = open ? key(p.getName()) : "";
+        String categoryKey = open ? key(p.getCategory()) : "";
+        if (nameOf[id] != null && nameOf[id].key.equals(nameKey)
+                && categoryOf[id] != null && categoryOf[id].key.equals(categoryKey)) {
+            nameOf[id].text = p.getName().trim();
+            return;
+        }
+        detach(id);
+        if (nameKey.isEmpty() || categoryKey.isEmpty()) {
+            return;
+        }
+        nameOf[id] = attach(names, nameKey, p.getName().trim(), bids[id]);
+        categoryOf[id] = attach(categories, categoryKey, p.getCategory().trim(), bids[id]);
+    }
+
+    private Entry attach(Trie trie, String key, String text, int productBids) {
+        Entry e = trie.entry(key);
+        e.text = text;
+        e.products++;
+        e.bids += productBids;
+        trie.raised(e);
+        return e;
+    }
+
+    private void detach(int id) {
+        if (id >= nameOf.length || nameOf[id] == null) {
+            return;
+        }
+        release(names, nameOf[id], bids[id]);
+        release(categories, categoryOf[id], bids[id]);
+        nameOf[id] = null;
+        categoryOf[id] = null;
+    }
+
+    private static void release(Trie trie, Entry e, int productBids) {
+        e.products--;
+        e.bids -= productBids;
+        if (e.products == 0) {
+            trie.remove(e);
+        } else {
+            trie.lowered(e);
+        }
+    }
+
+    private static void addBids(Trie trie, Entry e, int delta) {
+        if (e == null || delta == 0) {
+            return;
+        }
+        e.bids += delta;
+        if (delta > 0) {
+            trie.raised(e);
+        } else {
+            trie.lowered(e);
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= bids.length) {
+            int capacity = Math.max(id + 1, bids.length + (bids.length >> 1));
+            bids = Arrays.copyOf(bids, capacity);
+            nameOf = Arrays.copyOf(nameOf, capacity);
+            categoryOf = Arrays.copyOf(categoryOf, capacity);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Last known {@code Product.version} per product, so a conditional {@code GET /api/products/v1/{id}}
+ * whose ETag is still current is answered 304 without touching the database.
+ * <p>
+ * Versions only ever come from a database read. Local changes (product events, accepted bids)
+ * invalidate the entry, and a read that started before an invalidation is not allowed to put its
+ * now-possibly-old version back. Changes made through other instances are only seen once an
+ * entry expires ({@code product.etag.ttl-ms}), which bounds how long a 304 can be stale.
+ */
+@Component
+public class ProductVersionCache {
+
+    private static final long NONE = -1;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<Integer, Entry> entries;
+    @Value("${product.etag.ttl-ms:5000}")
+    private long ttlMs;
+
+    // version NONE marks an invalidation; written is the clock value of the write
+    private record Entry(long version, long written, long expiresAt) {
+    }
+
+    public ProductVersionCache(@Value("${product.etag.cache-size:100000}") int cacheSize) {
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * The cached version, or null when the product has to be read.
+     */
+    public Long version(Integer id) {
+        Entry e = entries.get(id);
+        if (e == null || e.version() == NONE || e.expiresAt() < System.currentTimeMillis()) {
+            return null;
+        }
+        return e.version();
+    }
+
+    /**
+     * Take before reading the product, then pass to {@link #put}.
+     */
+    public long stamp() {
+        return clock.incrementAndGet();
+    }
+
+    public void put(Integer id, Long version, long stamp) {
+        if (id == null || version == null) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        entries.compute(id, (k, e) -> e != null && e.written() > stamp ? e : new Entry(version, stamp, expiresAt));
+    }
+
+    public void invalidate(Integer id) {
+        if (id != null) {
+            entries.put(id, new Entry(NONE, clock.incrementAndGet(), 0));
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidate(event.productId());
+    }
+}
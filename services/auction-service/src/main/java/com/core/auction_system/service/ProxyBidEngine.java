@@ -0,0 +1,269 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.client.PaymentClient;
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProxyBid;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProxyBidRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Proxy (maximum) bidding.
+ * <p>
+ * A bidder registers a maximum once; whenever someone else takes the lead, the engine raises that
+ * bidder's bid by one increment, up to the maximum. Competing proxies on the same auction are
+ * resolved per auction - only the two highest maximums matter - and only the resulting amounts
+ * are written, through {@link BidWriter}. The auction keeps its one-bid-row-per-bidder shape: a
+ * proxy bidder's existing row is raised instead of a new row being added.
+ * <p>
+ * Each resolution reads the auction's active proxies from the database and holds their row locks
+ * until it is done, so a proxy registered through any instance takes part, and two instances
+ * never resolve the same auction at once. Bids are written by {@link BidWriter} in its own
+ * transaction, which locks the product row, never the proxies.
+ */
+@Service
+public class ProxyBidEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ProxyBidEngine.class);
+    private static final int MAX_RESOLVE_ATTEMPTS = 3;
+    // highest maximum first; on equal maximums the earlier registration wins
+    private static final Comparator<ProxyBid> PRIORITY = Comparator
+            .comparing(ProxyBid::getMaxAmount, Comparator.reverseOrder())
+            .thenComparing(ProxyBid::getCreatedAt)
+            .thenComparing(ProxyBid::getId);
+
+    @Autowired
+    private ProxyBidRepository proxyBidRepository;
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private PaymentClient paymentClient;
+    @Autowired
+    private BidWriter bidWriter;
+    @Autowired
+    private WalletExposureCache walletExposure;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${proxy.bid.increment:1}")
+    private int increment;
+
+    /**
+     * Register a proxy bid and immediately resolve the auction against it.
+     */
+    public RegistrationResult register(Integer productId, Integer maxAmount, Integer bidderId, String email) {
+        if (productId == null) {
+            return RegistrationResult.error(400, "productId required");
+        }
+        if (maxAmount == null) {
+            return RegistrationResult.error(400, "maxAmount required");
+        }
+        if (bidderId == null) {
+            return RegistrationResult.error(400, "bidder id required");
+        }
+        if (walletExposure.isUnaffordable(bidderId, maxAmount)) {
+            return RegistrationResult.error(402, "payment_reserve_failed", "insufficient_funds");
+        }
+        Product product = productService.getProductById(productId).orElse(null);
+        if (product == null) {
+            return RegistrationResult.error(400, "Product not found");
+        }
+        if (product.getMinBid() == null || product.getMaxBid() == null) {
+            return RegistrationResult.error(400, "Product min/max required");
+        }
+        if (maxAmount < product.getMinBid()) {
+            return RegistrationResult.error(400, "Bid below minimum");
+        }
+        if (maxAmount > product.getMaxBid()) {
+            return RegistrationResult.error(400, "Bid above maximum");
+        }
+        if (bidRepository.existsByBidderIdAndProduct(bidderId, product)
+                || proxyBidRepository.existsByProductIdAndBidderId(productId, bidderId)) {
+            return RegistrationResult.error(400, "User already bid");
+        }
+        if (isClosed(product)) {
+            return RegistrationResult.error(400, "Auction closed");
+        }
+        if (product.getCurrentBid() != null && maxAmount <= product.getCurrentBid()) {
+            return RegistrationResult.error(400, "Bid not higher than current");
+        }
+
+        // reserve the whole maximum once; later automatic raises never call payment-service
+        PaymentClient.FreezeResponse fr = paymentClient.freeze(bidderId, (double) maxAmount, email);
+        if (fr != null) {
+            walletExposure.onFreeze(bidderId, maxAmount, fr.ok, fr.reason, fr.version);
+        }
+        if (fr == null || !fr.ok) {
+            String reason = fr == null ? "unknown" : (fr.reason == null ? "insufficient_funds" : fr.reason);
+            return RegistrationResult.error(402, "payment_reserve_failed", reason);
+        }
+
+        ProxyBid proxy = new ProxyBid();
+        proxy.setProductId(productId);
+        proxy.setBidderId(bidderId);
+        proxy.setEmail(email);
+        proxy.setMaxAmount(maxAmount);
+        proxy.setReservationId(fr.reservationId);
+        proxy.setActive(true);
+        proxy.setReleased(false);
+        proxy.setCreatedAt(LocalDateTime.now());
+        ProxyBid saved = proxyBidRepository.save(proxy);
+        log.info("Proxy bid registered: id={} productId={} bidderId={} max={}", saved.getId(), productId, bidderId,
+                maxAmount);
+
+        // saved in its own transaction, so the locking read below already sees it
+        resolveLocked(productId);
+
+        Product after = productService.getProductById(productId).orElse(product);
+        Integer leaderId = bidRepository.findTopByProductOrderByAmountDesc(after).map(Bid::getBidderId).orElse(null);
+        return RegistrationResult.success(saved, after.getCurrentBid(), Objects.equals(leaderId, bidderId));
+    }
+
+    /**
+     * Called after a regular bid was accepted; lets standing proxies answer it.
+     */
+    public void onBidPlaced(Integer productId) {
+        resolveLocked(productId);
+    }
+
+    /**
+     * Called when an auction is closed; proxies stop bidding.
+     */
+    public void onAuctionClosed(Integer productId) {
+        proxyBidRepository.deactivateByProductId(productId);
+    }
+
+    /**
+     * The proxies on this auction that hold a reservation, by reservation id. Proxy bidders have
+     * their maximum reserved, not their final bid, so settlement must release the difference; a
+     * proxy that never got a bid row written (it lost a tie, or resolution gave up) still holds
+     * its whole maximum.
+     */
+    public Map<String, ProxyBid> reservations(Integer productId) {
+        Map<String, ProxyBid> reserved = new HashMap<>();
+        for (ProxyBid p : proxyBidRepository.findByProductId(productId)) {
+            if (p.getReservationId() != null) {
+                reserved.put(p.getReservationId(), p);
+            }
+        }
+        return reserved;
+    }
+
+    private void resolveLocked(Integer productId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ProxyBid> book = new ArrayList<>(proxyBidRepository.findActiveByProductIdForUpdate(productId));
+            if (!book.isEmpty()) {
+                resolve(productId, book);
+            }
+        });
+    }
+
+    // runs in the transaction holding the book's row locks; nothing it reads is written back from it
+    private void resolve(Integer productId, List<ProxyBid> book) {
+        for (int attempt = 0; attempt < MAX_RESOLVE_ATTEMPTS; attempt++) {
+            // the product (and bid rows) BidWriter just moved are read again, not taken from this
+            // transaction's cache; the row locks stay
+            entityManager.clear();
+            Product product = productService.getProductById(productId).orElse(null);
+            if (product == null || isClosed(product) || book.isEmpty()) {
+                return;
+            }
+            book.sort(PRIORITY);
+            ProxyBid leader = book.get(0);
+            ProxyBid runnerUp = book.size() > 1 ? book.get(1) : null;
+            int current = product.getCurrentBid() == null ? 0 : (int) Math.ceil(product.getCurrentBid());
+            Integer currentLeader = bidRepository.findTopByProductOrderByAmountDesc(product)
+                    .map(Bid::getBidderId).orElse(null);
+            boolean leaderAhead = current > 0 && Objects.equals(currentLeader, leader.getBidderId());
+            int competitor = runnerUp == null ? 0 : runnerUp.getMaxAmount();
+            boolean tie = runnerUp != null && competitor == leader.getMaxAmount();
+
+            if (leaderAhead && competitor <= current) {
+                return;
+            }
+            int threshold = Math.max(leaderAhead ? 0 : current, competitor);
+            int target = tie ? leader.getMaxAmount() : Math.min(leader.getMaxAmount(), threshold + increment);
+            target = Math.max(target, (int) Math.ceil(product.getMinBid()));
+            target = Math.min(target, (int) Math.floor(product.getMaxBid()));
+            if (target <= current || target > leader.getMaxAmount()) {
+                // every proxy is exhausted below the current price
+                return;
+            }
+
+            try {
+                // the runner-up is pushed to its maximum first so the bid history shows the contest
+                if (runnerUp != null && !tie && competitor > current) {
+                    writeProxyBid(product, runnerUp, competitor);
+                }
+                writeProxyBid(product, leader, target);
+                log.info("Proxy resolution on product {}: bidder {} leads at {} (max {}), runner-up max {}",
+                        productId, leader.getBidderId(), target, leader.getMaxAmount(), competitor);
+                return;
+            } catch (BidWriter.StaleBidException stale) {
+                // a regular bid landed in between; re-read the product and resolve again
+                log.debug("Proxy resolution on product {} raced a regular bid, retrying", productId);
+            }
+        }
+        log.warn("Proxy resolution on product {} gave up after {} attempts", productId, MAX_RESOLVE_ATTEMPTS);
+    }
+
+    private void writeProxyBid(Product product, ProxyBid proxy, int amount) {
+        Bid bid = bidRepository.findFirstByProductIdAndBidderId(product.getId(), proxy.getBidderId()).orElse(null);
+        if (bid == null) {
+            bid = new Bid();
+        } else {
+            // BidWriter saves the raise; the copy loaded here must not be flushed again at commit
+            entityManager.detach(bid);
+        }
+        bid.setAmount(amount);
+        bid.setProduct(product);
+        bid.setBidderId(proxy.getBidderId());
+        bid.setEmail(proxy.getEmail());
+        bid.setReservationId(proxy.getReservationId());
+        bid.setStatus("PENDING");
+        bid.setBidTime(LocalDateTime.now());
+        bidWriter.write(bid);
+    }
+
+    private boolean isClosed(Product product) {
+        return Boolean.TRUE.equals(product.getFrozen())
+                || (product.getEndTime() != null && LocalDateTime.now().isAfter(product.getEndTime()));
+    }
+
+    /**
+     * Result of a proxy registration.
+     */
+    public record RegistrationResult(boolean success, int statusCode, String errorMessage, String errorReason,
+                                     ProxyBid proxy, Double currentBid, boolean leading) {
+        static RegistrationResult success(ProxyBid proxy, Double currentBid, boolean leading) {
+            return new RegistrationResult(true, 200, null, null, proxy, currentBid, leading);
+        }
+
+        static RegistrationResult error(int statusCode, String errorMessage) {
+            return new RegistrationResult(false, statusCode, errorMessage, null, null, null, false);
+        }
+
+        static RegistrationResult error(int statusCode, String errorMessage, String errorReason) {
+            return new RegistrationResult(false, statusCode, errorMessage, errorReason, null, null, false);
+        }
+    }
+}
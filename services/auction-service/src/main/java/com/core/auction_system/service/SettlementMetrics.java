@@ -0,0 +1,106 @@
+package com.core.auction_system.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for closing auctions:
+ * <ul>
+ *   <li>{@code auction.scheduler.run} - one scheduler run; {@code auction.scheduler.run.found} and
+ *   {@code auction.scheduler.run.resumed} - auctions it picked up, new and unfinished</li>
+ *   <li>{@code auction.scheduler.backlog} - ended auctions not yet frozen, as of the last run</li>
+ *   <li>{@code auction.close.lag} - endTime to the auction being frozen; {@code auction.settlement.lag} -
+ *   endTime to the settlement finishing</li>
+ *   <li>{@code auction.settlement.closed} - settled auctions, tagged {@code result} (sold, unsold)</li>
+ *   <li>{@code auction.settlement.deduct.attempts} and {@code auction.settlement.deduct.failures},
+ *   the latter tagged {@code kind} (declined, unavailable)</li>
+ * </ul>
+ */
+@Component
+public class SettlementMetrics {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private Timer runTimer;
+    private DistributionSummary found;
+    private DistributionSummary resumed;
+    private Timer closeLag;
+    private Timer settlementLag;
+
+    @PostConstruct
+    void init() {
+        runTimer = Timer.builder("auction.scheduler.run")
+                .description("Duration of one auction scheduler run")
+                .register(registry);
+        found = DistributionSummary.builder("auction.scheduler.run.found")
+                .description("Newly ended auctions picked up per run")
+                .register(registry);
+        resumed = DistributionSummary.builder("auction.scheduler.run.resumed")
+                .description("Unfinished settlements resumed per run")
+                .register(registry);
+        Gauge.builder("auction.scheduler.backlog", backlog, AtomicLong::get)
+                .description("Ended auctions not yet frozen, as of the last scheduler run")
+                .register(registry);
+        closeLag = Timer.builder("auction.close.lag")
+                .description("Time from an auction's end to it being frozen")
+                .register(registry);
+        settlementLag = Timer.builder("auction.settlement.lag")
+                .description("Time from an auction's end to its settlement finishing")
+                .register(registry);
+    }
+
+    public void run(long startNanos, int foundCount, int resumedCount) {
+        runTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        found.record(foundCount);
+        resumed.record(resumedCount);
+        backlog.set(foundCount);
+    }
+
+    public void closed(LocalDateTime endTime) {
+        recordLag(closeLag, endTime);
+    }
+
+    public void settled(LocalDateTime endTime, boolean sold) {
+        recordLag(settlementLag, endTime);
+        counter("auction.settlement.closed", "result", sold ? "sold" : "unsold").increment();
+    }
+
+    public void deductAttempt() {
+        counter("auction.settlement.deduct.attempts", null, null).increment();
+    }
+
+    public void deductFailure(boolean retryable) {
+        counter("auction.settlement.deduct.failures", "kind", retryable ? "unavailable" : "declined").increment();
+    }
+
+    private static void recordLag(Timer timer, LocalDateTime endTime) {
+        if (endTime != null) {
+            timer.record(Duration.between(endTime, LocalDateTime.now()));
+        }
+    }
+
+    private Counter counter(String name, String tag, String value) {
+        return counters.computeIfAbsent(name + ":" + value, k -> {
+            Counter.Builder b = Counter.builder(name);
+            if (tag != null) {
+                b.tag(tag, value);
+            }
+            return b.register(registry);
+        });
+    }
+}
@@ -0,0 +1,195 @@
+package com.core.auction_system.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-bidder projection of what payment-service would say to a freeze, used to turn away bids
+ * that clearly cannot be paid for without a round trip.
+ * <p>
+ * The only thing ever known about a wallet is an upper bound: a freeze of {@code A} refused with
+ * {@code insufficient_funds} means less than {@code A} was available. From then on the bound
+ * follows the wallet events - a lock lowers it, an unlock or deposit raises it, a deduct moves
+ * locked money out of the balance and leaves it as it is. payment-service numbers every change
+ * of a wallet with a version, carried by freeze responses and wallet events alike: changes up to
+ * the refusal's version are already reflected in it and are skipped, and a change seen twice (a
+ * freeze response and its payment.locked event) has one version and counts once. Ordering never
+ * depends on either side's clock. A bid at or above the bound would be refused by payment-service
+ * too.
+ * <p>
+ * The projection only errs towards letting bids through: bounds expire after
+ * {@code wallet.exposure.ttl-seconds}, and everything is dropped while the event feed is down
+ * (a missed unlock or deposit would otherwise keep rejecting a bidder who can now pay).
+ * payment-service stays authoritative for every bid that is not rejected here.
+ */
+@Service
+public class WalletExposureCache {
+
+    private static final Logger log = LoggerFactory.getLogger(WalletExposureCache.class);
+    // wallet versions already applied to a bound, remembered per bidder so the freeze response and
+    // the payment.locked event for the same change count once
+    private static final int MAX_APPLIED_VERSIONS = 64;
+
+    private final Map<Integer, Exposure> exposures;
+    private volatile boolean feedConnected;
+
+    @Value("${wallet.exposure.enabled:true}")
+    private boolean enabled;
+    @Value("${wallet.exposure.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private static class Exposure {
+        // available funds are below this
+        double bound;
+        // wallet version the bound was learnt at; changes up to it are already part of it
+        long since;
+        long expiresAt;
+        final Set<Long> applied = new LinkedHashSet<>();
+
+        void markApplied(long version) {
+            applied.add(version);
+            if (applied.size() > MAX_APPLIED_VERSIONS) {
+                applied.remove(applied.iterator().next());
+            }
+        }
+    }
+
+    public WalletExposureCache(@Value("${wallet.exposure.max-bidders:100000}") int maxBidders) {
+        this.exposures = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Exposure> eldest) {
+                return size() > maxBidders;
+            }
+        });
+    }
+
+    /**
+     * True when payment-service is known to refuse a freeze of {@code amount} for this bidder.
+     */
+    public boolean isUnaffordable(Integer bidderId, double amount) {
+        if (!enabled || !feedConnected || bidderId == null) {
+            return false;
+        }
+        synchronized (exposures) {
+            Exposure e = exposures.get(bidderId);
+            if (e == null) {
+                return false;
+            }
+            if (e.expiresAt < System.currentTimeMillis()) {
+                exposures.remove(bidderId);
+                return false;
+            }
+            return amount >= e.bound;
+        }
+    }
+
+    /**
+     * Outcome of a freeze this instance made, with the wallet version payment-service reported for
+     * it. Other failures (timeouts, 5xx) say nothing about the wallet and are ignored.
+     */
+    public void onFreeze(Integer bidderId, double amount, boolean ok, String reason, Long version) {
+        if (ok) {
+            synchronized (exposures) {
+                Exposure e = exposures.get(bidderId);
+                if (e != null && amount >= e.bound) {
+                    // the bound was wrong (an event got lost on the way); stop trusting it
+                    exposures.remove(bidderId);
+                    return;
+                }
+            }
+            onLocked(bidderId, amount, version);
+        } else if ("insufficient_funds".equals(reason)) {
+            onRefused(bidderId, amount, version);
+        }
+    }
+
+    /**
+     * A freeze of {@code amount} was refused for lack of funds when the wallet was at
+     * {@code version}. Without a version the refusal cannot be ordered against events, and is
+     * not used. A newer refusal replaces the bound outright, since it already reflects every change
+     * up to its version; an older one says nothing about the wallet as it is now.
+     */
+    public void onRefused(Integer bidderId, double amount, Long version) {
+        if (!enabled || bidderId == null || version == null) {
+            return;
+        }
+        synchronized (exposures) {
+            Exposure e = exposures.get(bidderId);
+            if (e == null || e.expiresAt < System.currentTimeMillis()) {
+                e = new Exposure();
+                e.bound = amount;
+                e.since = version;
+                exposures.put(bidderId, e);
+            } else if (version > e.since) {
+                e.bound = amount;
+                e.since = version;
+                e.applied.clear();
+            } else if (version == e.since) {
+                e.bound = Math.min(e.bound, amount);
+            } else {
+                return;
+            }
+            e.expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        }
+    }
+
+    /**
+     * Funds were locked, taking the wallet to {@code version}; lowers a known bound.
+     */
+    public void onLocked(Integer bidderId, double amount, Long version) {
+        adjust(bidderId, -amount, version);
+    }
+
+    /**
+     * Locked funds were released, or funds were deposited, taking the wallet to {@code version}.
+     */
+    public void onReleased(Integer bidderId, double amount, Long version) {
+        adjust(bidderId, amount, version);
+    }
+
+    /**
+     * The event feed is (again) delivering every wallet event.
+     */
+    public void feedConnected() {
+        feedConnected = true;
+        log.info("Wallet event feed connected; local insufficient-funds checks active");
+    }
+
+    /**
+     * Events may be missed from now on, so nothing known so far can be trusted.
+     */
+    public void feedLost() {
+        feedConnected = false;
+        exposures.clear();
+        log.warn("Wallet event feed lost; local insufficient-funds checks paused");
+    }
+
+    private void adjust(Integer bidderId, double delta, Long version) {
+        if (!enabled || bidderId == null) {
+            return;
+        }
+        synchronized (exposures) {
+            Exposure e = exposures.get(bidderId);
+            if (e == null) {
+                return;
+            }
+            if (version == null) {
+                // a change that cannot be placed before or after the refusal; stop trusting the bound
+                exposures.remove(bidderId);
+                return;
+            }
+            if (version <= e.since || e.applied.contains(version)) {
+                return;
+            }
+            e.markApplied(version);
+            e.bound += delta;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+-- Flyway migration: auction-service schema as previously created by Hibernate (ddl-auto=update).
+-- Everything is IF NOT EXISTS so it also runs cleanly against a database Hibernate already built
+-- (spring.flyway.baseline-version=0 keeps this script from being skipped there).
+
+CREATE SEQUENCE IF NOT EXISTS products_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bids_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS proxy_bids_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS categories (
+  id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+  name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS products (
+  id INTEGER PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  description VARCHAR(255),
+  category VARCHAR(255) NOT NULL,
+  min_bid FLOAT(53) NOT NULL,
+  max_bid FLOAT(53) NOT NULL,
+  current_bid FLOAT(53),
+  frozen BOOLEAN,
+  sold BOOLEAN,
+  end_time TIMESTAMP(6),
+  seller_id INTEGER,
+  buyer_id INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS bids (
+  id INTEGER PRIMARY KEY,
+  amount INTEGER NOT NULL,
+  bid_time TIMESTAMP(6) NOT NULL,
+  product_id INTEGER,
+  bidder_id INTEGER,
+  email VARCHAR(255),
+  reservation_id VARCHAR(255),
+  status VARCHAR(255)
+);
+
+-- Hibernate named this constraint from a hash; only add ours when the table has none yet
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'bids'::regclass AND contype = 'f') THEN
+    ALTER TABLE bids ADD CONSTRAINT fk_bids_product FOREIGN KEY (product_id) REFERENCES products(id);
+  END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS proxy_bids (
+  id INTEGER PRIMARY KEY,
+  product_id INTEGER NOT NULL,
+  bidder_id INTEGER NOT NULL,
+  email VARCHAR(255),
+  max_amount INTEGER NOT NULL,
+  reservation_id VARCHAR(255),
+  active BOOLEAN NOT NULL,
+  created_at TIMESTAMP(6) NOT NULL,
+  UNIQUE (product_id, bidder_id)
+);
+
+-- Sequences added to a database whose rows were numbered some other way (an IDENTITY column, a
+-- restore) would hand out ids already taken. Move each past the highest id in its table, never
+-- backwards. Hibernate's pooled optimizer treats the value it gets as the top of a block of 50, so
+-- the next value is max(id) + 50 and the block starts right after max(id).
+SELECT setval('products_seq', greatest((SELECT max(id) FROM products), (SELECT last_value FROM products_seq), 0) + 50, false);
+SELECT setval('bids_seq', greatest((SELECT max(id) FROM bids), (SELECT last_value FROM bids_seq), 0) + 50, false);
+SELECT setval('proxy_bids_seq', greatest((SELECT max(id) FROM proxy_bids), (SELECT last_value FROM proxy_bids_seq), 0) + 50, false);
+
+CREATE TABLE IF NOT EXISTS auction_settlements (
+  product_id INTEGER PRIMARY KEY,
+  state VARCHAR(16) NOT NULL
+    CHECK (state IN ('OPEN', 'CLOSING', 'DEDUCTED', 'SELLER_PAID', 'NOTIFIED', 'SETTLED')),
+  winner_bid_id INTEGER,
+  buyer_id INTEGER,
+  buyer_email VARCHAR(255),
+  amount INTEGER,
+  reservation_id VARCHAR(255),
+  cursor_amount INTEGER,
+  cursor_bid_id INTEGER,
+  attempts INTEGER NOT NULL,
+  last_error VARCHAR(500),
+  lease_owner VARCHAR(100),
+  lease_until TIMESTAMP(6),
+  created_at TIMESTAMP(6) NOT NULL,
+  updated_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS bid_idempotency_keys (
+  id VARCHAR(160) PRIMARY KEY,
+  bidder_id INTEGER NOT NULL,
+  request_fingerprint VARCHAR(255) NOT NULL,
+  status_code INTEGER NOT NULL,
+  bid_id INTEGER,
+  error_message VARCHAR(255),
+  error_reason VARCHAR(255),
+  created_at TIMESTAMP(6) NOT NULL
+);
+
+-- Indexes the entities already declared
+CREATE INDEX IF NOT EXISTS idx_bids_product_amount ON bids (product_id, amount DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_auction_settlements_state ON auction_settlements (state);
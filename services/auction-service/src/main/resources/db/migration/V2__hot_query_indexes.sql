@@ -0,0 +1,25 @@
+-- Flyway migration: indexes for the repository queries on the request and scheduler paths.
+-- Built CONCURRENTLY so existing tables keep taking writes; Flyway runs this script outside a
+-- transaction. If a build fails it leaves an INVALID index behind: drop it and rerun.
+
+-- Scheduler: ended auctions not yet frozen (findByEndTimeBeforeAndFrozenFalse and friends).
+-- Only open auctions are indexed, which stays small however many have closed.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_open_end_time ON products (end_time) WHERE frozen = false;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_seller_id ON products (seller_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_category ON products (category);
+
+-- findByReservationId: one bid per funds reservation
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ux_bids_reservation_id ON bids (reservation_id);
+-- findByBidderId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bids_bidder_id ON bids (bidder_id);
+-- existsByBidderIdAndProduct, findFirstByProductIdAndBidderId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bids_product_bidder ON bids (product_id, bidder_id);
+
+-- findByStateNot(SETTLED): settled rows are nearly all of the table and never read again
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auction_settlements_unfinished ON auction_settlements (state)
+  WHERE state <> 'SETTLED';
+-- countByLeaseUntilAfter
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_auction_settlements_lease_until ON auction_settlements (lease_until);
+
+-- deleteOlderThan
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bid_idempotency_keys_created_at ON bid_idempotency_keys (created_at);
@@ -0,0 +1,27 @@
+-- Flyway migration: products reference categories by id instead of by free-text name.
+-- products.category stays as a copy of the category's name (kept in step on rename) so reads
+-- don't need the join.
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS category_id INTEGER;
+
+-- every name products already use becomes a category
+INSERT INTO categories (name)
+SELECT DISTINCT p.category FROM products p
+WHERE NOT EXISTS (SELECT 1 FROM categories c WHERE c.name = p.category);
+
+UPDATE products p SET category_id = c.id
+FROM categories c
+WHERE c.name = p.category AND p.category_id IS NULL;
+
+ALTER TABLE products ALTER COLUMN category_id SET NOT NULL;
+
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_products_category') THEN
+    ALTER TABLE products ADD CONSTRAINT fk_products_category FOREIGN KEY (category_id) REFERENCES categories(id);
+  END IF;
+END $$;
+
+-- category filters and the foreign key check on category delete
+CREATE INDEX IF NOT EXISTS idx_products_category_id ON products (category_id);
+DROP INDEX IF EXISTS idx_products_category;
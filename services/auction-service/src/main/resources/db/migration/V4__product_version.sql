@@ -0,0 +1,2 @@
+-- Flyway migration: optimistic-lock version on products, also the source of product ETags
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
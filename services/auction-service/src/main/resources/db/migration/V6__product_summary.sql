@@ -0,0 +1,89 @@
+-- Flyway migration: product_summary, the read model behind the product listing endpoints.
+-- One row per product with what a product card shows, including the bid count and highest
+-- bidder that would otherwise take an aggregate over bids. Triggers keep it in step inside the
+-- writing transaction: every product insert or update (edits, accepted bids, closes, category
+-- renames) copies the card columns, every bid insert bumps the count, and deleting a product
+-- deletes its row.
+
+CREATE TABLE IF NOT EXISTS product_summary (
+  product_id INTEGER PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+  name VARCHAR(255) NOT NULL,
+  description VARCHAR(255),
+  category_id INTEGER NOT NULL,
+  category VARCHAR(255) NOT NULL,
+  min_bid FLOAT(53) NOT NULL,
+  max_bid FLOAT(53) NOT NULL,
+  current_bid FLOAT(53),
+  bid_count BIGINT NOT NULL DEFAULT 0,
+  highest_bid INTEGER,
+  highest_bidder_id INTEGER,
+  frozen BOOLEAN,
+  sold BOOLEAN,
+  end_time TIMESTAMP(6),
+  seller_id INTEGER,
+  buyer_id INTEGER
+);
+
+INSERT INTO product_summary (product_id, name, description, category_id, category, min_bid, max_bid,
+                             current_bid, frozen, sold, end_time, seller_id, buyer_id)
+SELECT p.id, p.name, p.description, p.category_id, p.category, p.min_bid, p.max_bid,
+       p.current_bid, p.frozen, p.sold, p.end_time, p.seller_id, p.buyer_id
+FROM products p
+ON CONFLICT (product_id) DO NOTHING;
+
+-- highest bidder: the first bid at the highest amount, as the bid trigger below keeps it
+UPDATE product_summary s
+SET bid_count = b.bid_count, highest_bid = b.amount, highest_bidder_id = b.bidder_id
+FROM (SELECT DISTINCT ON (product_id) product_id, count(*) OVER (PARTITION BY product_id) AS bid_count,
+             amount, bidder_id
+      FROM bids
+      WHERE product_id IS NOT NULL
+      ORDER BY product_id, amount DESC, id) b
+WHERE s.product_id = b.product_id;
+
+CREATE OR REPLACE FUNCTION sync_product_summary() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO product_summary (product_id, name, description, category_id, category, min_bid, max_bid,
+                               current_bid, frozen, sold, end_time, seller_id, buyer_id)
+  VALUES (NEW.id, NEW.name, NEW.description, NEW.category_id, NEW.category, NEW.min_bid, NEW.max_bid,
+          NEW.current_bid, NEW.frozen, NEW.sold, NEW.end_time, NEW.seller_id, NEW.buyer_id)
+  ON CONFLICT (product_id) DO UPDATE SET
+    name = EXCLUDED.name,
+    description = EXCLUDED.description,
+    category_id = EXCLUDED.category_id,
+    category = EXCLUDED.category,
+    min_bid = EXCLUDED.min_bid,
+    max_bid = EXCLUDED.max_bid,
+    current_bid = EXCLUDED.current_bid,
+    frozen = EXCLUDED.frozen,
+    sold = EXCLUDED.sold,
+    end_time = EXCLUDED.end_time,
+    seller_id = EXCLUDED.seller_id,
+    buyer_id = EXCLUDED.buyer_id;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- the product row is already locked by the bid writer, so this adds no contention of its own
+CREATE OR REPLACE FUNCTION count_summary_bid() RETURNS trigger AS $$
+BEGIN
+  UPDATE product_summary SET
+    bid_count = bid_count + 1,
+    highest_bidder_id = CASE WHEN highest_bid IS NULL OR NEW.amount > highest_bid
+                             THEN NEW.bidder_id ELSE highest_bidder_id END,
+    highest_bid = GREATEST(highest_bid, NEW.amount)
+  WHERE product_id = NEW.product_id;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS products_summary ON products;
+CREATE TRIGGER products_summary AFTER INSERT OR UPDATE ON products
+  FOR EACH ROW EXECUTE FUNCTION sync_product_summary();
+DROP TRIGGER IF EXISTS bids_summary ON bids;
+CREATE TRIGGER bids_summary AFTER INSERT ON bids
+  FOR EACH ROW EXECUTE FUNCTION count_summary_bid();
+
+-- seller and category listings; everything else reads by primary key
+CREATE INDEX IF NOT EXISTS idx_product_summary_seller_id ON product_summary (seller_id);
+CREATE INDEX IF NOT EXISTS idx_product_summary_category_id ON product_summary (category_id);
@@ -0,0 +1,8 @@
+-- Flyway migration: per-reservation release progress for settlement's NOTIFIED step.
+-- Bids already record theirs in status = 'RELEASED'; these cover the two releases that have no
+-- bid row of their own, so a retried step resends only what payment-service has not confirmed.
+
+-- a proxy whose maximum was released without a bid row (lost a tie, or resolution gave up)
+ALTER TABLE proxy_bids ADD COLUMN IF NOT EXISTS released BOOLEAN NOT NULL DEFAULT false;
+-- the unused part of a proxy winner's maximum
+ALTER TABLE auction_settlements ADD COLUMN IF NOT EXISTS leftover_released BOOLEAN NOT NULL DEFAULT false;
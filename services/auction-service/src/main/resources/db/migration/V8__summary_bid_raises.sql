@@ -0,0 +1,36 @@
+-- Flyway migration: keep product_summary's highest bid right when a bid row is raised.
+-- Proxy bidding moves a bidder's existing row up (UPDATE ... SET amount) instead of inserting a
+-- new one, and V6's trigger only fired on insert, so the summary kept the old amount and could
+-- name the wrong highest bidder. An insert still bumps the count and compares against the
+-- current top; a raise leaves the count alone and reads the top bid back from the index below.
+
+-- highest bidder: the first bid at the highest amount, one index probe per raise
+CREATE INDEX IF NOT EXISTS idx_bids_product_top ON bids (product_id, amount DESC, id);
+
+CREATE OR REPLACE FUNCTION count_summary_bid() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'INSERT' THEN
+    UPDATE product_summary SET
+      bid_count = bid_count + 1,
+      highest_bidder_id = CASE WHEN highest_bid IS NULL OR NEW.amount > highest_bid
+                               THEN NEW.bidder_id ELSE highest_bidder_id END,
+      highest_bid = GREATEST(highest_bid, NEW.amount)
+    WHERE product_id = NEW.product_id;
+  ELSIF NEW.amount IS DISTINCT FROM OLD.amount THEN
+    UPDATE product_summary s SET
+      highest_bid = top.amount,
+      highest_bidder_id = top.bidder_id
+    FROM (SELECT b.amount, b.bidder_id
+          FROM bids b
+          WHERE b.product_id = NEW.product_id
+          ORDER BY b.amount DESC, b.id
+          LIMIT 1) top
+    WHERE s.product_id = NEW.product_id;
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS bids_summary ON bids;
+CREATE TRIGGER bids_summary AFTER INSERT OR UPDATE OF amount ON bids
+  FOR EACH ROW EXECUTE FUNCTION count_summary_bid();
@@ -0,0 +1,42 @@
+-- Flyway migration: order the change feed by transaction visibility instead of a settle window.
+-- A change number is taken when a row is written but only becomes visible at commit, so V5's feed
+-- held back changes younger than a few seconds and hoped no transaction ran longer. Rows now also
+-- record the id of the transaction that wrote them. Every transaction below the reader's snapshot
+-- xmin (pg_snapshot_xmin(pg_current_snapshot())) has finished, so the rows it wrote are final; the
+-- feed serves exactly those, in (change_xid, change_seq) order, and nothing can appear behind its
+-- cursor later.
+
+-- rows written before this migration sort first, in change_seq order, as before; stored as bigint
+-- (xid8 is a 64-bit epoch-extended id) so the application reads it as a plain number
+ALTER TABLE products ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE products ALTER COLUMN change_xid SET DEFAULT pg_current_xact_id()::text::bigint;
+ALTER TABLE bids ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE bids ALTER COLUMN change_xid SET DEFAULT pg_current_xact_id()::text::bigint;
+ALTER TABLE product_tombstones ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION stamp_change() RETURNS trigger AS $$
+BEGIN
+  NEW.change_seq := nextval('product_change_seq');
+  NEW.change_xid := pg_current_xact_id()::text::bigint;
+  NEW.changed_at := clock_timestamp();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION record_product_tombstone() RETURNS trigger AS $$
+BEGIN
+  INSERT INTO product_tombstones (product_id, change_seq, change_xid, changed_at)
+  VALUES (OLD.id, nextval('product_change_seq'), pg_current_xact_id()::text::bigint, clock_timestamp())
+  ON CONFLICT (product_id) DO UPDATE SET change_seq = EXCLUDED.change_seq, change_xid = EXCLUDED.change_xid,
+                                         changed_at = EXCLUDED.changed_at;
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- the feed reads each table from its cursor in this order; the change_seq-only indexes are unused
+CREATE INDEX IF NOT EXISTS idx_products_change_xid_seq ON products (change_xid, change_seq);
+CREATE INDEX IF NOT EXISTS idx_bids_change_xid_seq ON bids (change_xid, change_seq);
+CREATE INDEX IF NOT EXISTS idx_product_tombstones_change_xid_seq ON product_tombstones (change_xid, change_seq);
+DROP INDEX IF EXISTS idx_products_change_seq;
+DROP INDEX IF EXISTS idx_bids_change_seq;
+DROP INDEX IF EXISTS idx_product_tombstones_change_seq;
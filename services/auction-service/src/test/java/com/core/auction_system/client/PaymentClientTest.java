@@ -0,0 +1,164 @@
+package com.core.auction_system.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class PaymentClientTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private StubPaymentService stub;
+    private PaymentClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubPaymentService();
+        client = new PaymentClient();
+        ReflectionTestUtils.setField(client, "paymentServiceUrl", stub.url());
+        ReflectionTestUtils.setField(client, "batchMaxItems", 500);
+        ReflectionTestUtils.setField(client, "meterRegistry", meters);
+        ReflectionTestUtils.setField(client, "hedgePercentile", 0.95);
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 50L);
+        ReflectionTestUtils.setField(client, "hedgeMinDelayMs", 10L);
+        ReflectionTestUtils.setField(client, "hedgeTimeoutMs", 5000L);
+        client.initMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void unfreezeAllSendsOneRequestForWholeAuction() {
+        stub.failFor(7);
+        List<PaymentClient.GenericResponse> results = client.unfreezeAll(reservations(500));
+
+        assertEquals(1, stub.requests().size());
+        assertEquals(500, results.size());
+        assertTrue(results.get(0).ok);
+        assertFalse(results.get(7).ok);
+        assertEquals("locked_amount_insufficient", results.get(7).reason);
+        assertEquals("auction-1-unfreeze-3",
+                stub.requests().get(0).body().path("items").get(3).path("idempotencyKey").asText());
+    }
+
+    @Test
+    void unfreezeAllSplitsIntoBatches() {
+        ReflectionTestUtils.setField(client, "batchMaxItems", 200);
+        List<PaymentClient.GenericResponse> results = client.unfreezeAll(reservations(450));
+
+        assertEquals(3, stub.count("/wallet/unfreeze/batch"));
+        assertEquals(450, results.size());
+        assertTrue(results.stream().allMatch(r -> r.ok));
+    }
+
+    @Test
+    void unfreezeAllFallsBackToSingleCalls() {
+        stub.removeRoute("/wallet/unfreeze/batch");
+        List<PaymentClient.GenericResponse> results = client.unfreezeAll(reservations(3));
+
+        assertEquals(3, stub.count("/wallet/unfreeze"));
+        assertEquals("auction-1-unfreeze-2", stub.requests().get(3).idempotencyKey());
+        assertTrue(results.stream().allMatch(r -> r.ok));
+    }
+
+    @Test
+    void settleDeductsAndDepositsInOneRequest() {
+        PaymentClient.SettleResponse r = client.settle(deduct(5), deposit());
+
+        assertEquals(1, stub.requests().size());
+        assertTrue(r.deduct.ok);
+        assertTrue(r.deposit.ok);
+    }
+
+    @Test
+    void settleSkipsDepositWhenDeductFails() {
+        stub.failFor(5);
+        PaymentClient.SettleResponse r = client.settle(deduct(5), deposit());
+
+        assertFalse(r.deduct.ok);
+        assertFalse(r.deduct.isRetryable());
+        assertNull(r.deposit);
+    }
+
+    @Test
+    void settleFallsBackToSingleCalls() {
+        stub.removeRoute("/wallet/settle");
+        PaymentClient.SettleResponse r = client.settle(deduct(5), deposit());
+
+        assertTrue(r.deduct.ok);
+        assertTrue(r.deposit.ok);
+        assertEquals("auction-1-deduct-5", stub.requests().get(1).idempotencyKey());
+        assertEquals("auction-1-deposit", stub.requests().get(2).idempotencyKey());
+    }
+
+    @Test
+    void unreachableServiceIsRetryable() {
+        stub.close();
+        PaymentClient.SettleResponse r = client.settle(deduct(5), deposit());
+        List<PaymentClient.GenericResponse> results = client.unfreezeAll(reservations(2));
+
+        assertTrue(r.deduct.isRetryable());
+        assertTrue(results.stream().allMatch(PaymentClient.GenericResponse::isRetryable));
+    }
+
+    @Test
+    void slowFreezeIsHedgedWithSameKey() {
+        ReflectionTestUtils.setField(client, "hedgeEnabled", true);
+        // warm up the client (unhedged) so the first attempt reaches the stub before the hedge
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 5000L);
+        client.freeze(3, 25.0, "bidder@example.com");
+        ReflectionTestUtils.setField(client, "hedgeInitialDelayMs", 50L);
+        stub.delayNextRequest(2000);
+        long start = System.nanoTime();
+        PaymentClient.FreezeResponse r = client.freeze(3, 25.0, "bidder@example.com");
+
+        assertTrue(r.ok);
+        assertEquals("res-3", r.reservationId);
+        assertTrue(System.nanoTime() - start < 1_500_000_000L);
+        assertEquals(3, stub.count("/wallet/freeze"));
+        assertEquals(stub.requests().get(1).idempotencyKey(), stub.requests().get(2).idempotencyKey());
+        assertEquals(1.0, meters.counter("payment.freeze.hedged").count());
+        assertEquals(1.0, meters.counter("payment.freeze.hedge.wins").count());
+    }
+
+    @Test
+    void fastFreezeIsNotHedged() {
+        ReflectionTestUtils.setField(client, "hedgeEnabled", true);
+        stub.failFor(3);
+        PaymentClient.FreezeResponse r = client.freeze(3, 25.0, "bidder@example.com");
+
+        assertFalse(r.ok);
+        assertEquals("insufficient_funds", r.reason);
+        assertEquals(1, stub.count("/wallet/freeze"));
+        assertEquals(1.0, meters.counter("payment.freeze.calls").count());
+        assertEquals(0.0, meters.counter("payment.freeze.hedged").count());
+    }
+
+    private static List<PaymentClient.Reservation> reservations(int n) {
+        List<PaymentClient.Reservation> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(new PaymentClient.Reservation(i, 10.0 + i, "res-" + i, "auction-1-unfreeze-" + i));
+        }
+        return list;
+    }
+
+    private static PaymentClient.Deduct deduct(int userId) {
+        return new PaymentClient.Deduct(userId, 50.0, 1, "res-" + userId, "buyer@example.com",
+                "auction-1-deduct-" + userId);
+    }
+
+    private static PaymentClient.Deposit deposit() {
+        return new PaymentClient.Deposit(99, 50.0, "auction_sale", "auction-1-deposit");
+    }
+}
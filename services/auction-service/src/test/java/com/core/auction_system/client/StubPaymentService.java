@@ -0,0 +1,145 @@
+package com.core.auction_system.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for payment-service's wallet API, for tests. Freezes, deducts and unfreezes
+ * succeed unless the user id was marked as failing; routes can be switched off to look like an
+ * older payment-service (404), and the next request can be held back. Every request is recorded.
+ */
+class StubPaymentService implements AutoCloseable {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private final Set<String> failingUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> missingRoutes = new HashSet<>();
+    private final AtomicLong nextRequestDelayMs = new AtomicLong();
+
+    record Request(String path, String idempotencyKey, JsonNode body) {
+    }
+
+    StubPaymentService() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    List<Request> requests() {
+        return requests;
+    }
+
+    long count(String path) {
+        return requests.stream().filter(r -> r.path().equals(path)).count();
+    }
+
+    void failFor(Integer userId) {
+        failingUsers.add(userId.toString());
+    }
+
+    void removeRoute(String path) {
+        missingRoutes.add(path);
+    }
+
+    void delayNextRequest(long ms) {
+        nextRequestDelayMs.set(ms);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        String path = ex.getRequestURI().getPath();
+        JsonNode body = mapper.readTree(ex.getRequestBody());
+        requests.add(new Request(path, ex.getRequestHeaders().getFirst("Idempotency-Key"), body));
+        long delay = nextRequestDelayMs.getAndSet(0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (missingRoutes.contains(path)) {
+            respond(ex, 404, mapper.createObjectNode().put("error", "Cannot POST " + path));
+            return;
+        }
+        switch (path) {
+            case "/wallet/freeze" -> {
+                ObjectNode r = operation(body);
+                if (r.path("ok").asBoolean()) {
+                    r.put("reservationId", "res-" + body.path("userId").asText());
+                } else {
+                    r.put("reason", "insufficient_funds");
+                }
+                respond(ex, r.path("status").asInt(), r.without("status"));
+            }
+            case "/wallet/deduct", "/wallet/unfreeze", "/wallet/deposit" -> {
+                ObjectNode r = operation(body);
+                respond(ex, r.path("status").asInt(), r.without("status"));
+            }
+            case "/wallet/unfreeze/batch" -> {
+                ObjectNode resp = mapper.createObjectNode();
+                ArrayNode results = resp.putArray("results");
+                body.path("items").forEach(item -> results.add(operation(item)));
+                resp.put("ok", true);
+                respond(ex, 200, resp);
+            }
+            case "/wallet/settle" -> {
+                ObjectNode resp = mapper.createObjectNode();
+                ObjectNode deduct = operation(body.path("deduct"));
+                resp.set("deduct", deduct);
+                if (deduct.path("ok").asBoolean() && body.path("deposit").isObject()) {
+                    resp.set("deposit", operation(body.path("deposit")));
+                } else {
+                    resp.putNull("deposit");
+                }
+                resp.put("ok", deduct.path("ok").asBoolean());
+                respond(ex, 200, resp);
+            }
+            default -> respond(ex, 404, mapper.createObjectNode().put("error", "Cannot POST " + path));
+        }
+    }
+
+    private ObjectNode operation(JsonNode input) {
+        ObjectNode r = mapper.createObjectNode();
+        if (failingUsers.contains(input.path("userId").asText())) {
+            r.put("status", 400).put("ok", false).put("reason", "locked_amount_insufficient");
+        } else {
+            r.put("status", 200).put("ok", true);
+        }
+        return r;
+    }
+
+    private void respond(HttpExchange ex, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        ex.getResponseBody().write(bytes);
+        ex.close();
+    }
+}
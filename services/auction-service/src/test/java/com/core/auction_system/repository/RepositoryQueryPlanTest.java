@@ -0,0 +1,370 @@
+package com.core.auction_system.repository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.SettlementState;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fails when a repository query would scan a whole table. Needs a throwaway Postgres database:
+ * <pre>
+ * PLAN_TEST_DB_URL=jdbc:postgresql://localhost:5434/auction_plan_test PLAN_TEST_DB_USER=auction_user \
+ *   PLAN_TEST_DB_PASSWORD=auction_pass mvn test -Dtest=RepositoryQueryPlanTest
+ * </pre>
+ * Flyway builds the schema (and Hibernate validates it against the entities), the tables are
+ * seeded with a production-sized dataset, then every statement a repository method sends is
+ * EXPLAINed with the parameters it was sent with, and its plan must not contain a sequential scan.
+ * Each call runs in a transaction that is rolled back, so the dataset is only seeded once.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.driverClassName=org.postgresql.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.flyway.enabled=true",
+        // the test application.properties shadows main's; V2 builds indexes concurrently, which waits on
+        // Flyway's own transaction-level lock otherwise
+        "spring.flyway.postgresql.transactional-lock=false",
+        "search.index.enabled=false",
+        "suggest.index.enabled=false",
+        "browse.index.enabled=false",
+        "ending-soon.index.enabled=false",
+        // nothing else writes while the dataset is seeded: no settlement runs, no wallet events
+        "auction.scheduler.cron=-",
+        "wallet.exposure.enabled=false"
+})
+@EnabledIfEnvironmentVariable(named = "PLAN_TEST_DB_URL", matches = ".+")
+class RepositoryQueryPlanTest {
+
+    private static final int PRODUCTS = 200_000;
+    private static final int BIDS = 1_000_000;
+    private static final int PRODUCT_ID = 42;
+    private static final int BIDDER_ID = 77;
+    // read the whole table on purpose (exports, index loads)
+    private static final Set<String> FULL_READS = Set.of("streamAll", "streamAllWithProduct",
+            "streamBidCountsByProduct");
+
+    private static final List<Explained> explained = new CopyOnWriteArrayList<>();
+    private static volatile boolean recording;
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private BidRepository bidRepository;
+    @Autowired
+    private ProxyBidRepository proxyBidRepository;
+    @Autowired
+    private AuctionSettlementRepository settlementRepository;
+    @Autowired
+    private BidIdempotencyRepository idempotencyRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ProductTombstoneRepository tombstoneRepository;
+    @Autowired
+    private ProductSummaryRepository summaryRepository;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Explained(String sql, String plan) {
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("PLAN_TEST_DB_URL"));
+        registry.add("spring.datasource.username", () -> env("PLAN_TEST_DB_USER", "auction_user"));
+        registry.add("spring.datasource.password", () -> env("PLAN_TEST_DB_PASSWORD", "auction_pass"));
+    }
+
+    @BeforeEach
+    void seed() {
+        if (seeded()) {
+            return;
+        }
+        // in one transaction, so a seed that fails part way leaves the tables as they were
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> insertDataset());
+        jdbc.execute("analyze");
+    }
+
+    // every table the dataset fills holds exactly what insertDataset put there
+    private boolean seeded() {
+        Boolean seeded = jdbc.queryForObject("select (select count(*) from products) = " + PRODUCTS
+                + " and (select count(*) from bids) = " + BIDS
+                + " and (select count(*) from proxy_bids) = 100000"
+                + " and (select count(*) from auction_settlements) = 150000"
+                + " and (select count(*) from bid_idempotency_keys) = 200000"
+                + " and (select count(*) from product_tombstones) = 50000"
+                + " and (select count(*) from categories) = 5000"
+                + " and (select count(distinct category_id) from products) = 5000", Boolean.class);
+        return Boolean.TRUE.equals(seeded);
+    }
+
+    private void insertDataset() {
+        jdbc.execute("truncate bids, proxy_bids, auction_settlements, bid_idempotency_keys, products, "
+                + "product_tombstones, product_summary, categories restart identity cascade");
+        jdbc.execute("insert into categories (name) select 'Category ' || g from generate_series(0, 4999) g");
+        // 1% of auctions open, a few of those already past their end time; spread over every
+        // category, 40 each, so a category is as selective as in a real catalogue
+        jdbc.execute("insert into products (id, name, description, category_id, category, min_bid, max_bid, "
+                + "current_bid, frozen, sold, end_time, seller_id) "
+                + "select g, 'Product ' || g, 'Seeded for query plans', (g % 5000) + 1, 'Category ' || (g % 5000), "
+                + "10, 10000, g % 5000, g % 100 <> 0, g % 200 = 1, "
+                + "case when g % 100 = 0 then now() + ((g % 600) - 10) * interval '1 minute' else now() - (g % 1000) * interval '1 hour' end, g % 20000 "
+                + "from generate_series(1, " + PRODUCTS + ") g");
+        jdbc.execute("insert into bids (id, amount, bid_time, product_id, bidder_id, email, reservation_id, status) "
+                + "select g, (g * 7) % 100000, now(), (g % " + PRODUCTS + ") + 1, g % 50000, 'bidder' || (g % 50000) "
+                + "|| '@example.com', 'res-' || g, case when g % 10 = 0 then 'PENDING' else 'RELEASED' end "
+                + "from generate_series(1, " + BIDS + ") g");
+        jdbc.execute("insert into proxy_bids (id, product_id, bidder_id, max_amount, reservation_id, active, created_at) "
+                + "select g, g, g % 50000, 5000, 'proxy-res-' || g, g % 2 = 0, now() "
+                + "from generate_series(1, 100000) g");
+        jdbc.execute("insert into auction_settlements (product_id, state, attempts, lease_owner, lease_until, "
+                + "created_at, updated_at) "
+                + "select g, case when g % 1000 = 0 then 'CLOSING' else 'SETTLED' end, 0, "
+                + "case when g % 1000 = 0 then 'seed' end, case when g % 1000 = 0 then now() + interval '1 minute' end, "
+                + "now(), now() from generate_series(1, 150000) g");
+        jdbc.execute("insert into bid_idempotency_keys (id, bidder_id, request_fingerprint, status_code, bid_id, "
+                + "created_at) "
+                + "select 'key-' || g, g % 50000, 'seed', 201, g, now() - (g % 1440) * interval '1 minute' "
+                + "from generate_series(1, 200000) g");
+        jdbc.execute("insert into product_tombstones (product_id, change_seq, changed_at) "
+                + "select " + PRODUCTS + " + g, nextval('product_change_seq'), now() - interval '1 hour' "
+                + "from generate_series(1, 50000) g");
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Runnable> calls = calls(now);
+        List<String> failures = new ArrayList<>();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        calls.forEach((name, call) -> {
+            explained.clear();
+            tx.executeWithoutResult(status -> {
+                recording = true;
+                try {
+                    call.run();
+                } finally {
+                    recording = false;
+                    status.setRollbackOnly();
+                }
+            });
+            if (explained.isEmpty()) {
+                failures.add(name + ": sent no SQL");
+            }
+            for (Explained e : explained) {
+                if (e.plan().contains("Seq Scan")) {
+                    failures.add(name + ": " + e.sql() + "\n" + e.plan());
+                }
+            }
+        });
+        assertTrue(failures.isEmpty(), "Sequential scans:\n" + String.join("\n", failures));
+    }
+
+    @Test
+    void everyRepositoryQueryIsChecked() {
+        Set<String> checked = calls(LocalDateTime.now()).keySet();
+        List<String> missing = Stream.of(ProductRepository.class, BidRepository.class, ProxyBidRepository.class,
+                        AuctionSettlementRepository.class, BidIdempotencyRepository.class, CategoryRepository.class,
+                        ProductTombstoneRepository.class, ProductSummaryRepository.class)
+                .flatMap(r -> Arrays.stream(r.getDeclaredMethods()))
+                .map(Method::getName)
+                .filter(m -> !checked.contains(m) && !FULL_READS.contains(m))
+                .sorted()
+                .collect(Collectors.toList());
+        assertTrue(missing.isEmpty(), "Add these to calls() or FULL_READS: " + missing);
+    }
+
+    // one call per repository query method, with arguments that match a handful of rows
+    private Map<String, Runnable> calls(LocalDateTime now) {
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("findByCategoryId", () -> productRepository.findByCategoryId(8));
+        calls.put("existsByCategoryId", () -> productRepository.existsByCategoryId(8));
+        calls.put("renameCategory", () -> productRepository.renameCategory(8, "Category 7"));
+        calls.put("findBySellerId", () -> summaryRepository.findBySellerId(1234));
+        // findByCategoryId exists on products and their summaries; the products one is checked above
+        calls.put("findByCategoryId (summary)", () -> summaryRepository.findByCategoryId(8));
+        calls.put("findByEndTimeBeforeAndFrozenFalse", () -> productRepository.findByEndTimeBeforeAndFrozenFalse(now));
+        calls.put("countByEndTimeBeforeAndFrozenFalse",
+                () -> productRepository.countByEndTimeBeforeAndFrozenFalse(now));
+        calls.put("findFirstByEndTimeBeforeAndFrozenFalseOrderByEndTimeAsc",
+                () -> productRepository.findFirstByEndTimeBeforeAndFrozenFalseOrderByEndTimeAsc(now));
+        calls.put("findChangedSince", () -> productRepository.findChangedSince(0, 0, Long.MAX_VALUE, 501));
+        calls.put("findAllByIdForUpdate", () -> productRepository.findAllByIdForUpdate(List.of(3, 1, 2)));
+        calls.put("currentSnapshotXmin", () -> productRepository.currentSnapshotXmin());
+
+        calls.put("existsByBidderIdAndProduct", () -> bidRepository.existsByBidderIdAndProduct(BIDDER_ID, product()));
+        calls.put("findByBidderId", () -> bidRepository.findByBidderId(BIDDER_ID));
+        calls.put("findByProduct", () -> bidRepository.findByProduct(product()));
+        calls.put("findByProductId", () -> bidRepository.findByProductId(PRODUCT_ID));
+        calls.put("countByProductId", () -> bidRepository.countByProductId(PRODUCT_ID));
+        calls.put("countByProductIds", () -> bidRepository.countByProductIds(List.of(PRODUCT_ID, 43, 44)));
+        calls.put("findByReservationId", () -> bidRepository.findByReservationId("res-4242"));
+        calls.put("findTopByProductOrderByAmountDesc", () -> bidRepository.findTopByProductOrderByAmountDesc(product()));
+        calls.put("findFirstByProductIdAndBidderId",
+                () -> bidRepository.findFirstByProductIdAndBidderId(PRODUCT_ID, BIDDER_ID));
+        calls.put("findTopCandidates", () -> bidRepository.findTopCandidates(PRODUCT_ID, PageRequest.of(0, 20)));
+        calls.put("findCandidatesAfter",
+                () -> bidRepository.findCandidatesAfter(PRODUCT_ID, 50000, 500000, PageRequest.of(0, 20)));
+        // findChangedSince exists on products, bids and tombstones; the products one is checked above
+        calls.put("findChangedSince (bids)", () -> bidRepository.findChangedSince(0, 0, Long.MAX_VALUE, 501));
+        calls.put("findChangedSince (tombstones)", () -> tombstoneRepository.findChangedSince(0, 0, Long.MAX_VALUE, 501));
+        calls.put("releaseOtherBids", () -> bidRepository.releaseOtherBids(PRODUCT_ID, null));
+        calls.put("markReleased", () -> bidRepository.markReleased(List.of(500000, 500001)));
+
+        calls.put("findActiveByProductIdForUpdate",
+                () -> proxyBidRepository.findActiveByProductIdForUpdate(PRODUCT_ID));
+        calls.put("existsByProductIdAndBidderId",
+                () -> proxyBidRepository.existsByProductIdAndBidderId(PRODUCT_ID, BIDDER_ID));
+        calls.put("deactivateByProductId", () -> proxyBidRepository.deactivateByProductId(PRODUCT_ID));
+        // markReleased exists on both bids and proxy bids; the bids one is checked above
+        calls.put("markReleased (proxy bids)", () -> proxyBidRepository.markReleased(List.of(1, 2)));
+
+        calls.put("findByStateNot", () -> settlementRepository.findByStateNot(SettlementState.SETTLED));
+        calls.put("countByStateNotGrouped", () -> settlementRepository.countByStateNotGrouped(SettlementState.SETTLED));
+        calls.put("countByLeaseUntilAfter", () -> settlementRepository.countByLeaseUntilAfter(now));
+        calls.put("claim", () -> settlementRepository.claim(PRODUCT_ID, "plan-test", now.plusMinutes(1), now));
+        calls.put("release", () -> settlementRepository.release(PRODUCT_ID, "plan-test"));
+
+        calls.put("deleteOlderThan", () -> idempotencyRepository.deleteOlderThan(now.minusMinutes(1430)));
+        calls.put("insertPending", () -> idempotencyRepository.insertPending("plan-test", BIDDER_ID, "seed", now));
+        calls.put("takeOverStale", () -> idempotencyRepository.takeOverStale("key-7", now, now.minusMinutes(1)));
+        calls.put("findByName", () -> categoryRepository.findByName("Category 7"));
+        // findByProductId exists on both bids and proxy bids; the bids one is checked above
+        calls.put("findByProductId (proxy bids)", () -> proxyBidRepository.findByProductId(PRODUCT_ID));
+        return calls;
+    }
+
+    private Product product() {
+        return productRepository.getReferenceById(PRODUCT_ID);
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : value;
+    }
+
+    /**
+     * Wraps the pool so every prepared statement run while {@code recording} is first EXPLAINed on
+     * the same connection with the same parameters.
+     */
+    @TestConfiguration
+    static class PlanRecording {
+
+        @Bean
+        static BeanPostProcessor explainingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ds ? new ExplainingDataSource(ds) : bean;
+                }
+            };
+        }
+    }
+
+    private static final class ExplainingDataSource extends DelegatingDataSource {
+
+        ExplainingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+
+        private static Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                            return statement(connection, sql, (PreparedStatement) result);
+                        }
+                        return result;
+                    });
+        }
+
+        private static PreparedStatement statement(Connection connection, String sql, PreparedStatement target) {
+            // parameter setters (setInt, setString, ...) in the order they were called
+            List<Object[]> parameters = new ArrayList<>();
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+                if (method.getDeclaringClass() == PreparedStatement.class && name.startsWith("set")) {
+                    parameters.add(new Object[]{method, args});
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (recording && (args == null || args.length == 0) && name.startsWith("execute")
+                        && !name.equals("executeBatch")) {
+                    explained.add(new Explained(sql, explain(connection, sql, parameters)));
+                }
+                return invoke(target, method, args);
+            };
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handler);
+        }
+
+        private static String explain(Connection connection, String sql, List<Object[]> parameters)
+                throws Exception {
+            try (PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+                for (Object[] p : parameters) {
+                    ((Method) p[0]).invoke(explain, (Object[]) p[1]);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = explain.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.client.PaymentClient;
+import com.core.auction_system.dto.SettlementCandidate;
+import com.core.auction_system.model.AuctionSettlement;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProxyBid;
+import com.core.auction_system.model.SettlementState;
+import com.core.auction_system.repository.AuctionSettlementRepository;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import com.core.auction_system.repository.ProxyBidRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class AuctionSettlementServiceTest {
+
+    private static final int PRODUCT_ID = 5;
+    private static final int SELLER_ID = 99;
+
+    // highest first, as the candidate queries return them
+    private final List<SettlementCandidate> bids = new ArrayList<>(List.of(
+            candidate(1, 100, 11), candidate(2, 80, 12), candidate(3, 60, 13), candidate(4, 40, 14)));
+    // deduct calls sent, by idempotency key
+    private final List<String> deducts = new ArrayList<>();
+    private final List<String> unfrozen = new ArrayList<>();
+    // bidders whose deduct payment-service declines
+    private final List<Integer> declined = new ArrayList<>();
+    private boolean paymentDown;
+
+    private AuctionSettlement row;
+    private Product product;
+    private AuctionSettlementService service;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setName("Lamp");
+        product.setSellerId(SELLER_ID);
+        product.setFrozen(true);
+        product.setCurrentBid(100.0);
+        product.setEndTime(LocalDateTime.now().minusMinutes(1));
+
+        row = new AuctionSettlement();
+        row.setProductId(PRODUCT_ID);
+        row.setState(SettlementState.CLOSING);
+        row.setAttempts(0);
+        row.setLeftoverReleased(false);
+
+        service = new AuctionSettlementService();
+        ReflectionTestUtils.setField(service, "settlementPageSize", 2);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 300L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "settlementRepository", settlementRepository());
+        ReflectionTestUtils.setField(service, "productRepository", fake(ProductRepository.class, Map.of(
+                "findById", args -> Optional.of(product))));
+        ReflectionTestUtils.setField(service, "bidRepository", bidRepository());
+        ReflectionTestUtils.setField(service, "proxyBidRepository", fake(ProxyBidRepository.class, Map.of()));
+        ReflectionTestUtils.setField(service, "paymentClient", paymentClient());
+        ReflectionTestUtils.setField(service, "proxyBidEngine", new ProxyBidEngine() {
+            @Override
+            public void onAuctionClosed(Integer productId) {
+            }
+
+            @Override
+            public Map<String, ProxyBid> reservations(Integer productId) {
+                return new HashMap<>();
+            }
+        });
+        ReflectionTestUtils.setField(service, "liveAuctionBroadcaster", new LiveAuctionBroadcaster(1) {
+            @Override
+            public void onAuctionUpdated(Product product) {
+            }
+        });
+        // switched off
+        ReflectionTestUtils.setField(service, "bidJournal", new BidJournal());
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(
+                fake(PlatformTransactionManager.class, Map.of(
+                        "getTransaction", args -> new SimpleTransactionStatus(),
+                        "commit", args -> null))));
+        SettlementMetrics metrics = new SettlementMetrics();
+        ReflectionTestUtils.setField(metrics, "registry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(metrics, "init");
+        ReflectionTestUtils.setField(service, "settlementMetrics", metrics);
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+    }
+
+    @Test
+    void waitsOutAnotherInstancesLeaseThenTakesItOver() {
+        row.setLeaseOwner("other-instance");
+        row.setLeaseUntil(LocalDateTime.now().plusMinutes(1));
+
+        service.advance(row);
+        assertEquals(SettlementState.CLOSING, row.getState());
+        assertEquals("other-instance", row.getLeaseOwner());
+        assertTrue(deducts.isEmpty());
+
+        // the other instance died; its lease runs out
+        row.setLeaseUntil(LocalDateTime.now().minusSeconds(1));
+        service.advance(row);
+        assertEquals(SettlementState.SETTLED, row.getState());
+        assertEquals(1, row.getWinnerBidId());
+        assertEquals(List.of("auction-5-deduct-1"), deducts);
+        // given back once the run is over
+        assertNull(row.getLeaseOwner());
+        assertNull(row.getLeaseUntil());
+    }
+
+    @Test
+    void resumesDeductingAfterTheCursor() {
+        // an earlier run had bid 2 declined, after bid 1
+        row.setCursorAmount(80);
+        row.setCursorBidId(2);
+        declined.add(13);
+
+        paymentDown = true;
+        service.advance(row);
+        // unreachable says nothing about the bidder: same candidate next run
+        assertEquals(SettlementState.CLOSING, row.getState());
+        assertEquals(1, row.getAttempts());
+        assertEquals(2, row.getCursorBidId());
+        assertEquals(List.of("auction-5-deduct-3"), deducts);
+
+        paymentDown = false;
+        deducts.clear();
+        service.advance(row);
+
+        assertEquals(List.of("auction-5-deduct-3", "auction-5-deduct-4"), deducts);
+        assertEquals(3, row.getCursorBidId());
+        assertEquals(4, row.getWinnerBidId());
+        assertEquals(14, row.getBuyerId());
+        assertEquals(SettlementState.SETTLED, row.getState());
+        // everybody but the winner, including the bids tried on earlier runs
+        assertEquals(List.of("res-1", "res-2", "res-3"), unfrozen.stream().sorted().toList());
+    }
+
+    private AuctionSettlementRepository settlementRepository() {
+        return fake(AuctionSettlementRepository.class, Map.of(
+                "claim", args -> {
+                    LocalDateTime now = (LocalDateTime) args[3];
+                    if (row.getLeaseUntil() != null && !row.getLeaseUntil().isBefore(now)
+                            && !args[1].equals(row.getLeaseOwner())) {
+                        return 0;
+                    }
+                    row.setLeaseOwner((String) args[1]);
+                    row.setLeaseUntil((LocalDateTime) args[2]);
+                    return 1;
+                },
+                "release", args -> {
+                    if (!args[1].equals(row.getLeaseOwner())) {
+                        return 0;
+                    }
+                    row.setLeaseOwner(null);
+                    row.setLeaseUntil(null);
+                    return 1;
+                },
+                "findById", args -> Optional.of(row),
+                "save", args -> args[0]));
+    }
+
+    private BidRepository bidRepository() {
+        return fake(BidRepository.class, Map.of(
+                "findTopCandidates", args -> page(bids, (Pageable) args[1]),
+                "findCandidatesAfter", args -> {
+                    int amount = (Integer) args[1];
+                    int id = (Integer) args[2];
+                    return page(bids.stream()
+                            .filter(b -> b.amount() < amount || (b.amount() == amount && b.id() < id))
+                            .toList(), (Pageable) args[3]);
+                },
+                "markReleased", args -> ((List<?>) args[0]).size(),
+                "releaseOtherBids", args -> 0));
+    }
+
+    private PaymentClient paymentClient() {
+        return new PaymentClient() {
+            @Override
+            public SettleResponse settle(Deduct winnerDeduct, Deposit sellerDeposit) {
+                deducts.add(winnerDeduct.idempotencyKey());
+                SettleResponse sr = new SettleResponse();
+                sr.deduct = new GenericResponse();
+                if (paymentDown) {
+                    return sr;
+                }
+                sr.deduct.status = declined.contains(winnerDeduct.userId()) ? 402 : 200;
+                sr.deduct.ok = sr.deduct.status == 200;
+                sr.deduct.reason = sr.deduct.ok ? null : "insufficient_funds";
+                sr.deposit = new GenericResponse();
+                sr.deposit.ok = sr.deduct.ok;
+                return sr;
+            }
+
+            @Override
+            public List<GenericResponse> unfreezeAll(List<Reservation> reservations) {
+                List<GenericResponse> results = new ArrayList<>();
+                for (Reservation r : reservations) {
+                    unfrozen.add(r.reservationId());
+                    GenericResponse ok = new GenericResponse();
+                    ok.ok = true;
+                    results.add(ok);
+                }
+                return results;
+            }
+        };
+    }
+
+    private static List<SettlementCandidate> page(List<SettlementCandidate> candidates, Pageable page) {
+        return candidates.subList(0, Math.min(candidates.size(), page.getPageSize()));
+    }
+
+    private static SettlementCandidate candidate(int id, int amount, int bidderId) {
+        return new SettlementCandidate(id, amount, bidderId, bidderId + "@x", "res-" + id, "PENDING");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> call = methods.get(method.getName());
+                    if (call == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return call.apply(args);
+            }
+        });
+    }
+}
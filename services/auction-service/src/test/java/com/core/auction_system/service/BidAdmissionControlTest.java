@@ -0,0 +1,103 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class BidAdmissionControlTest {
+
+    private BidAdmissionControl admission;
+
+    @BeforeEach
+    void setUp() {
+        admission = new BidAdmissionControl(2, 1, 10);
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        // buckets that hold a few requests and barely refill while a test runs
+        ReflectionTestUtils.setField(admission, "bidderRate", 0.01);
+        ReflectionTestUtils.setField(admission, "bidderBurst", 3.0);
+        ReflectionTestUtils.setField(admission, "productRate", 0.01);
+        ReflectionTestUtils.setField(admission, "productBurst", 5.0);
+    }
+
+    @Test
+    void throttlesOneBidderWithoutHoldingUpOthers() {
+        for (int i = 0; i < 3; i++) {
+            admitted(7, i + 1).release();
+        }
+        BidAdmissionControl.Decision rejected = admission.tryAcquire(7, 10);
+        assertFalse(rejected.admitted());
+        assertEquals("bidder_rate_limited", rejected.reason());
+        assertTrue(rejected.retryAfterSeconds() >= 1);
+
+        admitted(8, 10).release();
+    }
+
+    @Test
+    void throttlesAStampedeOnOneProduct() {
+        for (int bidder = 1; bidder <= 5; bidder++) {
+            admitted(bidder, 42).release();
+        }
+        BidAdmissionControl.Decision rejected = admission.tryAcquire(6, 42);
+        assertFalse(rejected.admitted());
+        assertEquals("product_rate_limited", rejected.reason());
+
+        admitted(6, 43).release();
+    }
+
+    @Test
+    void rejectsAboveTheConcurrencyLimitUntilAPermitIsReleased() {
+        BidAdmissionControl.Permit first = admitted(1, 1);
+        admitted(2, 2);
+        BidAdmissionControl.Decision rejected = admission.tryAcquire(3, 3);
+        assertFalse(rejected.admitted());
+        assertEquals("concurrency_limited", rejected.reason());
+
+        first.release();
+        // a second release of the same permit frees nothing more
+        first.release();
+        assertEquals(1, admission.getInFlight());
+        admitted(3, 3);
+        assertFalse(admission.tryAcquire(4, 4).admitted());
+    }
+
+    @Test
+    void limitGrowsWhileLatencyHoldsAndShrinksWhenItRises() {
+        BidAdmissionControl.GradientLimiter limiter = new BidAdmissionControl.GradientLimiter(20, 4, 200);
+
+        for (int i = 0; i < 30; i++) {
+            saturate(limiter, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        // up to the maximum, and no further
+        int grown = limiter.getLimit();
+        assertEquals(200, grown);
+
+        // one burst of slow requests, before the baseline has caught up with them
+        saturate(limiter, TimeUnit.MILLISECONDS.toNanos(100));
+        int shrunk = limiter.getLimit();
+        assertTrue(shrunk < grown * 3 / 4, "limit " + shrunk + " after " + grown);
+        assertTrue(shrunk >= 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private BidAdmissionControl.Permit admitted(int bidderId, int productId) {
+        BidAdmissionControl.Decision decision = admission.tryAcquire(bidderId, productId);
+        assertTrue(decision.admitted(), "rejected: " + decision.reason());
+        return decision.permit();
+    }
+
+    // as many requests as the limit lets in, all finishing after rttNanos
+    private static void saturate(BidAdmissionControl.GradientLimiter limiter, long rttNanos) {
+        List<Long> running = new ArrayList<>();
+        while (limiter.tryAcquire()) {
+            running.add(rttNanos);
+        }
+        running.forEach(limiter::release);
+    }
+}
@@ -0,0 +1,174 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.dto.BidDTO;
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.BidIdempotencyRecord;
+import com.core.auction_system.repository.BidIdempotencyRepository;
+import com.core.auction_system.repository.BidRepository;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class BidIdempotencyServiceTest {
+
+    private static final int BIDDER_ID = 7;
+    private static final String KEY = "retry-1";
+    private static final String ID = BIDDER_ID + ":" + KEY;
+
+    // bid_idempotency_keys and bids, shared by both instances
+    private final Map<String, BidIdempotencyRecord> keys = new HashMap<>();
+    private final Map<Integer, Bid> bids = new HashMap<>();
+    private int placements;
+
+    private BidIdempotencyService here;
+    private BidIdempotencyService elsewhere;
+
+    @BeforeEach
+    void setUp() {
+        here = service();
+        elsewhere = service();
+    }
+
+    @Test
+    void retryOnAnotherInstanceReplaysTheStoredBid() {
+        BidIdempotencyService.Outcome first = here.execute(KEY, BIDDER_ID, dto(1, 50), this::place);
+        assertFalse(first.replayed());
+        assertEquals(200, keys.get(ID).getStatusCode());
+
+        // the insert of its claim hits the stored key
+        BidIdempotencyService.Outcome retry = elsewhere.execute(KEY, BIDDER_ID, dto(1, 50), this::place);
+        assertTrue(retry.replayed());
+        assertSame(first.result().getBid(), retry.result().getBid());
+        assertEquals(1, placements);
+
+        BidIdempotencyService.Outcome reused = elsewhere.execute(KEY, BIDDER_ID, dto(1, 60), this::place);
+        assertTrue(reused.conflict());
+        assertNull(reused.result());
+        assertEquals(1, placements);
+    }
+
+    @Test
+    void storedRefusalIsReplayedButAServerErrorIsNot() {
+        here.execute(KEY, BIDDER_ID, dto(1, 50), () -> BidService.BidPlacementResult.error(400, "Bid below minimum"));
+        BidIdempotencyService.Outcome retry = elsewhere.execute(KEY, BIDDER_ID, dto(1, 50), this::place);
+        assertEquals(400, retry.result().getStatusCode());
+        assertEquals(0, placements);
+
+        here.execute("retry-2", BIDDER_ID, dto(1, 50), () -> BidService.BidPlacementResult.error(503, "unavailable"));
+        // the key was given up, so the retry runs
+        assertFalse(keys.containsKey(BIDDER_ID + ":retry-2"));
+        assertFalse(elsewhere.execute("retry-2", BIDDER_ID, dto(1, 50), this::place).replayed());
+        assertEquals(1, placements);
+    }
+
+    @Test
+    void claimOfARequestThatDiedIsTakenOver() {
+        keys.put(ID, pending(dto(1, 50), LocalDateTime.now().minusMinutes(2)));
+
+        BidIdempotencyService.Outcome outcome = here.execute(KEY, BIDDER_ID, dto(1, 50), this::place);
+
+        assertFalse(outcome.replayed());
+        assertEquals(1, placements);
+        assertEquals(200, keys.get(ID).getStatusCode());
+    }
+
+    @Test
+    void claimStillRunningElsewhereIsReportedInProgress() {
+        keys.put(ID, pending(dto(1, 50), LocalDateTime.now()));
+
+        assertTrue(here.execute(KEY, BIDDER_ID, dto(1, 50), this::place).inProgress());
+        // a different bid under the same key is a conflict even before the first one finishes
+        assertTrue(here.execute(KEY, BIDDER_ID, dto(1, 60), this::place).conflict());
+        assertEquals(0, placements);
+        assertEquals(BidIdempotencyRecord.PENDING, keys.get(ID).getStatusCode());
+    }
+
+    private BidService.BidPlacementResult place() {
+        placements++;
+        Bid bid = new Bid();
+        bid.setId(bids.size() + 1);
+        bids.put(bid.getId(), bid);
+        return BidService.BidPlacementResult.success(bid);
+    }
+
+    private static BidDTO dto(int productId, int amount) {
+        BidDTO dto = new BidDTO();
+        dto.setProductId(productId);
+        dto.setAmount(amount);
+        return dto;
+    }
+
+    private static BidIdempotencyRecord pending(BidDTO dto, LocalDateTime createdAt) {
+        return new BidIdempotencyRecord(ID, BIDDER_ID, dto.getProductId() + ":" + dto.getAmount(),
+                BidIdempotencyRecord.PENDING, null, null, null, createdAt);
+    }
+
+    private BidIdempotencyService service() {
+        BidIdempotencyService service = new BidIdempotencyService(100);
+        ReflectionTestUtils.setField(service, "ttlHours", 24L);
+        ReflectionTestUtils.setField(service, "waitMs", 50L);
+        ReflectionTestUtils.setField(service, "pendingTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(service, "idempotencyRepository", fake(BidIdempotencyRepository.class, Map.of(
+                "insertPending", args -> {
+                    String id = (String) args[0];
+                    if (keys.containsKey(id)) {
+                        throw new DataIntegrityViolationException("duplicate key " + id);
+                    }
+                    keys.put(id, new BidIdempotencyRecord(id, (Integer) args[1], (String) args[2],
+                            BidIdempotencyRecord.PENDING, null, null, null, (LocalDateTime) args[3]));
+                    return 1;
+                },
+                "findById", args -> Optional.ofNullable(keys.get((String) args[0])),
+                "takeOverStale", args -> {
+                    BidIdempotencyRecord rec = keys.get((String) args[0]);
+                    if (rec == null || rec.getStatusCode() != BidIdempotencyRecord.PENDING
+                            || !rec.getCreatedAt().isBefore((LocalDateTime) args[2])) {
+                        return 0;
+                    }
+                    rec.setCreatedAt((LocalDateTime) args[1]);
+                    return 1;
+                },
+                "save", args -> {
+                    BidIdempotencyRecord rec = (BidIdempotencyRecord) args[0];
+                    keys.put(rec.getId(), rec);
+                    return rec;
+                },
+                "deleteById", args -> keys.remove((String) args[0]))));
+        ReflectionTestUtils.setField(service, "bidRepository", fake(BidRepository.class, Map.of(
+                "findById", args -> Optional.ofNullable(bids.get((Integer) args[0])))));
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> call = methods.get(method.getName());
+                    if (call == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return call.apply(args);
+            }
+        });
+    }
+}
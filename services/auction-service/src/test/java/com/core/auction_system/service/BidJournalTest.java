@@ -0,0 +1,155 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class BidJournalTest {
+
+    // [int length][int crc32c] + 34 body bytes
+    private static final int RECORD_BYTES = 42;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysBidCountsAfterACleanShutdownOnly() {
+        BidJournal journal = open(1 << 20, 16);
+        journal.appendCount(1, 5);
+        journal.appendBid(bid(1, 10), true);
+        journal.appendBid(bid(1, 11), false);
+        assertEquals(OptionalLong.of(6), journal.bidCount(1));
+        assertEquals(OptionalLong.empty(), journal.bidCount(2));
+        journal.close();
+
+        BidJournal reopened = open(1 << 20, 16);
+        assertEquals(OptionalLong.of(6), reopened.bidCount(1));
+        // not closed: a crash may have lost the newest records
+        reopened.appendBid(bid(1, 12), true);
+
+        assertEquals(OptionalLong.empty(), open(1 << 20, 16).bidCount(1));
+    }
+
+    @Test
+    void stopsAtARecordWhoseChecksumDoesNotMatch() throws IOException {
+        BidJournal journal = open(1 << 20, 16);
+        for (int i = 1; i <= 3; i++) {
+            journal.appendBid(bid(1, i), true);
+        }
+        journal.close();
+        // flip a byte of the second record's body
+        try (FileChannel ch = FileChannel.open(onlySegment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, RECORD_BYTES + 20);
+            b.put(0, (byte) (b.get(0) ^ 0xFF)).rewind();
+            ch.write(b, RECORD_BYTES + 20);
+        }
+
+        BidJournal reopened = open(1 << 20, 16);
+        assertEquals(List.of(1L), seqs(reopened.read(1, 10)));
+        // appends continue after the last good record, over the wiped tail
+        reopened.appendBid(bid(1, 4), true);
+        assertEquals(List.of(1L, 2L), seqs(reopened.read(1, 10)));
+        assertEquals(4, reopened.read(2, 1).get(0).bidId());
+    }
+
+    @Test
+    void wipesATornTail() throws IOException {
+        BidJournal journal = open(1 << 20, 16);
+        journal.appendBid(bid(1, 1), true);
+        journal.appendBid(bid(1, 2), true);
+        journal.close();
+        // a length and a few body bytes, but no valid checksum, as a write cut short by a crash
+        try (FileChannel ch = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(12).putInt(34).putInt(0).putInt(0x7f7f7f7f).flip(), 2L * RECORD_BYTES);
+        }
+
+        BidJournal reopened = open(1 << 20, 16);
+        assertEquals(3, reopened.getNextSeq());
+        reopened.appendBid(bid(1, 3), true);
+        reopened.close();
+
+        assertEquals(List.of(1L, 2L, 3L), seqs(open(1 << 20, 16).read(1, 10)));
+    }
+
+    @Test
+    void rollsSegmentsAndDeletesTheOldest() throws IOException {
+        // four records per segment, two sealed segments kept
+        BidJournal journal = open(4 * RECORD_BYTES, 2);
+        for (int i = 1; i <= 20; i++) {
+            journal.appendBid(bid(1, i), true);
+        }
+        assertEquals(3, segments().size());
+        assertEquals(9, journal.getFirstSeq());
+        assertEquals(List.of(14L, 15L, 16L), seqs(journal.read(14, 3)));
+        assertEquals(12, journal.read(1, 100).size());
+        journal.close();
+
+        BidJournal reopened = open(4 * RECORD_BYTES, 2);
+        assertEquals(9, reopened.getFirstSeq());
+        assertEquals(21, reopened.getNextSeq());
+        assertEquals(List.of(10L, 11L), seqs(reopened.read(10, 2)));
+    }
+
+    @Test
+    void readsFromTheMiddleOfASegment() {
+        BidJournal journal = open(1 << 20, 16);
+        for (int i = 1; i <= 600; i++) {
+            journal.appendBid(bid(i % 7, i), true);
+        }
+        assertEquals(List.of(300L, 301L), seqs(journal.read(300, 2)));
+        assertEquals(List.of(600L), seqs(journal.read(600, 5)));
+        assertTrue(journal.read(601, 5).isEmpty());
+    }
+
+    private BidJournal open(int segmentBytes, int retainSegments) {
+        BidJournal journal = new BidJournal();
+        ReflectionTestUtils.setField(journal, "enabled", true);
+        ReflectionTestUtils.setField(journal, "dir", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(journal, "retainSegments", retainSegments);
+        journal.open();
+        return journal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private static List<Long> seqs(List<BidJournal.JournalEntry> entries) {
+        return entries.stream().map(BidJournal.JournalEntry::seq).toList();
+    }
+
+    private static Bid bid(int productId, int bidId) {
+        Product product = new Product();
+        product.setId(productId);
+        Bid bid = new Bid();
+        bid.setId(bidId);
+        bid.setProduct(product);
+        bid.setBidderId(100 + bidId);
+        bid.setAmount(10 * bidId);
+        return bid;
+    }
+}
@@ -0,0 +1,236 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class BidWriterTest {
+
+    private static final int PRODUCT_ID = 1;
+    private static final int OTHER_PRODUCT_ID = 2;
+    // saving a bid from this bidder fails, like a row the database turns down
+    private static final int REJECTED_BIDDER = 666;
+
+    // committed state: each product's current bid, and the bids written, one list per commit
+    private final Map<Integer, Double> currentBids = new ConcurrentHashMap<>();
+    private final List<List<Bid>> commits = new CopyOnWriteArrayList<>();
+    private final List<Integer> broadcast = new CopyOnWriteArrayList<>();
+    // what the open transaction has done so far
+    private final List<Product> locked = new ArrayList<>();
+    private final List<Bid> saved = new ArrayList<>();
+    private int rollbacks;
+    private int nextId = 1;
+    // when set, the next locking read waits for it, so bids queue up behind the transaction
+    private volatile CountDownLatch holdNextCommit;
+
+    private BidWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        currentBids.put(PRODUCT_ID, 10.0);
+        currentBids.put(OTHER_PRODUCT_ID, 10.0);
+
+        writer = new BidWriter();
+        ReflectionTestUtils.setField(writer, "lingerMs", 0L);
+        ReflectionTestUtils.setField(writer, "maxBatch", 128);
+        ReflectionTestUtils.setField(writer, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(writer, "productRepository", fake(ProductRepository.class, Map.of(
+                "findAllByIdForUpdate", args -> {
+                    CountDownLatch hold = holdNextCommit;
+                    if (hold != null) {
+                        holdNextCommit = null;
+                        await(hold);
+                    }
+                    for (Integer id : (Collection<Integer>) args[0]) {
+                        if (currentBids.containsKey(id)) {
+                            locked.add(product(id, currentBids.get(id)));
+                        }
+                    }
+                    return List.copyOf(locked);
+                })));
+        ReflectionTestUtils.setField(writer, "bidRepository", fake(BidRepository.class, Map.of(
+                "saveAll", args -> {
+                    for (Bid bid : (Iterable<Bid>) args[0]) {
+                        if (bid.getBidderId() == REJECTED_BIDDER) {
+                            throw new IllegalStateException("constraint violated");
+                        }
+                        bid.setId(nextId++);
+                        saved.add(bid);
+                    }
+                    return List.copyOf(saved);
+                })));
+        ReflectionTestUtils.setField(writer, "transactionTemplate", new TransactionTemplate(
+                fake(PlatformTransactionManager.class, Map.of(
+                        "getTransaction", args -> {
+                            locked.clear();
+                            saved.clear();
+                            return new SimpleTransactionStatus();
+                        },
+                        "commit", args -> {
+                            locked.forEach(p -> currentBids.put(p.getId(), p.getCurrentBid()));
+                            commits.add(List.copyOf(saved));
+                            return null;
+                        },
+                        "rollback", args -> {
+                            rollbacks++;
+                            return null;
+                        }))));
+        ReflectionTestUtils.setField(writer, "liveAuctionBroadcaster", new LiveAuctionBroadcaster(1) {
+            @Override
+            public void onBidsAccepted(Product product, int newBids) {
+                broadcast.add(product.getId());
+            }
+        });
+        // switched off, so they take the accepted bids without doing anything
+        ReflectionTestUtils.setField(writer, "bidJournal", new BidJournal());
+        ReflectionTestUtils.setField(writer, "productSuggestIndex", new ProductSuggestIndex());
+        ReflectionTestUtils.setField(writer, "productFacetIndex", new ProductFacetIndex());
+        ReflectionTestUtils.setField(writer, "endingSoonIndex", new EndingSoonIndex());
+        ReflectionTestUtils.setField(writer, "productVersionCache", new ProductVersionCache(10));
+        ReflectionTestUtils.setField(writer, "meterRegistry", new SimpleMeterRegistry());
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void bidsQueuedDuringACommitGoOutTogetherInTheNext() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        holdNextCommit = hold;
+        CompletableFuture<Bid> first = writer.submit(bid(PRODUCT_ID, 7, 20));
+        waitUntil(() -> holdNextCommit == null);
+        CompletableFuture<Bid> second = writer.submit(bid(PRODUCT_ID, 8, 30));
+        CompletableFuture<Bid> third = writer.submit(bid(OTHER_PRODUCT_ID, 9, 40));
+        // arrived after a higher bid on the same product in the same batch
+        CompletableFuture<Bid> lower = writer.submit(bid(PRODUCT_ID, 10, 25));
+        hold.countDown();
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(second.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(third.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException stale = assertThrows(ExecutionException.class, () -> lower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BidWriter.StaleBidException.class, stale.getCause());
+
+        assertEquals(List.of(1, 2), commits.stream().map(List::size).toList());
+        assertEquals(30.0, currentBids.get(PRODUCT_ID));
+        assertEquals(40.0, currentBids.get(OTHER_PRODUCT_ID));
+        waitUntil(() -> broadcast.size() == 3);
+    }
+
+    @Test
+    void failedBatchIsRolledBackAndRetriedBidByBid() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        holdNextCommit = hold;
+        CompletableFuture<Bid> opener = writer.submit(bid(OTHER_PRODUCT_ID, 6, 15));
+        waitUntil(() -> holdNextCommit == null);
+        CompletableFuture<Bid> good = writer.submit(bid(PRODUCT_ID, 7, 20));
+        CompletableFuture<Bid> bad = writer.submit(bid(PRODUCT_ID, REJECTED_BIDDER, 30));
+        CompletableFuture<Bid> alsoGood = writer.submit(bid(OTHER_PRODUCT_ID, 8, 40));
+        hold.countDown();
+
+        opener.get(5, TimeUnit.SECONDS);
+        Bid written = good.get(5, TimeUnit.SECONDS);
+        alsoGood.get(5, TimeUnit.SECONDS);
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failed.getCause());
+
+        // the batch of three, then the rejected bid again on its own
+        assertEquals(2, rollbacks);
+        assertEquals(List.of(1, 1, 1), commits.stream().map(List::size).toList());
+        assertEquals(List.of(written), commits.get(1));
+        // the rejected bid's raise went with the rollback
+        assertEquals(20.0, currentBids.get(PRODUCT_ID));
+        assertEquals(40.0, currentBids.get(OTHER_PRODUCT_ID));
+    }
+
+    @Test
+    void bidOnAProductGoneMissingIsRejected() {
+        BidWriter.StaleBidException stale = assertThrows(BidWriter.StaleBidException.class,
+                () -> writer.write(bid(3, 7, 20)));
+        assertEquals("Product not found", stale.getMessage());
+    }
+
+    private static Bid bid(int productId, int bidderId, int amount) {
+        Bid bid = new Bid();
+        bid.setProduct(product(productId, null));
+        bid.setBidderId(bidderId);
+        bid.setAmount(amount);
+        return bid;
+    }
+
+    private static Product product(int id, Double currentBid) {
+        Product product = new Product();
+        product.setId(id);
+        product.setFrozen(false);
+        product.setCurrentBid(currentBid);
+        return product;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> call = methods.get(method.getName());
+                    if (call == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return call.apply(args);
+            }
+        });
+    }
+}
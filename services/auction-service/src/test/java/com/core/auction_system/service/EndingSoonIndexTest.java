@@ -0,0 +1,74 @@
+package com.core.auction_system.service;
+
+import static com.core.auction_system.service.TestProducts.enabled;
+import static com.core.auction_system.service.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EndingSoonIndexTest {
+
+    private EndingSoonIndex index;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        index = enabled(new EndingSoonIndex());
+        now = LocalDateTime.now();
+        save(1, now.plusHours(3), false);
+        save(2, now.plusMinutes(10), false);
+        save(3, now.plusDays(2), false);
+        save(4, now.minusMinutes(5), false);
+        save(5, now.plusMinutes(20), true);
+    }
+
+    @Test
+    void listsOpenAuctionsSoonestFirst() {
+        assertEquals(List.of(2, 1), ids(Duration.ofDays(1), 10));
+        assertEquals(List.of(2, 1, 3), ids(Duration.ofDays(3), 10));
+        assertEquals(List.of(2), ids(Duration.ofDays(3), 1));
+        assertEquals(List.of(), ids(Duration.ofMinutes(5), 10));
+    }
+
+    @Test
+    void followsUpdatesAndCloses() {
+        save(3, now.plusMinutes(1), false);
+        assertEquals(List.of(3, 2, 1), ids(Duration.ofDays(3), 10));
+
+        save(2, now.plusMinutes(10), true);
+        index.onProductChanged(ProductChangedEvent.deleted(1));
+        assertEquals(List.of(3), ids(Duration.ofDays(3), 10));
+    }
+
+    @Test
+    void servesLatestBid() {
+        Product p = product(2).endTime(now.plusMinutes(10)).currentBid(42.0).build();
+        index.onBidsAccepted(p);
+        p.setCurrentBid(99.0);
+        assertEquals(42.0, index.endingWithin(Duration.ofHours(1), 10).get(0).getCurrentBid());
+        // a bid for a product the index doesn't hold is ignored
+        index.onBidsAccepted(product(5).endTime(now.plusMinutes(20)).frozen(true).build());
+        assertEquals(List.of(2), ids(Duration.ofHours(1), 10));
+    }
+
+    @Test
+    void dropsEndedAuctions() {
+        assertEquals(1, index.dropEndedBefore(now));
+        save(4, now.plusMinutes(1), false);
+        assertEquals(List.of(4, 2), ids(Duration.ofHours(1), 10));
+    }
+
+    private List<Integer> ids(Duration within, int limit) {
+        return index.endingWithin(within, limit).stream().map(Product::getId).toList();
+    }
+
+    private void save(int id, LocalDateTime endTime, boolean frozen) {
+        product(id).endTime(endTime).frozen(frozen).saveTo(index);
+    }
+}
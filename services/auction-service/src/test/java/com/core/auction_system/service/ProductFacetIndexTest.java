@@ -0,0 +1,86 @@
+package com.core.auction_system.service;
+
+import static com.core.auction_system.service.TestProducts.ELECTRONICS;
+import static com.core.auction_system.service.TestProducts.enabled;
+import static com.core.auction_system.service.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = enabled(new ProductFacetIndex());
+        save(1, "Electronics", 20.0, LocalDateTime.now().plusMinutes(30), false);
+        save(2, "Electronics", 300.0, LocalDateTime.now().plusHours(5), false);
+        save(3, "Home", 75.0, LocalDateTime.now().plusDays(3), false);
+        save(4, "Electronics", 6000.0, LocalDateTime.now().minusDays(1), true);
+    }
+
+    @Test
+    void filtersAndSorts() {
+        assertEquals(List.of(4, 3, 2, 1), ids(query(null, null, null, null), "newest"));
+        assertEquals(List.of(2, 1), ids(query(ELECTRONICS, null, null, ProductFacetIndex.ACTIVE), "newest"));
+        assertEquals(List.of(1, 2, 3, 4), ids(query(null, null, null, null), "ending"));
+        assertEquals(List.of(1, 2), ids(query(null, null, "24h", null), "price_asc"));
+        assertEquals(List.of(4, 2, 3, 1), ids(query(null, null, null, null), "price_desc"));
+        assertEquals(List.of(3), ids(query(null, "50-100", null, null), "price_asc"));
+    }
+
+    @Test
+    void countsEachFacetWithoutItsOwnFilter() {
+        Map<String, Map<String, Integer>> facets = index.browse(
+                query(ELECTRONICS, null, null, ProductFacetIndex.ACTIVE), "newest", 0, 10).facets();
+        // category counts ignore the category filter but keep the status one
+        assertEquals(Map.of("Electronics", 2, "Home", 1), facets.get("category"));
+        assertEquals(Map.of(ProductFacetIndex.ACTIVE, 2, ProductFacetIndex.CLOSED, 1), facets.get("status"));
+        assertEquals(1, facets.get("price").get("0-50"));
+        assertEquals(1, facets.get("price").get("250-500"));
+        assertEquals(0, facets.get("price").get("5000+"));
+        assertEquals(Map.of("1h", 1, "24h", 2, "7d", 2), facets.get("ending"));
+    }
+
+    @Test
+    void followsBidsAndStateChanges() {
+        Product p = product(1).currentBid(120.0).endTime(LocalDateTime.now().plusMinutes(30)).build();
+        index.onBidsAccepted(p);
+        assertEquals(List.of(1), ids(query(null, "100-250", null, null), "newest"));
+        assertEquals(List.of(), ids(query(null, "0-50", null, null), "newest"));
+
+        p.setFrozen(true);
+        index.onProductChanged(ProductChangedEvent.saved(p));
+        assertEquals(List.of(2), ids(query(null, null, "24h", null), "newest"));
+
+        index.onProductChanged(ProductChangedEvent.deleted(3));
+        assertEquals(Map.of("Electronics", 3), index.browse(query(null, null, null, null), "newest", 0, 10)
+                .facets().get("category"));
+        assertEquals(3, index.browse(query(null, null, null, null), "newest", 0, 10).total());
+    }
+
+    @Test
+    void pagesThroughResults() {
+        assertEquals(List.of(2, 1), index.browse(query(null, null, null, null), "newest", 2, 2).productIds());
+        assertEquals(List.of(), index.browse(query(null, null, null, null), "newest", 4, 2).productIds());
+    }
+
+    private List<Integer> ids(ProductFacetIndex.Query query, String sort) {
+        return index.browse(query, sort, 0, 10).productIds();
+    }
+
+    private static ProductFacetIndex.Query query(Integer categoryId, String price, String ending, String status) {
+        return new ProductFacetIndex.Query(categoryId, price, ending, status);
+    }
+
+    private void save(int id, String category, double currentBid, LocalDateTime endTime, boolean frozen) {
+        product(id).category(category).currentBid(currentBid).endTime(endTime).frozen(frozen).saveTo(index);
+    }
+}
@@ -0,0 +1,165 @@
+package com.core.auction_system.service;
+
+import static com.core.auction_system.service.TestProducts.enabled;
+import static com.core.auction_system.service.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.dto.BidResponseDTO;
+import com.core.auction_system.dto.ProductChangesDTO;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProductTombstone;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+class ProductIndexLoaderTest {
+
+    private final List<Product> products = new ArrayList<>();
+    // what the other instances committed, served by the fake feed one page per call
+    private final List<ProductChangesDTO> pages = new ArrayList<>();
+    private final List<ProductChangeFeed.Cursor> asked = new ArrayList<>();
+    private Map<Integer, Long> bidCounts = Map.of();
+    private int productStreams;
+
+    private ProductSearchIndex search;
+    private ProductSuggestIndex suggest;
+    private EndingSoonIndex endingSoon;
+    private ProductFacetIndex browse;
+    private ProductIndexLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime soon = LocalDateTime.now().plusHours(1);
+        products.add(product(1).name("iPhone 14").endTime(soon).build());
+        products.add(product(2).name("iPad Air").endTime(soon.plusMinutes(5)).build());
+
+        search = enabled(new ProductSearchIndex());
+        suggest = enabled(new ProductSuggestIndex());
+        ReflectionTestUtils.setField(suggest, "bidRepository", bidRepository());
+        endingSoon = enabled(new EndingSoonIndex());
+        // left switched off
+        browse = new ProductFacetIndex();
+
+        loader = new ProductIndexLoader();
+        ReflectionTestUtils.setField(loader, "indexes", List.of(search, suggest, endingSoon, browse));
+        ReflectionTestUtils.setField(loader, "productRepository", fake(ProductRepository.class, Map.of(
+                "streamAll", args -> {
+                    productStreams++;
+                    return products.stream();
+                })));
+        ReflectionTestUtils.setField(loader, "bidRepository", bidRepository());
+        ReflectionTestUtils.setField(loader, "productChangeFeed", new ProductChangeFeed() {
+            @Override
+            public Cursor head() {
+                return new Cursor(100, 0);
+            }
+
+            @Override
+            public ProductChangesDTO changesSince(Cursor since, int limit) {
+                asked.add(since);
+                return pages.isEmpty() ? new ProductChangesDTO(since.toString(), false, List.of(), List.of(), List.of())
+                        : pages.remove(0);
+            }
+        });
+        ReflectionTestUtils.setField(loader, "transactionManager", fake(PlatformTransactionManager.class, Map.of(
+                "getTransaction", args -> new SimpleTransactionStatus(),
+                "commit", args -> null)));
+        ReflectionTestUtils.setField(loader, "entityManager", fake(EntityManager.class, Map.of(
+                "detach", args -> null)));
+        ReflectionTestUtils.setField(loader, "followEnabled", true);
+    }
+
+    @Test
+    void loadsEveryEnabledIndexFromOnePass() {
+        bidCounts = Map.of(2, 4L);
+        loader.load();
+
+        assertEquals(1, productStreams);
+        assertTrue(search.isReady());
+        assertTrue(endingSoon.isReady());
+        assertFalse(browse.isReady());
+        assertEquals(List.of(1), search.search("iphone", false, 0, 10).hits().stream()
+                .map(ProductSearchIndex.Hit::productId).toList());
+        assertEquals(List.of(1, 2), endingSoon.endingWithin(Duration.ofHours(2), 10).stream()
+                .map(Product::getId).toList());
+        assertEquals(new ProductSuggestIndex.Suggestion("iPad Air", "product", 4), suggest.suggest("ip", 10).get(0));
+    }
+
+    @Test
+    void followsChangesMadeOnOtherInstances() {
+        loader.load();
+        Product renamed = product(1).name("Galaxy S23").endTime(LocalDateTime.now().plusMinutes(30)).build();
+        Product created = product(3).name("iPhone 15").endTime(LocalDateTime.now().plusHours(1)).build();
+        pages.add(new ProductChangesDTO("100.7", true, List.of(renamed), List.of(), List.of()));
+        pages.add(new ProductChangesDTO("101.9", false, List.of(created), List.of(bid(3)),
+                List.of(new ProductTombstone(2, 8L, 101L))));
+        bidCounts = Map.of(3, 2L);
+
+        loader.follow();
+
+        // from the cursor taken before the load, then from each page's nextSince
+        assertEquals(List.of("100.0", "100.7"), asked.stream().map(Object::toString).toList());
+        assertEquals(List.of(3), search.search("iphone", false, 0, 10).hits().stream()
+                .map(ProductSearchIndex.Hit::productId).toList());
+        assertEquals(List.of(1, 3), endingSoon.endingWithin(Duration.ofHours(2), 10).stream()
+                .map(Product::getId).toList());
+        assertEquals(List.of(new ProductSuggestIndex.Suggestion("iPhone 15", "product", 2)), suggest.suggest("ip", 10));
+
+        loader.follow();
+        assertEquals("101.9", asked.get(2).toString());
+    }
+
+    @Test
+    void doesNotFollowUntilLoaded() {
+        loader.follow();
+        assertTrue(asked.isEmpty());
+    }
+
+    private BidRepository bidRepository() {
+        return fake(BidRepository.class, Map.of(
+                "streamBidCountsByProduct", args -> bidCounts.entrySet().stream()
+                        .map(e -> new Object[] {e.getKey(), e.getValue()}),
+                "countByProductIds", args -> bidCounts.entrySet().stream()
+                        .map(e -> new Object[] {e.getKey(), e.getValue()}).toList()));
+    }
+
+    private static BidResponseDTO bid(int productId) {
+        BidResponseDTO bid = new BidResponseDTO();
+        bid.setProductId(productId);
+        return bid;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> call = methods.get(method.getName());
+                    if (call == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return call.apply(args);
+            }
+        });
+    }
+}
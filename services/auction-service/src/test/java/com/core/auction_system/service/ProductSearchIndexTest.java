@@ -0,0 +1,74 @@
+package com.core.auction_system.service;
+
+import static com.core.auction_system.service.TestProducts.enabled;
+import static com.core.auction_system.service.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = enabled(new ProductSearchIndex());
+        save(1, "iPhone 14 Pro", "Electronics", "Barely used, comes with charger");
+        save(2, "Phone case", "Accessories", "Fits the iPhone 14");
+        save(3, "Crème brûlée torch", "Home", "Kitchen torch");
+        save(4, "iPad Air", "Electronics", "Used tablet");
+    }
+
+    @Test
+    void matchesEveryTermAndRanksNameAboveDescription() {
+        assertEquals(List.of(1, 2), ids(index.search("iphone 14", false, 0, 10)));
+        assertEquals(List.of(), ids(index.search("iphone kitchen", false, 0, 10)));
+    }
+
+    @Test
+    void lastTermMatchesAsPrefix() {
+        assertEquals(List.of(4, 1, 2), ids(index.search("ip", false, 0, 10)));
+        assertEquals(List.of(4), ids(index.search("used ipa", false, 0, 10)));
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        assertEquals(List.of(3), ids(index.search("CREME Brulee", false, 0, 10)));
+    }
+
+    @Test
+    void followsEditsDeletesAndCloses() {
+        save(4, "Galaxy Tab", "Electronics", "Used tablet");
+        assertEquals(List.of(), ids(index.search("ipad", false, 0, 10)));
+        assertEquals(List.of(4), ids(index.search("galaxy", false, 0, 10)));
+
+        index.onProductChanged(ProductChangedEvent.deleted(2));
+        assertEquals(List.of(1), ids(index.search("iphone", false, 0, 10)));
+
+        item(1, "iPhone 14 Pro", "Electronics", "Barely used, comes with charger").frozen(true).saveTo(index);
+        assertEquals(List.of(), ids(index.search("iphone", true, 0, 10)));
+        assertEquals(List.of(1), ids(index.search("iphone", false, 0, 10)));
+    }
+
+    @Test
+    void pagesThroughResults() {
+        ProductSearchIndex.Result page = index.search("electronics", false, 1, 1);
+        assertEquals(2, page.total());
+        assertEquals(1, page.hits().size());
+    }
+
+    private void save(int id, String name, String category, String description) {
+        item(id, name, category, description).saveTo(index);
+    }
+
+    private static TestProducts item(int id, String name, String category, String description) {
+        return product(id).name(name).category(category).description(description);
+    }
+
+    private static List<Integer> ids(ProductSearchIndex.Result result) {
+        return result.hits().stream().map(ProductSearchIndex.Hit::productId).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package com.core.auction_system.service;
+
+import static com.core.auction_system.service.TestProducts.enabled;
+import static com.core.auction_system.service.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProductSuggestIndexTest {
+
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = enabled(new ProductSuggestIndex());
+        save(1, "iPhone 14", "Electronics");
+        save(2, "iPhone 13", "Electronics");
+        save(3, "iPad Air", "Electronics");
+        save(4, "Ironing board", "Home");
+    }
+
+    @Test
+    void ranksCompletionsByBids() {
+        index.onBidsAccepted(2, 5);
+        index.onBidsAccepted(3, 2);
+        assertEquals(List.of("iPhone 13", "iPad Air", "iPhone 14"), texts("ip", 10));
+        assertEquals(List.of("iPhone 13", "iPhone 14"), texts("IPHONE", 10));
+        index.onBidsAccepted(1, 10);
+        assertEquals(List.of("iPhone 14", "iPhone 13"), texts("iph", 10));
+        assertEquals(List.of("iPhone 14"), texts("i", 1));
+    }
+
+    @Test
+    void suggestsCategoriesFirst() {
+        index.onBidsAccepted(4, 1);
+        List<ProductSuggestIndex.Suggestion> suggestions = index.suggest("e", 4);
+        assertEquals(new ProductSuggestIndex.Suggestion("Electronics", "category", 0), suggestions.get(0));
+        assertEquals(1, suggestions.size());
+    }
+
+    @Test
+    void dropsClosedAndDeletedProducts() {
+        index.onBidsAccepted(1, 3);
+        product(1).name("iPhone 14").frozen(true).saveTo(index);
+        assertEquals(List.of("iPad Air", "iPhone 13"), texts("ip", 10));
+
+        index.onProductChanged(ProductChangedEvent.deleted(2));
+        assertEquals(List.of("iPad Air"), texts("ip", 10));
+        assertEquals(List.of("iPad Air", "Ironing board"), texts("i", 10));
+    }
+
+    @Test
+    void followsRenames() {
+        save(3, "iPhone 15", "Electronics");
+        assertEquals(List.of("iPhone 13", "iPhone 14", "iPhone 15"), texts("iphone 1", 10));
+        assertEquals(List.of(), texts("ipad", 10));
+    }
+
+    private List<String> texts(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream()
+                .filter(s -> s.type().equals("product"))
+                .map(ProductSuggestIndex.Suggestion::text)
+                .toList();
+    }
+
+    private void save(int id, String name, String category) {
+        product(id).name(name).category(category).saveTo(index);
+    }
+}
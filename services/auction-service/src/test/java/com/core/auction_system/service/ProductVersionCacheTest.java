@@ -0,0 +1,54 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ProductVersionCacheTest {
+
+    private ProductVersionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ProductVersionCache(2);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60000L);
+    }
+
+    @Test
+    void remembersVersionsUntilInvalidated() {
+        cache.put(1, 3L, cache.stamp());
+        assertEquals(3L, cache.version(1));
+
+        cache.onProductChanged(ProductChangedEvent.deleted(1));
+        assertNull(cache.version(1));
+
+        cache.put(1, 4L, cache.stamp());
+        assertEquals(4L, cache.version(1));
+    }
+
+    @Test
+    void readStartedBeforeAnInvalidationIsDropped() {
+        long stamp = cache.stamp();
+        cache.invalidate(1);
+        cache.put(1, 3L, stamp);
+        assertNull(cache.version(1));
+    }
+
+    @Test
+    void expiresAndEvicts() {
+        ReflectionTestUtils.setField(cache, "ttlMs", -1L);
+        cache.put(1, 3L, cache.stamp());
+        assertNull(cache.version(1));
+
+        ReflectionTestUtils.setField(cache, "ttlMs", 60000L);
+        cache.put(1, 3L, cache.stamp());
+        cache.put(2, 1L, cache.stamp());
+        cache.put(3, 1L, cache.stamp());
+        assertNull(cache.version(1));
+        assertEquals(1L, cache.version(3));
+    }
+}
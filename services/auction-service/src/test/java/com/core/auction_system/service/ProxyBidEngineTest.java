@@ -0,0 +1,235 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.core.auction_system.client.PaymentClient;
+import com.core.auction_system.model.Bid;
+import com.core.auction_system.model.Product;
+import com.core.auction_system.model.ProxyBid;
+import com.core.auction_system.repository.BidRepository;
+import com.core.auction_system.repository.ProxyBidRepository;
+import jakarta.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ProxyBidEngineTest {
+
+    private static final int PRODUCT_ID = 1;
+
+    private final List<Bid> bids = new ArrayList<>();
+    private final List<ProxyBid> proxies = new ArrayList<>();
+    // runs before the next write and makes it stale, like a regular bid committing in between
+    private Runnable nextWriteRaces;
+    private Product product;
+    private ProxyBidEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        product = new Product();
+        product.setId(PRODUCT_ID);
+        product.setMinBid(10.0);
+        product.setMaxBid(1000.0);
+        product.setFrozen(false);
+        product.setEndTime(LocalDateTime.now().plusHours(1));
+
+        engine = new ProxyBidEngine();
+        ReflectionTestUtils.setField(engine, "increment", 1);
+        ReflectionTestUtils.setField(engine, "proxyBidRepository", proxyBidRepository());
+        ReflectionTestUtils.setField(engine, "bidRepository", bidRepository());
+        ReflectionTestUtils.setField(engine, "productService", new ProductService() {
+            @Override
+            public Optional<Product> getProductById(Integer id) {
+                return id == PRODUCT_ID ? Optional.of(product) : Optional.empty();
+            }
+        });
+        ReflectionTestUtils.setField(engine, "paymentClient", new PaymentClient() {
+            @Override
+            public FreezeResponse freeze(Integer userId, Double amount, String email) {
+                FreezeResponse fr = new FreezeResponse();
+                fr.ok = true;
+                fr.reservationId = "r-" + userId;
+                return fr;
+            }
+        });
+        ReflectionTestUtils.setField(engine, "bidWriter", new BidWriter() {
+            @Override
+            public Bid write(Bid bid) {
+                if (nextWriteRaces != null) {
+                    Runnable race = nextWriteRaces;
+                    nextWriteRaces = null;
+                    race.run();
+                    throw new StaleBidException("outbid_race");
+                }
+                store(bid);
+                return bid;
+            }
+        });
+        ReflectionTestUtils.setField(engine, "walletExposure", new WalletExposureCache(10));
+        ReflectionTestUtils.setField(engine, "transactionTemplate", new TransactionTemplate(
+                fake(PlatformTransactionManager.class, Map.of(
+                        "getTransaction", args -> new SimpleTransactionStatus(),
+                        "commit", args -> null))));
+        ReflectionTestUtils.setField(engine, "entityManager", fake(EntityManager.class, Map.of(
+                "clear", args -> null,
+                "detach", args -> null)));
+    }
+
+    @Test
+    void leadsAtTheMinimumAndAnswersBidsByOneIncrement() {
+        assertTrue(engine.register(PRODUCT_ID, 50, 7, "a@x").leading());
+        assertEquals(10, amountOf(7));
+
+        store(regularBid(8, 20));
+        engine.onBidPlaced(PRODUCT_ID);
+        assertEquals(21, amountOf(7));
+        assertEquals(21.0, product.getCurrentBid());
+
+        // a bid above the maximum leaves the proxy where it was
+        store(regularBid(8, 60));
+        engine.onBidPlaced(PRODUCT_ID);
+        assertEquals(21, amountOf(7));
+        assertEquals(60.0, product.getCurrentBid());
+    }
+
+    @Test
+    void pushesTheRunnerUpToItsMaximum() {
+        engine.register(PRODUCT_ID, 50, 7, "a@x");
+        ProxyBidEngine.RegistrationResult result = engine.register(PRODUCT_ID, 80, 8, "b@x");
+
+        assertTrue(result.leading());
+        assertEquals(50, amountOf(7));
+        assertEquals(51, amountOf(8));
+        assertEquals(51.0, result.currentBid());
+    }
+
+    @Test
+    void tieGoesToTheEarlierProxyAtTheSharedMaximum() {
+        engine.register(PRODUCT_ID, 50, 7, "a@x");
+        ProxyBidEngine.RegistrationResult result = engine.register(PRODUCT_ID, 50, 8, "b@x");
+
+        assertFalse(result.leading());
+        assertEquals(50, amountOf(7));
+        // the later proxy never gets a bid row, so settlement has to release it from proxy_bids
+        assertNull(amountOf(8));
+        Map<String, ProxyBid> reserved = engine.reservations(PRODUCT_ID);
+        assertEquals(50, reserved.get("r-8").getMaxAmount());
+    }
+
+    @Test
+    void answersWithAProxyRegisteredOnAnotherInstance() {
+        engine.onBidPlaced(PRODUCT_ID);
+        // nothing of it passed through this engine; it is only in the database
+        ProxyBid elsewhere = new ProxyBid();
+        elsewhere.setId(1);
+        elsewhere.setProductId(PRODUCT_ID);
+        elsewhere.setBidderId(7);
+        elsewhere.setMaxAmount(50);
+        elsewhere.setReservationId("r-7");
+        elsewhere.setActive(true);
+        elsewhere.setCreatedAt(LocalDateTime.now());
+        proxies.add(elsewhere);
+
+        store(regularBid(8, 20));
+        engine.onBidPlaced(PRODUCT_ID);
+        assertEquals(21, amountOf(7));
+    }
+
+    @Test
+    void resolvesAgainAfterRacingARegularBid() {
+        engine.register(PRODUCT_ID, 50, 7, "a@x");
+        store(regularBid(8, 20));
+        nextWriteRaces = () -> store(regularBid(9, 30));
+
+        engine.onBidPlaced(PRODUCT_ID);
+
+        assertEquals(31, amountOf(7));
+        assertEquals(31.0, product.getCurrentBid());
+    }
+
+    private Integer amountOf(Integer bidderId) {
+        return bids.stream().filter(b -> b.getBidderId().equals(bidderId)).map(Bid::getAmount).findFirst()
+                .orElse(null);
+    }
+
+    private Bid regularBid(Integer bidderId, int amount) {
+        Bid bid = new Bid();
+        bid.setProduct(product);
+        bid.setBidderId(bidderId);
+        bid.setAmount(amount);
+        bid.setReservationId("r-" + bidderId);
+        return bid;
+    }
+
+    // what BidWriter does: insert or raise the row and move the product's current bid
+    private void store(Bid bid) {
+        if (bid.getId() == null) {
+            bid.setId(bids.size() + 1);
+            bids.add(bid);
+        }
+        product.setCurrentBid(Math.max(product.getCurrentBid() == null ? 0 : product.getCurrentBid(),
+                bid.getAmount()));
+    }
+
+    private Optional<Bid> top() {
+        return bids.stream().max(Comparator.comparing(Bid::getAmount)
+                .thenComparing(Bid::getId, Comparator.reverseOrder()));
+    }
+
+    private BidRepository bidRepository() {
+        return fake(BidRepository.class, Map.of(
+                "findTopByProductOrderByAmountDesc", args -> top(),
+                "findFirstByProductIdAndBidderId", args -> bids.stream()
+                        .filter(b -> b.getBidderId().equals(args[1])).findFirst(),
+                "existsByBidderIdAndProduct", args -> bids.stream()
+                        .anyMatch(b -> b.getBidderId().equals(args[0]))));
+    }
+
+    private ProxyBidRepository proxyBidRepository() {
+        return fake(ProxyBidRepository.class, Map.of(
+                "save", args -> {
+                    ProxyBid p = (ProxyBid) args[0];
+                    p.setId(proxies.size() + 1);
+                    proxies.add(p);
+                    return p;
+                },
+                "findActiveByProductIdForUpdate", args -> proxies.stream().filter(ProxyBid::getActive).toList(),
+                "findByProductId", args -> List.copyOf(proxies),
+                "existsByProductIdAndBidderId", args -> proxies.stream()
+                        .anyMatch(p -> p.getBidderId().equals(args[1]))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "fake " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    Function<Object[], Object> call = methods.get(method.getName());
+                    if (call == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return call.apply(args);
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.core.auction_system.service;
+
+import com.core.auction_system.events.ProductChangedEvent;
+import com.core.auction_system.model.Product;
+import java.time.LocalDateTime;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Products for the in-memory index tests: open, named "Product id", in Electronics (category 1)
+ * unless set otherwise.
+ */
+final class TestProducts {
+
+    static final int ELECTRONICS = 1;
+    static final int HOME = 2;
+
+    private final Product product = new Product();
+
+    private TestProducts(int id) {
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setCategoryId(ELECTRONICS);
+        product.setCategory("Electronics");
+        product.setFrozen(false);
+    }
+
+    static TestProducts product(int id) {
+        return new TestProducts(id);
+    }
+
+    // an index switched on, with nothing loaded yet
+    static <T extends ProductIndex> T enabled(T index) {
+        ReflectionTestUtils.setField(index, "enabled", true);
+        return index;
+    }
+
+    TestProducts name(String name) {
+        product.setName(name);
+        return this;
+    }
+
+    TestProducts category(String category) {
+        product.setCategoryId(category.equals("Home") ? HOME : ELECTRONICS);
+        product.setCategory(category);
+        return this;
+    }
+
+    TestProducts description(String description) {
+        product.setDescription(description);
+        return this;
+    }
+
+    TestProducts currentBid(double currentBid) {
+        product.setCurrentBid(currentBid);
+        return this;
+    }
+
+    TestProducts endTime(LocalDateTime endTime) {
+        product.setEndTime(endTime);
+        return this;
+    }
+
+    TestProducts frozen(boolean frozen) {
+        product.setFrozen(frozen);
+        return this;
+    }
+
+    Product build() {
+        return product;
+    }
+
+    // as a save on this instance reaches the index
+    Product saveTo(ProductIndex index) {
+        index.onProductChanged(ProductChangedEvent.saved(product));
+        return product;
+    }
+}
@@ -0,0 +1,70 @@
+package com.core.auction_system.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class WalletExposureCacheTest {
+
+    private static final int BIDDER = 7;
+
+    private WalletExposureCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new WalletExposureCache(100);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        cache.feedConnected();
+    }
+
+    @Test
+    void eventsMoveTheBoundOnce() {
+        cache.onRefused(BIDDER, 100, 5L);
+        assertTrue(cache.isUnaffordable(BIDDER, 100));
+
+        // the freeze response and its payment.locked event carry one version
+        cache.onFreeze(BIDDER, 30, true, null, 6L);
+        cache.onLocked(BIDDER, 30, 6L);
+        assertFalse(cache.isUnaffordable(BIDDER, 69));
+        assertTrue(cache.isUnaffordable(BIDDER, 70));
+
+        // already part of the refusal
+        cache.onReleased(BIDDER, 50, 4L);
+        assertTrue(cache.isUnaffordable(BIDDER, 70));
+    }
+
+    @Test
+    void lateLockAfterANewerRefusalIsNotSubtractedAgain() {
+        cache.onRefused(BIDDER, 100, 5L);
+        cache.onLocked(BIDDER, 30, 6L);
+        // the lock at version 7 is still on its way when a freeze is refused at version 8
+        cache.onRefused(BIDDER, 90, 8L);
+        cache.onLocked(BIDDER, 20, 7L);
+
+        assertFalse(cache.isUnaffordable(BIDDER, 89));
+        assertTrue(cache.isUnaffordable(BIDDER, 90));
+
+        cache.onReleased(BIDDER, 10, 9L);
+        assertFalse(cache.isUnaffordable(BIDDER, 99));
+        assertTrue(cache.isUnaffordable(BIDDER, 100));
+    }
+
+    @Test
+    void olderRefusalLeavesTheBoundAlone() {
+        cache.onRefused(BIDDER, 100, 5L);
+        cache.onReleased(BIDDER, 50, 6L);
+        cache.onRefused(BIDDER, 40, 3L);
+        assertFalse(cache.isUnaffordable(BIDDER, 149));
+    }
+
+    @Test
+    void nothingIsTrustedWhileTheFeedIsDown() {
+        cache.onRefused(BIDDER, 100, 5L);
+        cache.feedLost();
+        assertFalse(cache.isUnaffordable(BIDDER, 1000));
+    }
+}
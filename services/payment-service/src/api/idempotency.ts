@@ -0,0 +1,56 @@
+import { Request, Response, NextFunction } from "express";
+import * as wallet from "../wallet/wallet.service";
+
+const WAIT_POLL_MS = 25;
+const WAIT_MAX_MS = 10000;
+
+export type StoredResponse = { status: number; body: any };
+
+/**
+ * Honors an Idempotency-Key header: the first response for a key is stored and any repeat of the
+ * same key on the same route gets that response back without running the handler again.
+ * 5xx responses are not stored so the caller can retry them. A request whose key is still being
+ * handled waits for that outcome, so a hedged duplicate (auction-service sends a second freeze
+ * to another instance when the first is slow) never runs the operation twice.
+ */
+export function idempotent(req: Request, res: Response, next: NextFunction) {
+  const key = req.header("Idempotency-Key");
+  if (!key) return next();
+  const scopedKey = `${req.path}:${key}`;
+
+  claimOrWait(scopedKey)
+    .then((stored) => {
+      if (stored) {
+        res.setHeader("Idempotent-Replayed", "true");
+        return res.status(stored.status).json(stored.body);
+      }
+      const send = res.json.bind(res);
+      // store before replying, so a caller that saw the response can rely on the replay
+      res.json = ((body: any) => {
+        const done = res.statusCode >= 500
+          ? wallet.releaseIdempotencyKey(scopedKey)
+          : wallet.saveIdempotentResponse(scopedKey, res.statusCode, body);
+        done
+          .catch((e) => console.error("Failed to store idempotent response:", e.message))
+          .finally(() => send(body));
+        return res;
+      }) as Response["json"];
+      next();
+    })
+    .catch(next);
+}
+
+/**
+ * Resolves to the stored response for the key, waiting while another request holds it, or to
+ * null once this request owns the key and must run the operation.
+ */
+export async function claimOrWait(scopedKey: string): Promise<StoredResponse | null> {
+  const deadline = Date.now() + WAIT_MAX_MS;
+  for (;;) {
+    if (await wallet.claimIdempotencyKey(scopedKey)) return null;
+    const stored = await wallet.getIdempotentResponse(scopedKey);
+    if (stored && stored.status !== 0) return stored;
+    if (Date.now() > deadline) return { status: 409, body: { ok: false, reason: "request_in_progress" } };
+    await new Promise((r) => setTimeout(r, WAIT_POLL_MS));
+  }
+}
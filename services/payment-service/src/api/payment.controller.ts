@@ -2,19 +2,25 @@ import { Request, Response } from "express";
 import * as wallet from "../wallet/wallet.service";
 import { postToGateway } from "../gateway/client";
 import { publish } from "../rabbit/publisher";
+import { claimOrWait } from "./idempotency";
 
 /**
  * POST /wallet/deposit
  * { userId, amount, source } -> calls external gateway to charge, on success add funds & publish deposit.added
  */
 export async function depositHandler(req: Request, res: Response) {
+  const r = await depositOp(req.body);
+  return res.status(r.status).json(r.body);
+}
+
+async function depositOp(input: any): Promise<OpResult> {
   try {
-    const { userId } = req.body;
-    let amount = req.body.amount;
-    const source = req.body.source;
-    if (!userId || amount === undefined || amount === null) return res.status(400).json({ error: "userId/amount required" });
+    const { userId } = input;
+    let amount = input.amount;
+    const source = input.source;
+    if (!userId || amount === undefined || amount === null) return { status: 400, body: { error: "userId/amount required" } };
     amount = typeof amount === "string" ? Number(amount) : amount;
-    if (typeof amount !== "number" || !Number.isFinite(amount) || amount < 0) return res.status(400).json({ error: "invalid amount" });
+    if (typeof amount !== "number" || !Number.isFinite(amount) || amount < 0) return { status: 400, body: { error: "invalid amount" } };
 
     // call gateway (charge)
     const gwResp = await postToGateway("/charge", { userId, amount, source }).catch((e) => {
@@ -24,14 +30,14 @@ export async function depositHandler(req: Request, res: Response) {
     });
 
     // on success, add funds to wallet (in a real app do this after webhook verification)
-    await wallet.addFunds(userId, amount);
+    const added = await wallet.addFunds(userId, amount);
 
     // publish deposit.added
-    await publish("deposit.added", { userId, amount, ts: Date.now() });
+    await publish("deposit.added", { userId, amount, version: added.version, ts: Date.now() });
 
-    return res.json({ ok: true, gateway: gwResp });
+    return { status: 200, body: { ok: true, gateway: gwResp } };
   } catch (err: any) {
-    return res.status(502).json({ error: err.message || "gateway_error" });
+    return { status: 502, body: { error: err.message || "gateway_error" } };
   }
 }
 
@@ -82,28 +88,33 @@ export async function freezeHandler(req: Request, res: Response) {
   if (!r.ok) {
     // publish a failure event so notifier can alert the user (include email if present)
     const failMsg = `Your payment of ${amount} could not be reserved: ${r.reason}`;
-    await publish("payment.failed", { userId, amount, reservationId: r.reservationId, email, reason: r.reason, message: failMsg }).catch(() => {});
-    return res.status(400).json({ ok: false, reason: r.reason });
+    await publish("payment.failed", { userId, amount, reservationId: r.reservationId, email, reason: r.reason, message: failMsg, version: r.version }).catch(() => {});
+    return res.status(400).json({ ok: false, reason: r.reason, version: r.version });
   }
   const reservationId = r.reservationId;
   const reserveMsg = `Your payment of ${amount} has been reserved (reservation ${reservationId}).`;
-  await publish("payment.locked", { userId, amount, reservationId, email, message: reserveMsg, ts: Date.now() });
-  return res.json({ ok: true, reservationId });
+  await publish("payment.locked", { userId, amount, reservationId, email, message: reserveMsg, version: r.version, ts: Date.now() });
+  return res.json({ ok: true, reservationId, version: r.version });
 }
 
 /**
  * POST /wallet/unfreeze
  */
 export async function unfreezeHandler(req: Request, res: Response) {
-  const { userId } = req.body;
-  let amount = req.body.amount;
-  if (!userId || amount === undefined || amount === null) return res.status(400).json({ error: "userId/amount required" });
+  const r = await unfreezeOp(req.body);
+  return res.status(r.status).json(r.body);
+}
+
+async function unfreezeOp(input: any): Promise<OpResult> {
+  const { userId } = input;
+  let amount = input.amount;
+  if (!userId || amount === undefined || amount === null) return { status: 400, body: { error: "userId/amount required" } };
   amount = typeof amount === "string" ? Number(amount) : amount;
-  if (typeof amount !== "number" || !Number.isFinite(amount) || amount < 0) return res.status(400).json({ error: "invalid amount" });
+  if (typeof amount !== "number" || !Number.isFinite(amount) || amount < 0) return { status: 400, body: { error: "invalid amount" } };
 
-  await wallet.unfreezeAmount(userId, amount);
-  await publish("payment.unlocked", { userId, amount, ts: Date.now() });
-  return res.json({ ok: true });
+  const r = await wallet.unfreezeAmount(userId, amount);
+  await publish("payment.unlocked", { userId, amount, version: r.version, ts: Date.now() });
+  return { status: 200, body: { ok: true, version: r.version } };
 }
 
 /**
@@ -111,24 +122,87 @@ export async function unfreezeHandler(req: Request, res: Response) {
  * body: { userId, amount, auctionId }
  */
 export async function deductHandler(req: Request, res: Response) {
-  const { userId, auctionId } = req.body;
-  let amount = req.body.amount;
-  if (!userId || amount === undefined || amount === null) return res.status(400).json({ error: "userId/amount required" });
+  const r = await deductOp(req.body);
+  return res.status(r.status).json(r.body);
+}
+
+async function deductOp(input: any): Promise<OpResult> {
+  const { userId, auctionId } = input;
+  let amount = input.amount;
+  if (!userId || amount === undefined || amount === null) return { status: 400, body: { error: "userId/amount required" } };
   amount = typeof amount === "string" ? Number(amount) : amount;
-  if (typeof amount !== "number" || !Number.isFinite(amount) || amount < 0) return res.status(400).json({ error: "invalid amount" });
+  if (typeof amount !== "number" || !Number.isFinite(amount) || amount < 0) return { status: 400, body: { error: "invalid amount" } };
 
   const r = await wallet.deductLocked(userId, amount);
   if (!r.ok) {
     // include reservationId if present in body
-    const reservationId = req.body.reservationId;
-    const email = req.body.email;
+    const reservationId = input.reservationId;
+    const email = input.email;
     const msg = `Your payment of ${amount} failed: ${r.reason}`;
     await publish("payment.failed", { userId, amount, reservationId, email, reason: r.reason, message: msg });
-    return res.status(400).json({ ok: false, reason: r.reason });
+    return { status: 400, body: { ok: false, reason: r.reason } };
   }
-  const reservationId = req.body.reservationId;
-  const email = req.body.email;
+  const reservationId = input.reservationId;
+  const email = input.email;
   const successMsg = `Your payment of ${amount} for auction ${auctionId || "#"} succeeded. Reservation ${reservationId}`;
-  await publish("payment.success", { userId, amount, auctionId, reservationId, email, message: successMsg, ts: Date.now() });
-  return res.json({ ok: true, balance: r.balance });
+  await publish("payment.success", { userId, amount, auctionId, reservationId, email, message: successMsg, version: r.version, ts: Date.now() });
+  return { status: 200, body: { ok: true, balance: r.balance, version: r.version } };
+}
+
+/**
+ * POST /wallet/unfreeze/batch -> release many reservations in one request (auction settlement)
+ * body: { items: [{ userId, amount, reservationId?, idempotencyKey? }] }
+ * Items are applied in order; each gets its own result. An item's idempotencyKey is shared with
+ * POST /wallet/unfreeze, so a batch retried after a partial failure skips the items already done.
+ */
+export async function unfreezeBatchHandler(req: Request, res: Response) {
+  const items = req.body.items;
+  if (!Array.isArray(items) || items.length === 0) return res.status(400).json({ error: "items required" });
+  if (items.length > MAX_BATCH_ITEMS) return res.status(400).json({ error: `at most ${MAX_BATCH_ITEMS} items` });
+
+  const results = [];
+  // sequential on purpose: wallet updates are read-modify-write and a user can appear twice
+  for (const item of items) {
+    const r = await runIdempotent("/wallet/unfreeze", item.idempotencyKey, () => unfreezeOp(item));
+    results.push({ status: r.status, ...r.body });
+  }
+  return res.json({ ok: results.every((r) => r.status < 300), results });
+}
+
+/**
+ * POST /wallet/settle -> charge the auction winner and pay the seller in one request
+ * body: { deduct: { userId, amount, auctionId, reservationId, email, idempotencyKey? },
+ *         deposit?: { userId, amount, source, idempotencyKey? } }
+ * The deposit only runs if the deduct succeeded. Keys are shared with the single endpoints.
+ */
+export async function settleHandler(req: Request, res: Response) {
+  const { deduct, deposit } = req.body;
+  if (!deduct) return res.status(400).json({ error: "deduct required" });
+
+  const d = await runIdempotent("/wallet/deduct", deduct.idempotencyKey, () => deductOp(deduct));
+  let dep: OpResult | null = null;
+  if (d.status < 300 && deposit) {
+    dep = await runIdempotent("/wallet/deposit", deposit.idempotencyKey, () => depositOp(deposit));
+  }
+  return res.json({
+    ok: d.status < 300 && (!dep || dep.status < 300),
+    deduct: { status: d.status, ...d.body },
+    deposit: dep ? { status: dep.status, ...dep.body } : null,
+  });
+}
+
+const MAX_BATCH_ITEMS = 1000;
+
+type OpResult = { status: number; body: any };
+
+// same contract as the idempotent middleware, for operations that are items of a larger request
+async function runIdempotent(route: string, key: string | undefined, op: () => Promise<OpResult>): Promise<OpResult> {
+  if (!key) return op();
+  const scopedKey = `${route}:${key}`;
+  const stored = await claimOrWait(scopedKey);
+  if (stored) return stored;
+  const r = await op();
+  if (r.status < 500) await wallet.saveIdempotentResponse(scopedKey, r.status, r.body);
+  else await wallet.releaseIdempotencyKey(scopedKey);
+  return r;
 }
@@ -10,7 +10,10 @@ import {
   freezeHandler,
   unfreezeHandler,
   deductHandler,
+  unfreezeBatchHandler,
+  settleHandler,
 } from "./api/payment.controller";
+import { idempotent } from "./api/idempotency";
 
 async function start() {
   // ensure DB schema and rabbit are ready
@@ -24,7 +27,7 @@ async function start() {
     origin: ["http://localhost:5173", "http://localhost:3000", "http://localhost:8080"],
     credentials: true,
     methods: ["GET", "POST", "PUT", "DELETE", "OPTIONS"],
-    allowedHeaders: ["Content-Type", "Authorization"],
+    allowedHeaders: ["Content-Type", "Authorization", "Idempotency-Key"],
   }));
 
   // capture raw body for debugging parse errors
@@ -53,12 +56,17 @@ async function start() {
   });
 
   // routes
-  app.post("/wallet/deposit", depositHandler);
+  // settlement retries these after a crash; Idempotency-Key makes the retry safe
+  app.post("/wallet/deposit", idempotent, depositHandler);
   app.post("/payment/create", createPaymentHandler);
   app.get("/wallet/:userId", walletHandler);
-  app.post("/wallet/freeze", freezeHandler);
-  app.post("/wallet/unfreeze", unfreezeHandler);
-  app.post("/wallet/deduct", deductHandler);
+  // auction-service may hedge a slow freeze with a duplicate carrying the same key
+  app.post("/wallet/freeze", idempotent, freezeHandler);
+  app.post("/wallet/unfreeze", idempotent, unfreezeHandler);
+  app.post("/wallet/deduct", idempotent, deductHandler);
+  // batch forms used by auction settlement; idempotency is per item
+  app.post("/wallet/unfreeze/batch", unfreezeBatchHandler);
+  app.post("/wallet/settle", settleHandler);
 
   const server = app.listen(CONFIG.port, () => {
     console.log(`Payment service listening on ${CONFIG.port}`);
@@ -7,4 +7,5 @@ export type WalletState = {
   userId: string;
   balance: number;
   locked: number; // total locked amount
+  version: number; // bumped by every change
 };
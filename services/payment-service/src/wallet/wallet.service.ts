@@ -13,6 +13,8 @@ export interface WalletState {
   userId: string;
   balance: number;
   locked: number;
+  // bumped by every change, so consumers of wallet events can order them without clocks
+  version: number;
 }
 
 /**
@@ -25,7 +27,61 @@ export async function initDb() {
     locked NUMERIC NOT NULL DEFAULT 0
   )`;
   await pool.query(sql);
+  await pool.query("ALTER TABLE public.wallets ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0");
   console.log("✅ Ensured wallets table exists");
+  await pool.query(`CREATE TABLE IF NOT EXISTS public.idempotency_keys (
+    key VARCHAR(255) PRIMARY KEY,
+    status INTEGER NOT NULL,
+    body JSONB,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+  )`);
+  console.log("✅ Ensured idempotency_keys table exists");
+}
+
+
+/**
+ * Stored response for an Idempotency-Key, if the request was already handled.
+ * status 0 means another request with the key is still running.
+ */
+export async function getIdempotentResponse(key: string): Promise<{ status: number; body: any } | null> {
+  const res = await pool.query("SELECT status, body FROM public.idempotency_keys WHERE key = $1", [key]);
+  if (res.rows.length === 0) return null;
+  return { status: res.rows[0].status, body: res.rows[0].body };
+}
+
+
+/**
+ * Claim a key before running the request (status 0). Returns false if another request holds it;
+ * a claim older than staleSeconds belongs to a request that died and is taken over.
+ */
+export async function claimIdempotencyKey(key: string, staleSeconds = 60): Promise<boolean> {
+  const res = await pool.query(
+    `INSERT INTO public.idempotency_keys (key, status, body) VALUES ($1, 0, NULL)
+     ON CONFLICT (key) DO UPDATE SET created_at = now()
+     WHERE public.idempotency_keys.status = 0
+       AND public.idempotency_keys.created_at < now() - make_interval(secs => $2)
+     RETURNING key`,
+    [key, staleSeconds]
+  );
+  return res.rows.length > 0;
+}
+
+
+export async function saveIdempotentResponse(key: string, status: number, body: any) {
+  await pool.query(
+    `INSERT INTO public.idempotency_keys (key, status, body) VALUES ($1, $2, $3)
+     ON CONFLICT (key) DO UPDATE SET status = EXCLUDED.status, body = EXCLUDED.body
+     WHERE public.idempotency_keys.status = 0`,
+    [key, status, JSON.stringify(body)]
+  );
+}
+
+
+/**
+ * Drop an unfinished claim (the request failed with a 5xx and may be retried).
+ */
+export async function releaseIdempotencyKey(key: string) {
+  await pool.query("DELETE FROM public.idempotency_keys WHERE key = $1 AND status = 0", [key]);
 }
 
 
@@ -39,11 +95,11 @@ export async function ensureWallet(userId: string): Promise<WalletState> {
     // Postgres NUMERIC is returned as string by node-postgres — coerce to number
     const balance = typeof w.balance === "string" ? Number(w.balance) : w.balance;
     const locked = typeof w.locked === "string" ? Number(w.locked) : w.locked;
-    return { userId: w.user_id, balance: Number.isFinite(balance) ? balance : 0, locked: Number.isFinite(locked) ? locked : 0 };
+    return { userId: w.user_id, balance: Number.isFinite(balance) ? balance : 0, locked: Number.isFinite(locked) ? locked : 0, version: Number(w.version) };
   }
   // Create wallet if not exists
   await pool.query("INSERT INTO public.wallets (user_id, balance, locked) VALUES ($1, $2, $3)", [userId, 0, 0]);
-  return { userId, balance: 0, locked: 0 };
+  return { userId, balance: 0, locked: 0, version: 0 };
 }
 
 
@@ -60,26 +116,27 @@ export async function addFunds(userId: string, amount: number) {
   const w = await ensureWallet(userId);
   const amt = typeof amount === "string" ? Number(amount) : amount;
   const newBalance = w.balance + (typeof amt === "number" && Number.isFinite(amt) ? amt : 0);
-  await pool.query("UPDATE public.wallets SET balance = $1 WHERE user_id = $2", [newBalance, userId]);
-  return { ok: true, balance: newBalance };
+  const version = await updateWallet("balance = $1", [newBalance], userId);
+  return { ok: true, balance: newBalance, version };
 }
 
 
 /**
  * Freeze amount for a bid
  */
-export async function freezeAmount(userId: string, amount: number): Promise<{ ok: boolean; reservationId?: string; reason?: string }> {
+export async function freezeAmount(userId: string, amount: number): Promise<{ ok: boolean; reservationId?: string; reason?: string; version: number }> {
   const w = await ensureWallet(userId);
   const amt = typeof amount === "string" ? Number(amount) : amount;
   const available = w.balance - w.locked;
   if (available < (typeof amt === "number" && Number.isFinite(amt) ? amt : 0)) {
-    return { ok: false, reason: "insufficient_funds" };
+    // the version the refusal was decided at
+    return { ok: false, reason: "insufficient_funds", version: w.version };
   }
   const newLocked = w.locked + (typeof amt === "number" && Number.isFinite(amt) ? amt : 0);
-  await pool.query("UPDATE public.wallets SET locked = $1 WHERE user_id = $2", [newLocked, userId]);
+  const version = await updateWallet("locked = $1", [newLocked], userId);
   // generate a reservation id to correlate events
   const reservationId = `${userId}-${Date.now()}-${Math.floor(Math.random() * 10000)}`;
-  return { ok: true, reservationId };
+  return { ok: true, reservationId, version };
 }
 
 
@@ -90,21 +147,33 @@ export async function unfreezeAmount(userId: string, amount: number) {
   const w = await ensureWallet(userId);
   const amt = typeof amount === "string" ? Number(amount) : amount;
   const newLocked = Math.max(0, w.locked - (typeof amt === "number" && Number.isFinite(amt) ? amt : 0));
-  await pool.query("UPDATE public.wallets SET locked = $1 WHERE user_id = $2", [newLocked, userId]);
-  return { ok: true };
+  const version = await updateWallet("locked = $1", [newLocked], userId);
+  return { ok: true, version };
 }
 
 
 /**
  * Deduct locked amount when finalizing payment
  */
-export async function deductLocked(userId: string, amount: number): Promise<{ ok: boolean; reason?: string; balance?: number }> {
+export async function deductLocked(userId: string, amount: number): Promise<{ ok: boolean; reason?: string; balance?: number; version?: number }> {
   const w = await ensureWallet(userId);
   const amt = typeof amount === "string" ? Number(amount) : amount;
   if (w.locked < (typeof amt === "number" && Number.isFinite(amt) ? amt : 0)) return { ok: false, reason: "locked_amount_insufficient" };
   let newLocked = w.locked - (typeof amt === "number" && Number.isFinite(amt) ? amt : 0);
   let newBalance = w.balance - (typeof amt === "number" && Number.isFinite(amt) ? amt : 0);
   if (newBalance < 0) newBalance = 0; // safety
-  await pool.query("UPDATE public.wallets SET locked = $1, balance = $2 WHERE user_id = $3", [newLocked, newBalance, userId]);
-  return { ok: true, balance: newBalance };
+  const version = await updateWallet("locked = $1, balance = $2", [newLocked, newBalance], userId);
+  return { ok: true, balance: newBalance, version };
+}
+
+
+/**
+ * Apply a change to a wallet and return its new version.
+ */
+async function updateWallet(assignments: string, values: number[], userId: string): Promise<number> {
+  const res = await pool.query(
+    `UPDATE public.wallets SET ${assignments}, version = version + 1 WHERE user_id = $${values.length + 1} RETURNING version`,
+    [...values, userId]
+  );
+  return Number(res.rows[0].version);
 }